@@ -0,0 +1,85 @@
+package com.coffee.coffeeApp.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caps how many threads may be doing database work at once when the app runs
+ * on virtual threads (spring.threads.virtual.enabled=true on Java 21+). Virtual
+ * threads are unbounded, so without this every waiting request or MQTT message
+ * would queue on Hikari and time out instead of queueing cheaply here. With
+ * platform threads the limiter is a pass-through unless
+ * app.db.concurrency-limit.always is set. Permits are taken per transaction by
+ * DatabaseConcurrencyTransactionManager, and are per thread: a thread that
+ * already holds one (e.g. a REQUIRES_NEW transaction inside another) does not
+ * wait for a second, which would deadlock once every permit is held that way.
+ */
+@Component
+public class DatabaseConcurrencyLimiter {
+
+	private final boolean virtualThreads;
+	private final boolean enabled;
+	private final Semaphore permits;
+	private final int maxConcurrency;
+	// Nesting depth of acquire() on the current thread
+	private final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[1]);
+
+	public DatabaseConcurrencyLimiter(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled,
+			@Value("${app.db.concurrency-limit.always:false}") boolean always,
+			@Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize) {
+		this.virtualThreads = virtualThreadsEnabled && Runtime.version().feature() >= 21;
+		this.enabled = virtualThreads || always;
+		this.maxConcurrency = maximumPoolSize;
+		this.permits = new Semaphore(maximumPoolSize, true);
+		if (virtualThreadsEnabled && !virtualThreads) {
+			System.out.println("spring.threads.virtual.enabled is set but Java " + Runtime.version().feature()
+					+ " has no virtual threads; using platform threads");
+		}
+	}
+
+	// True when virtual threads are both requested and supported by the running JVM
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	// True when acquire() can block
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void acquire() throws InterruptedException {
+		if (!enabled) {
+			return;
+		}
+		int[] depth = held.get();
+		if (depth[0] == 0) {
+			permits.acquire();
+		}
+		depth[0]++;
+	}
+
+	public void release() {
+		if (!enabled) {
+			return;
+		}
+		int[] depth = held.get();
+		if (--depth[0] == 0) {
+			held.remove();
+			permits.release();
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("virtualThreads", virtualThreads);
+		stats.put("enabled", enabled);
+		stats.put("maxConcurrency", maxConcurrency);
+		stats.put("available", enabled ? permits.availablePermits() : maxConcurrency);
+		stats.put("waiting", permits.getQueueLength());
+		return stats;
+	}
+}
@@ -0,0 +1,54 @@
+package com.coffee.coffeeApp.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+
+/**
+ * The JPA transaction manager, taking a DatabaseConcurrencyLimiter permit for
+ * each physical transaction: from begin until after commit/rollback, i.e. for
+ * as long as it can hold a connection. Work that joins an outer transaction
+ * runs under the outer permit, and a nested REQUIRES_NEW on the same thread
+ * reuses it, since permits are per thread. Replaces Boot's default
+ * JpaTransactionManager; spring.transaction.* customizers still apply.
+ */
+@Component("transactionManager")
+public class DatabaseConcurrencyTransactionManager extends JpaTransactionManager {
+
+	private final DatabaseConcurrencyLimiter limiter;
+
+	public DatabaseConcurrencyTransactionManager(DatabaseConcurrencyLimiter limiter,
+			ObjectProvider<TransactionManagerCustomizers> customizers) {
+		this.limiter = limiter;
+		customizers.ifAvailable(c -> c.customize(this));
+	}
+
+	@Override
+	protected void doBegin(Object transaction, TransactionDefinition definition) {
+		try {
+			limiter.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CannotCreateTransactionException("Interrupted waiting for a database permit", e);
+		}
+		try {
+			super.doBegin(transaction, definition);
+		} catch (RuntimeException | Error e) {
+			// No cleanup callback follows a failed begin
+			limiter.release();
+			throw e;
+		}
+	}
+
+	@Override
+	protected void doCleanupAfterCompletion(Object transaction) {
+		try {
+			super.doCleanupAfterCompletion(transaction);
+		} finally {
+			limiter.release();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.coffee.coffeeApp.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.coffee.coffeeApp.service.DeviceTokenService;
+import com.coffee.coffeeApp.service.GrpcTelemetryService;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+
+@Configuration
+public class GrpcServerConfig {
+
+	static final Metadata.Key<String> DEVICE_TOKEN = Metadata.Key.of("x-device-token", Metadata.ASCII_STRING_MARSHALLER);
+
+	// gRPC telemetry/command server on its own port; off unless app.grpc.enabled=true, and TLS unless
+	// app.grpc.plaintext=true says otherwise (device tokens travel in the call metadata)
+	@Bean
+	@ConditionalOnProperty(name = "app.grpc.enabled", havingValue = "true")
+	GrpcServer grpcServer(GrpcTelemetryService telemetryService, DeviceTokenService deviceTokenService,
+			@Value("${app.grpc.port:9090}") int port,
+			@Value("${app.grpc.tls.cert-chain:}") String certChain,
+			@Value("${app.grpc.tls.private-key:}") String privateKey,
+			@Value("${app.grpc.plaintext:false}") boolean plaintext) throws IOException {
+		NettyServerBuilder builder = NettyServerBuilder.forPort(port);
+		boolean tls = !certChain.isBlank() && !privateKey.isBlank();
+		if (tls) {
+			builder.useTransportSecurity(new File(certChain), new File(privateKey));
+		} else if (!plaintext) {
+			throw new IllegalStateException("app.grpc.enabled=true needs app.grpc.tls.cert-chain and "
+					+ "app.grpc.tls.private-key, or app.grpc.plaintext=true");
+		}
+		Server server = builder
+				.addService(authenticated(telemetryService, deviceTokenService))
+				.build()
+				.start();
+		System.out.println("gRPC telemetry server listening on port " + port + (tls ? " (TLS)" : " (plaintext)"));
+		return new GrpcServer(server);
+	}
+
+	public static ServerServiceDefinition authenticated(GrpcTelemetryService telemetryService,
+			DeviceTokenService deviceTokenService) {
+		return ServerInterceptors.intercept(telemetryService, new DeviceTokenInterceptor(deviceTokenService));
+	}
+
+	// Lets open streams finish their current message before the context closes
+	public record GrpcServer(Server server) implements AutoCloseable {
+		@Override
+		public void close() throws InterruptedException {
+			server.shutdown();
+			if (!server.awaitTermination(5, TimeUnit.SECONDS)) {
+				server.shutdownNow();
+			}
+		}
+	}
+
+	// Same device tokens as /api/ingest; the caller's facility scope is put in the call context
+	static class DeviceTokenInterceptor implements ServerInterceptor {
+
+		private final DeviceTokenService deviceTokenService;
+
+		DeviceTokenInterceptor(DeviceTokenService deviceTokenService) {
+			this.deviceTokenService = deviceTokenService;
+		}
+
+		@Override
+		public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+				ServerCallHandler<Q, R> next) {
+			Optional<DeviceTokenService.DeviceScope> scope = deviceTokenService.authenticate(headers.get(DEVICE_TOKEN));
+			if (scope.isEmpty()) {
+				call.close(Status.UNAUTHENTICATED.withDescription("Invalid device token"), new Metadata());
+				return new ServerCall.Listener<>() {
+				};
+			}
+			Context context = Context.current().withValue(GrpcTelemetryService.DEVICE_SCOPE, scope.get());
+			return Contexts.interceptCall(context, call, headers, next);
+		}
+	}
+}
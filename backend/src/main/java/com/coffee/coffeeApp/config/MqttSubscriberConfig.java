@@ -1,16 +1,21 @@
 package com.coffee.coffeeApp.config;
 
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.coffee.coffeeApp.service.MQTTSubscriberService;
+import com.coffee.coffeeApp.service.MachineCommandService;
 
 @Configuration
 public class MqttSubscriberConfig {
 	
+	// Tests and tools can run without a broker by setting mqtt.subscriber.enabled=false
 	@Bean
-	CommandLineRunner startMqttSubscriber(MQTTSubscriberService subscriberService) {
+	@ConditionalOnProperty(name = "mqtt.subscriber.enabled", havingValue = "true", matchIfMissing = true)
+	CommandLineRunner startMqttSubscriber(MQTTSubscriberService subscriberService,
+			MachineCommandService machineCommandService) {
 		return args -> {
 			try {
 				subscriberService.start();
@@ -18,6 +23,13 @@ public class MqttSubscriberConfig {
 			catch(Exception e){
 				e.printStackTrace();
 			}
+			// Commands to machines without a gRPC channel go out over MQTT
+			try {
+				machineCommandService.start();
+			}
+			catch(Exception e){
+				e.printStackTrace();
+			}
 		};
 	}
 }
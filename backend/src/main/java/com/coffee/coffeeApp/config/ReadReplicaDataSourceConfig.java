@@ -0,0 +1,93 @@
+package com.coffee.coffeeApp.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Primary + read replica pools, enabled with app.datasource.replica.enabled=true.
+ * The primary keeps the spring.datasource.* settings; the replica is configured
+ * under app.datasource.replica.* (url, username, password, hikari.*). For a
+ * local run the replica url can point at a second H2/MySQL instance or at the
+ * primary database itself.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+	@Bean
+	@Primary
+	@ConfigurationProperties("spring.datasource")
+	DataSourceProperties primaryDataSourceProperties() {
+		return new DataSourceProperties();
+	}
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	HikariDataSource primaryDataSource(
+			@Qualifier("primaryDataSourceProperties") DataSourceProperties primaryDataSourceProperties) {
+		HikariDataSource dataSource = primaryDataSourceProperties.initializeDataSourceBuilder()
+				.type(HikariDataSource.class).build();
+		dataSource.setPoolName("primary");
+		return dataSource;
+	}
+
+	@Bean
+	@ConfigurationProperties("app.datasource.replica")
+	DataSourceProperties replicaDataSourceProperties() {
+		return new DataSourceProperties();
+	}
+
+	@Bean
+	@ConfigurationProperties("app.datasource.replica.hikari")
+	HikariDataSource replicaDataSource(
+			@Qualifier("replicaDataSourceProperties") DataSourceProperties replicaDataSourceProperties) {
+		HikariDataSource dataSource = replicaDataSourceProperties.initializeDataSourceBuilder()
+				.type(HikariDataSource.class).build();
+		dataSource.setPoolName("replica");
+		dataSource.setReadOnly(true);
+		return dataSource;
+	}
+
+	@Bean
+	ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+			@Qualifier("replicaDataSource") DataSource replicaDataSource,
+			@Value("${app.datasource.replica.max-lag-ms:5000}") long maxLagMillis) {
+		return new ReplicaLagMonitor(new JdbcTemplate(primaryDataSource), new JdbcTemplate(replicaDataSource),
+				maxLagMillis);
+	}
+
+	@Bean
+	ReadReplicaRoutingDataSource readReplicaRoutingDataSource(
+			@Qualifier("primaryDataSource") DataSource primaryDataSource,
+			@Qualifier("replicaDataSource") DataSource replicaDataSource, ReplicaLagMonitor replicaLagMonitor) {
+		ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(replicaLagMonitor);
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(ReadReplicaRoutingDataSource.PRIMARY, primaryDataSource);
+		targets.put(ReadReplicaRoutingDataSource.REPLICA, replicaDataSource);
+		routing.setTargetDataSources(targets);
+		routing.setDefaultTargetDataSource(primaryDataSource);
+		return routing;
+	}
+
+	// What JPA and JdbcTemplate see; the lazy proxy delays routing until the first statement
+	@Bean
+	@Primary
+	DataSource dataSource(ReadReplicaRoutingDataSource readReplicaRoutingDataSource) {
+		return new LazyConnectionDataSourceProxy(readReplicaRoutingDataSource);
+	}
+}
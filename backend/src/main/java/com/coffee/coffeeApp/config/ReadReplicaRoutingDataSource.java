@@ -0,0 +1,54 @@
+package com.coffee.coffeeApp.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections for @Transactional(readOnly = true) work to the replica
+ * pool and everything else to the primary. Must sit behind a
+ * LazyConnectionDataSourceProxy so the read-only flag is already set when the
+ * physical connection is fetched.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+	public static final String PRIMARY = "primary";
+	public static final String REPLICA = "replica";
+
+	private final ReplicaLagMonitor lagMonitor;
+
+	private final AtomicLong primaryRoutes = new AtomicLong();
+	private final AtomicLong replicaRoutes = new AtomicLong();
+	private final AtomicLong fallbackRoutes = new AtomicLong();
+
+	public ReadReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor) {
+		this.lagMonitor = lagMonitor;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			primaryRoutes.incrementAndGet();
+			return PRIMARY;
+		}
+		if (!lagMonitor.isReplicaUsable()) {
+			// Replica too far behind or unreachable: serve reads from the primary
+			fallbackRoutes.incrementAndGet();
+			return PRIMARY;
+		}
+		replicaRoutes.incrementAndGet();
+		return REPLICA;
+	}
+
+	public Map<String, Object> getRoutingStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("primaryRoutes", primaryRoutes.get());
+		stats.put("replicaRoutes", replicaRoutes.get());
+		stats.put("replicaFallbacks", fallbackRoutes.get());
+		stats.putAll(lagMonitor.getStats());
+		return stats;
+	}
+}
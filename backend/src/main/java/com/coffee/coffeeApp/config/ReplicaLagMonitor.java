@@ -0,0 +1,89 @@
+package com.coffee.coffeeApp.config;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Measures replica lag with a heartbeat row: the primary's row is stamped on
+ * a fixed delay and read back from the replica. The replica is only used while
+ * the observed lag stays under the configured maximum. The table comes from
+ * db/migration/mysql/V051__replica_heartbeat.sql; for databases set up
+ * without the scripts (H2, local runs) it is created once at startup.
+ */
+public class ReplicaLagMonitor {
+
+	private static final String CREATE_TABLE =
+			"CREATE TABLE IF NOT EXISTS replica_heartbeat (id INT PRIMARY KEY, beat_at TIMESTAMP(3) NOT NULL)";
+
+	private final JdbcTemplate primary;
+	private final JdbcTemplate replica;
+	private final long maxLagMillis;
+
+	private volatile boolean replicaUsable;
+	private volatile long lastLagMillis = -1;
+	private volatile String lastError;
+
+	public ReplicaLagMonitor(JdbcTemplate primary, JdbcTemplate replica, long maxLagMillis) {
+		this.primary = primary;
+		this.replica = replica;
+		this.maxLagMillis = maxLagMillis;
+	}
+
+	@PostConstruct
+	public void createTable() {
+		try {
+			primary.execute(CREATE_TABLE);
+		} catch (Exception e) {
+			// e.g. no DDL rights; the migration script is expected to have created it
+			System.out.println("replica_heartbeat not created: " + e.getMessage());
+		}
+	}
+
+	// One UPDATE per tick; the row is inserted only when it is missing
+	@Scheduled(fixedDelayString = "${app.datasource.replica.heartbeat-interval-ms:1000}")
+	public void heartbeat() {
+		try {
+			Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+			if (primary.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", now) == 0) {
+				primary.update("INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, ?)", now);
+			}
+
+			Timestamp seen = replica.queryForObject("SELECT beat_at FROM replica_heartbeat WHERE id = 1",
+					Timestamp.class);
+			lastLagMillis = Math.max(0, System.currentTimeMillis() - seen.getTime());
+			lastError = null;
+		} catch (Exception e) {
+			// Heartbeat row not replicated yet, or replica down
+			lastLagMillis = -1;
+			lastError = e.getMessage();
+		}
+
+		boolean usable = lastLagMillis >= 0 && lastLagMillis <= maxLagMillis;
+		if (usable != replicaUsable) {
+			System.out.println(usable
+					? "Read replica in use (lag " + lastLagMillis + " ms)"
+					: "Read replica disabled, lag " + lastLagMillis + " ms" + (lastError != null ? ": " + lastError : ""));
+		}
+		replicaUsable = usable;
+	}
+
+	public boolean isReplicaUsable() {
+		return replicaUsable;
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("replicaUsable", replicaUsable);
+		stats.put("replicaLagMillis", lastLagMillis);
+		stats.put("maxLagMillis", maxLagMillis);
+		stats.put("lastHeartbeatError", lastError);
+		return stats;
+	}
+}
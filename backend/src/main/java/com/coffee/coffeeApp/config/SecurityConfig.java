@@ -99,6 +99,8 @@ public class SecurityConfig {
 				.authorizeHttpRequests(auth -> auth
 						.requestMatchers("/api/auth/**").permitAll()
 						.requestMatchers("/api/health/**").permitAll()
+						// Edge gateways authenticate with a device token checked by IngestController
+						.requestMatchers(org.springframework.http.HttpMethod.POST, "/api/ingest").permitAll()
 						// ADMIN endpoints - can access all facilities and admin features
 						.requestMatchers("/api/admin/**").hasRole("ADMIN")
 						// FACILITY endpoints - can only access their assigned facility
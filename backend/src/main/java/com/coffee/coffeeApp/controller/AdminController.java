@@ -5,11 +5,22 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import com.coffee.coffeeApp.service.FacilityService;
 import com.coffee.coffeeApp.dto.DashboardSummaryDto;
 import com.coffee.coffeeApp.dto.FacilityDto;
 import com.coffee.coffeeApp.service.UsageHistoryService;
 import com.coffee.coffeeApp.service.AlertLogService;
+import com.coffee.coffeeApp.service.ChangeFeedService;
+import com.coffee.coffeeApp.service.ChangeVersionTracker;
+import com.coffee.coffeeApp.service.DataSourceStatsService;
+import com.coffee.coffeeApp.service.GrpcTelemetryService;
+import com.coffee.coffeeApp.service.HeartbeatTracker;
+import com.coffee.coffeeApp.service.IngestDeduplicator;
+import com.coffee.coffeeApp.service.MQTTSubscriberService;
+import com.coffee.coffeeApp.service.MachineCommandService;
+import com.coffee.coffeeApp.service.ReferenceDataCacheService;
+import com.coffee.coffeeApp.service.TelemetryDeadbandFilter;
 import org.springframework.web.bind.annotation.PathVariable;
 import java.util.Map;
 import java.util.HashMap;
@@ -24,12 +35,37 @@ public class AdminController {
     private final FacilityService facilityService;
     private final UsageHistoryService usageHistoryService;
     private final AlertLogService alertLogService;
+    private final DataSourceStatsService dataSourceStatsService;
+    private final ReferenceDataCacheService referenceDataCacheService;
+    private final ChangeVersionTracker changeVersionTracker;
+    private final ChangeFeedService changeFeedService;
+    private final HeartbeatTracker heartbeatTracker;
+    private final TelemetryDeadbandFilter telemetryDeadbandFilter;
+    private final IngestDeduplicator ingestDeduplicator;
+    private final MQTTSubscriberService mqttSubscriberService;
+    private final GrpcTelemetryService grpcTelemetryService;
+    private final MachineCommandService machineCommandService;
 
     public AdminController(FacilityService facilityService, UsageHistoryService usageHistoryService,
-            AlertLogService alertLogService) {
+            AlertLogService alertLogService, DataSourceStatsService dataSourceStatsService,
+            ReferenceDataCacheService referenceDataCacheService, ChangeVersionTracker changeVersionTracker,
+            ChangeFeedService changeFeedService, HeartbeatTracker heartbeatTracker,
+            TelemetryDeadbandFilter telemetryDeadbandFilter, IngestDeduplicator ingestDeduplicator,
+            MQTTSubscriberService mqttSubscriberService, GrpcTelemetryService grpcTelemetryService,
+            MachineCommandService machineCommandService) {
         this.facilityService = facilityService;
         this.usageHistoryService = usageHistoryService;
         this.alertLogService = alertLogService;
+        this.dataSourceStatsService = dataSourceStatsService;
+        this.referenceDataCacheService = referenceDataCacheService;
+        this.changeVersionTracker = changeVersionTracker;
+        this.changeFeedService = changeFeedService;
+        this.heartbeatTracker = heartbeatTracker;
+        this.telemetryDeadbandFilter = telemetryDeadbandFilter;
+        this.ingestDeduplicator = ingestDeduplicator;
+        this.mqttSubscriberService = mqttSubscriberService;
+        this.grpcTelemetryService = grpcTelemetryService;
+        this.machineCommandService = machineCommandService;
     }
 
     @GetMapping("/dashboard")
@@ -41,10 +77,11 @@ public class AdminController {
     }
 
     @GetMapping("/facilities")
-    public ResponseEntity<List<FacilityDto>> getAllFacilities() {
+    public ResponseEntity<List<FacilityDto>> getAllFacilities(WebRequest request) {
+        // Facility cards carry machine counts, so either kind changes the tag
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.FACILITY, ChangeVersionTracker.Kind.MACHINE);
         // Return all facilities with detailed information
-        List<FacilityDto> facilities = facilityService.getAllFacilities();
-        return ResponseEntity.ok(facilities);
+        return ETagSupport.conditional(request, etag, facilityService::getAllFacilities);
     }
 
     @GetMapping("/analytics")
@@ -68,21 +105,25 @@ public class AdminController {
     }
 
     @GetMapping("/summary")
-    public ResponseEntity<Map<String, Object>> getAdminSummary() {
-        Map<String, Object> res = new HashMap<>();
-        var facilities = facilityService.getAllFacilities();
-        long totalFacilities = facilities.size();
-        long totalMachines = facilities.stream().mapToLong(FacilityDto::getTotalMachines).sum();
-        long activeMachines = facilities.stream().mapToLong(FacilityDto::getActiveMachines).sum();
-        long totalAlerts = alertLogService.getAlertStatistics().getTotalAlerts();
-
-        res.put("totalFacilities", totalFacilities);
-        res.put("totalMachines", totalMachines);
-        res.put("activeMachines", activeMachines);
-        res.put("totalAlerts", totalAlerts);
-        // Per-facility (Pune, Mumbai) cards
-        res.put("facilities", facilities);
-        return ResponseEntity.ok(res);
+    public ResponseEntity<Map<String, Object>> getAdminSummary(WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.FACILITY, ChangeVersionTracker.Kind.MACHINE,
+                ChangeVersionTracker.Kind.ALERT);
+        return ETagSupport.conditional(request, etag, () -> {
+            Map<String, Object> res = new HashMap<>();
+            var facilities = facilityService.getAllFacilities();
+            long totalFacilities = facilities.size();
+            long totalMachines = facilities.stream().mapToLong(FacilityDto::getTotalMachines).sum();
+            long activeMachines = facilities.stream().mapToLong(FacilityDto::getActiveMachines).sum();
+            long totalAlerts = alertLogService.getAlertStatistics().getTotalAlerts();
+
+            res.put("totalFacilities", totalFacilities);
+            res.put("totalMachines", totalMachines);
+            res.put("activeMachines", activeMachines);
+            res.put("totalAlerts", totalAlerts);
+            // Per-facility (Pune, Mumbai) cards
+            res.put("facilities", facilities);
+            return res;
+        });
     }
 
     @GetMapping("/usage-today")
@@ -92,4 +133,37 @@ public class AdminController {
         res.put("todayTotal", todayTotal);
         return ResponseEntity.ok(res);
     }
+
+    @GetMapping("/datasource-stats")
+    public ResponseEntity<Map<String, Object>> getDataSourceStats() {
+        return ResponseEntity.ok(dataSourceStatsService.getStats());
+    }
+
+    @GetMapping("/ingest-stats")
+    public ResponseEntity<Map<String, Object>> getIngestStats() {
+        Map<String, Object> res = new HashMap<>();
+        res.put("subscriber", mqttSubscriberService.getStats());
+        res.put("grpc", grpcTelemetryService.getStats());
+        res.put("dedupe", ingestDeduplicator.getStats());
+        res.put("heartbeat", heartbeatTracker.getStats());
+        res.put("deadband", telemetryDeadbandFilter.getStats());
+        return ResponseEntity.ok(res);
+    }
+
+    @GetMapping("/command-stats")
+    public ResponseEntity<Map<String, Object>> getCommandStats() {
+        return ResponseEntity.ok(machineCommandService.getStats());
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(referenceDataCacheService.getStatistics());
+    }
+
+    @GetMapping("/change-versions")
+    public ResponseEntity<Map<String, Object>> getChangeVersions() {
+        Map<String, Object> res = new HashMap<>(changeVersionTracker.getVersions());
+        res.put("feed", changeFeedService.getStats());
+        return ResponseEntity.ok(res);
+    }
 }
@@ -1,15 +1,25 @@
 package com.coffee.coffeeApp.controller;
 
+import com.coffee.coffeeApp.dto.AlertBulkActionDto;
 import com.coffee.coffeeApp.dto.AlertLogDto;
+import com.coffee.coffeeApp.service.ChangeVersionTracker;
 import com.coffee.coffeeApp.service.AlertLogService;
+import com.coffee.coffeeApp.service.ExportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/alerts")
@@ -19,6 +29,12 @@ public class AlertLogController {
     @Autowired
     private AlertLogService alertLogService;
 
+    @Autowired
+    private ChangeVersionTracker changeVersionTracker;
+
+    @Autowired
+    private ExportService exportService;
+
     @PostMapping
     public ResponseEntity<AlertLogDto> createAlert(@Valid @RequestBody AlertLogDto alertDto) {
         AlertLogDto createdAlert = alertLogService.createAlert(alertDto);
@@ -26,40 +42,39 @@ public class AlertLogController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<AlertLogDto> getAlertById(@PathVariable String id) {
-        return alertLogService.getAlertById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<AlertLogDto> getAlertById(@PathVariable String id, WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.ALERT);
+        return ETagSupport.conditionalOrNotFound(request, etag, () -> alertLogService.getAlertById(id));
     }
 
     @GetMapping
-    public ResponseEntity<List<AlertLogDto>> getAllActiveAlerts() {
-        List<AlertLogDto> alerts = alertLogService.getAllActiveAlerts();
-        return ResponseEntity.ok(alerts);
+    public ResponseEntity<List<AlertLogDto>> getAllActiveAlerts(WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.ALERT);
+        return ETagSupport.conditional(request, etag, alertLogService::getAllActiveAlerts);
     }
 
     @GetMapping("/machine/{machineId}")
-    public ResponseEntity<List<AlertLogDto>> getAlertsByMachine(@PathVariable String machineId) {
-        List<AlertLogDto> alerts = alertLogService.getAlertsByMachine(machineId);
-        return ResponseEntity.ok(alerts);
+    public ResponseEntity<List<AlertLogDto>> getAlertsByMachine(@PathVariable String machineId, WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.ALERT);
+        return ETagSupport.conditional(request, etag, () -> alertLogService.getAlertsByMachine(machineId));
     }
 
     @GetMapping("/type/{alertType}")
-    public ResponseEntity<List<AlertLogDto>> getAlertsByType(@PathVariable String alertType) {
-        List<AlertLogDto> alerts = alertLogService.getAlertsByType(alertType);
-        return ResponseEntity.ok(alerts);
+    public ResponseEntity<List<AlertLogDto>> getAlertsByType(@PathVariable String alertType, WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.ALERT);
+        return ETagSupport.conditional(request, etag, () -> alertLogService.getAlertsByType(alertType));
     }
 
     @GetMapping("/critical")
-    public ResponseEntity<List<AlertLogDto>> getCriticalAlerts() {
-        List<AlertLogDto> alerts = alertLogService.getCriticalAlerts();
-        return ResponseEntity.ok(alerts);
+    public ResponseEntity<List<AlertLogDto>> getCriticalAlerts(WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.ALERT);
+        return ETagSupport.conditional(request, etag, alertLogService::getCriticalAlerts);
     }
 
     @GetMapping("/supply")
-    public ResponseEntity<List<AlertLogDto>> getSupplyAlerts() {
-        List<AlertLogDto> alerts = alertLogService.getSupplyAlerts();
-        return ResponseEntity.ok(alerts);
+    public ResponseEntity<List<AlertLogDto>> getSupplyAlerts(WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.ALERT);
+        return ETagSupport.conditional(request, etag, alertLogService::getSupplyAlerts);
     }
 
     @GetMapping("/recent")
@@ -86,4 +101,40 @@ public class AlertLogController {
         alertLogService.acknowledgeAlert(id);
         return ResponseEntity.noContent().build();
     }
+
+    // Bulk actions: select by ids, or by machineId/facilityId/alertType/olderThanHours
+    @PreAuthorize("hasAnyRole('FACILITY','ADMIN')")
+    @PostMapping("/bulk/acknowledge")
+    public ResponseEntity<Map<String, Object>> acknowledgeBulk(@Valid @RequestBody AlertBulkActionDto selection) {
+        int affected = alertLogService.acknowledgeAlerts(selection);
+        return ResponseEntity.ok(Map.of("affected", affected));
+    }
+
+    @PreAuthorize("hasAnyRole('FACILITY','ADMIN')")
+    @PostMapping("/bulk/resolve")
+    public ResponseEntity<Map<String, Object>> resolveBulk(@Valid @RequestBody AlertBulkActionDto selection) {
+        int affected = alertLogService.resolveAlerts(selection);
+        return ResponseEntity.ok(Map.of("affected", affected));
+    }
+
+    // Streamed export for reporting: csv or ndjson, gzip by default; filters are optional
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAlerts(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "true") boolean gzip,
+            @RequestParam(required = false) Integer facilityId,
+            @RequestParam(required = false) Integer machineId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            NativeWebRequest request) {
+        ExportService.Format exportFormat = ExportService.parseFormat(format);
+        StreamingResponseBody body = exportService.withSlot(request,
+                out -> exportService.exportAlerts(facilityId, machineId, startDate, endDate, exportFormat, gzip, out));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + ExportService.fileName("alerts", exportFormat, gzip) + "\"")
+                .contentType(MediaType.parseMediaType(ExportService.contentType(exportFormat, gzip)))
+                .body(body);
+    }
 }
\ No newline at end of file
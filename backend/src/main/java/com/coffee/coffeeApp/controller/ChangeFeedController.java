@@ -0,0 +1,23 @@
+package com.coffee.coffeeApp.controller;
+
+import com.coffee.coffeeApp.service.ChangeFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/changes")
+@CrossOrigin(origins = "*")
+public class ChangeFeedController {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    // Machines and alerts changed since the token from the previous call (no token = full snapshot)
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getChanges(@RequestParam(required = false) String since) {
+        return ResponseEntity.ok(changeFeedService.getChangesSince(since));
+    }
+}
@@ -2,14 +2,25 @@ package com.coffee.coffeeApp.controller;
 
 import com.coffee.coffeeApp.dto.CoffeeMachineDto;
 import com.coffee.coffeeApp.dto.BrewCommandDto;
+import com.coffee.coffeeApp.dto.MachineLiveReading;
+import com.coffee.coffeeApp.service.ChangeVersionTracker;
 import com.coffee.coffeeApp.service.CoffeeMachineService;
+import com.coffee.coffeeApp.service.MachineCommandService;
+import com.coffee.coffeeApp.service.TelemetryDeadbandFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/machines")
@@ -19,6 +30,15 @@ public class CoffeeMachineController {
     @Autowired
     private CoffeeMachineService coffeeMachineService;
 
+    @Autowired
+    private ChangeVersionTracker changeVersionTracker;
+
+    @Autowired
+    private TelemetryDeadbandFilter telemetryDeadbandFilter;
+
+    @Autowired
+    private MachineCommandService machineCommandService;
+
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping
     public ResponseEntity<CoffeeMachineDto> createMachine(@Valid @RequestBody CoffeeMachineDto machineDto) {
@@ -27,40 +47,52 @@ public class CoffeeMachineController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CoffeeMachineDto> getMachineById(@PathVariable String id) {
-        return coffeeMachineService.getMachineById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<CoffeeMachineDto> getMachineById(@PathVariable String id, WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.MACHINE);
+        return ETagSupport.conditionalOrNotFound(request, etag, () -> coffeeMachineService.getMachineById(id));
     }
 
     @GetMapping
-    public ResponseEntity<List<CoffeeMachineDto>> getAllMachines() {
-        List<CoffeeMachineDto> machines = coffeeMachineService.getAllMachines();
-        return ResponseEntity.ok(machines);
+    public ResponseEntity<List<CoffeeMachineDto>> getAllMachines(WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.MACHINE);
+        return ETagSupport.conditional(request, etag, coffeeMachineService::getAllMachines);
     }
 
     @GetMapping("/facility/{facilityId}")
-    public ResponseEntity<List<CoffeeMachineDto>> getMachinesByFacility(@PathVariable String facilityId) {
-        List<CoffeeMachineDto> machines = coffeeMachineService.getMachinesByFacilityId(facilityId);
-        return ResponseEntity.ok(machines);
+    public ResponseEntity<List<CoffeeMachineDto>> getMachinesByFacility(@PathVariable String facilityId,
+            WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.MACHINE);
+        return ETagSupport.conditional(request, etag, () -> coffeeMachineService.getMachinesByFacilityId(facilityId));
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<CoffeeMachineDto>> getMachinesByStatus(@PathVariable String status) {
-        List<CoffeeMachineDto> machines = coffeeMachineService.getMachinesByStatus(status);
-        return ResponseEntity.ok(machines);
+    public ResponseEntity<List<CoffeeMachineDto>> getMachinesByStatus(@PathVariable String status, WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.MACHINE);
+        return ETagSupport.conditional(request, etag, () -> coffeeMachineService.getMachinesByStatus(status));
     }
 
     @GetMapping("/operational")
-    public ResponseEntity<List<CoffeeMachineDto>> getOperationalMachines() {
-        List<CoffeeMachineDto> machines = coffeeMachineService.getOperationalMachines();
-        return ResponseEntity.ok(machines);
+    public ResponseEntity<List<CoffeeMachineDto>> getOperationalMachines(WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.MACHINE);
+        return ETagSupport.conditional(request, etag, coffeeMachineService::getOperationalMachines);
     }
 
     @GetMapping("/low-supplies")
-    public ResponseEntity<List<CoffeeMachineDto>> getMachinesWithLowSupplies() {
-        List<CoffeeMachineDto> machines = coffeeMachineService.getMachinesWithLowSupplies();
-        return ResponseEntity.ok(machines);
+    public ResponseEntity<List<CoffeeMachineDto>> getMachinesWithLowSupplies(WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.MACHINE);
+        return ETagSupport.conditional(request, etag, coffeeMachineService::getMachinesWithLowSupplies);
+    }
+
+    // Latest MQTT readings from memory; fresher than the machine rows, which the deadband writes less often
+    @GetMapping("/live")
+    public ResponseEntity<List<MachineLiveReading>> getLiveReadings(@RequestParam(required = false) Integer facilityId) {
+        return ResponseEntity.ok(telemetryDeadbandFilter.getLiveReadings(facilityId));
+    }
+
+    @GetMapping("/{id}/live")
+    public ResponseEntity<MachineLiveReading> getLiveReading(@PathVariable Integer id) {
+        MachineLiveReading reading = telemetryDeadbandFilter.getLiveReading(id);
+        return reading == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(reading);
     }
 
     @PostMapping("/{id}/levels")
@@ -104,6 +136,29 @@ public class CoffeeMachineController {
         return ResponseEntity.ok(result);
     }
 
+    // Sends BREW <brewType> or STATUS ON|OFF to the machine (gRPC channel if open, else MQTT); the response waits
+    // for its ack without holding a request thread
+    @PreAuthorize("hasAnyRole('FACILITY','ADMIN')")
+    @PostMapping("/{id}/commands")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> sendCommand(@PathVariable Integer id,
+            @RequestParam String type, @RequestParam String value) {
+        return machineCommandService.send(id, type, value).handle((ack, error) -> {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("machineId", id);
+            if (error == null) {
+                body.put("commandId", ack.commandId());
+                body.put("success", ack.success());
+                body.put("message", ack.message());
+                body.put("transport", ack.transport());
+                return ResponseEntity.ok(body);
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            body.put("error", cause instanceof TimeoutException ? "No ack from machine" : cause.getMessage());
+            return ResponseEntity.status(cause instanceof TimeoutException ? HttpStatus.GATEWAY_TIMEOUT
+                    : HttpStatus.CONFLICT).body(body);
+        });
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/{id}")
     public ResponseEntity<CoffeeMachineDto> updateMachine(@PathVariable String id,
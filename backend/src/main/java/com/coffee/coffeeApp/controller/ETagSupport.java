@@ -0,0 +1,33 @@
+package com.coffee.coffeeApp.controller;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+// Conditional GET for read endpoints tagged by ChangeVersionTracker: 304 while the client's tag is current,
+// otherwise the body with the tag and no-cache so the client revalidates next time. The body is only built on a miss.
+final class ETagSupport {
+
+    private ETagSupport() {
+    }
+
+    static <T> ResponseEntity<T> conditional(WebRequest request, String etag, Supplier<T> body) {
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(body.get());
+    }
+
+    // Single-item lookups: 404 when absent
+    static <T> ResponseEntity<T> conditionalOrNotFound(WebRequest request, String etag, Supplier<Optional<T>> body) {
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return body.get()
+                .map(dto -> ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(dto))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
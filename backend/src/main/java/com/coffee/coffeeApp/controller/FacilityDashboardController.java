@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.coffee.coffeeApp.dto.AlertLogDto;
 import com.coffee.coffeeApp.dto.CoffeeMachineDto;
@@ -21,6 +22,7 @@ import com.coffee.coffeeApp.entity.User;
 import com.coffee.coffeeApp.repository.AlertLogRepository;
 import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
 import com.coffee.coffeeApp.repository.UsageHistoryRepository;
+import com.coffee.coffeeApp.service.ChangeVersionTracker;
 import com.coffee.coffeeApp.service.CoffeeMachineService;
 
 @RestController
@@ -32,34 +34,39 @@ public class FacilityDashboardController {
     private final CoffeeMachineRepository coffeeMachineRepository;
     private final AlertLogRepository alertLogRepository;
     private final UsageHistoryRepository usageHistoryRepository;
+    private final ChangeVersionTracker changeVersionTracker;
 
     public FacilityDashboardController(CoffeeMachineService coffeeMachineService,
             CoffeeMachineRepository coffeeMachineRepository,
             AlertLogRepository alertLogRepository,
-            UsageHistoryRepository usageHistoryRepository) {
+            UsageHistoryRepository usageHistoryRepository,
+            ChangeVersionTracker changeVersionTracker) {
         this.coffeeMachineService = coffeeMachineService;
         this.coffeeMachineRepository = coffeeMachineRepository;
         this.alertLogRepository = alertLogRepository;
         this.usageHistoryRepository = usageHistoryRepository;
+        this.changeVersionTracker = changeVersionTracker;
     }
 
     @GetMapping("/{facilityId}/machines")
     public ResponseEntity<FacilityMachinesResponseDto> getFacilityMachines(@PathVariable String facilityId,
-            Authentication authentication) {
+            Authentication authentication, WebRequest request) {
         User user = (User) authentication.getPrincipal();
         if (user.getFacility() == null || !String.valueOf(user.getFacility().getId()).equals(facilityId)) {
             return ResponseEntity.status(403).build();
         }
 
-        List<CoffeeMachineDto> machines = coffeeMachineService.getMachinesByFacilityId(facilityId);
-        List<AlertLogDto> alerts = alertLogRepository.findSupplyAlerts().stream()
-                .filter(a -> a.getFacilityId() != null && a.getFacilityId().equals(Integer.parseInt(facilityId)))
-                .map(a -> new AlertLogDto(String.valueOf(a.getId()), String.valueOf(a.getMachineId()), a.getAlertType(),
-                        a.getMessage()))
-                .collect(Collectors.toList());
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.MACHINE, ChangeVersionTracker.Kind.ALERT);
+        return ETagSupport.conditional(request, etag, () -> {
+            List<CoffeeMachineDto> machines = coffeeMachineService.getMachinesByFacilityId(facilityId);
+            List<AlertLogDto> alerts = alertLogRepository.findSupplyAlerts().stream()
+                    .filter(a -> a.getFacilityId() != null && a.getFacilityId().equals(Integer.parseInt(facilityId)))
+                    .map(a -> new AlertLogDto(String.valueOf(a.getId()), String.valueOf(a.getMachineId()), a.getAlertType(),
+                            a.getMessage()))
+                    .collect(Collectors.toList());
 
-        FacilityMachinesResponseDto response = new FacilityMachinesResponseDto(machines, alerts);
-        return ResponseEntity.ok(response);
+            return new FacilityMachinesResponseDto(machines, alerts);
+        });
     }
 
     @GetMapping("/{facilityId}/usage-history")
@@ -6,7 +6,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import com.coffee.coffeeApp.entity.User;
+import com.coffee.coffeeApp.service.ChangeVersionTracker;
 import com.coffee.coffeeApp.service.CoffeeMachineService;
 import com.coffee.coffeeApp.dto.DashboardSummaryDto;
 import com.coffee.coffeeApp.dto.CoffeeMachineDto;
@@ -19,9 +21,12 @@ import java.util.List;
 public class FacilityUserController {
 
     private final CoffeeMachineService coffeeMachineService;
+    private final ChangeVersionTracker changeVersionTracker;
 
-    public FacilityUserController(CoffeeMachineService coffeeMachineService) {
+    public FacilityUserController(CoffeeMachineService coffeeMachineService,
+            ChangeVersionTracker changeVersionTracker) {
         this.coffeeMachineService = coffeeMachineService;
+        this.changeVersionTracker = changeVersionTracker;
     }
 
     @GetMapping("/dashboard")
@@ -35,13 +40,16 @@ public class FacilityUserController {
     }
 
     @GetMapping("/machines")
-    public ResponseEntity<List<CoffeeMachineDto>> getFacilityMachines(Authentication authentication) {
+    public ResponseEntity<List<CoffeeMachineDto>> getFacilityMachines(Authentication authentication,
+            WebRequest request) {
         User user = (User) authentication.getPrincipal();
         Integer facilityId = user.getFacility().getId();
 
+        // Same URL for every facility user, so the tag is scoped to the facility
+        String etag = changeVersionTracker.etag("f" + facilityId, ChangeVersionTracker.Kind.MACHINE);
         // Return machines only for the user's assigned facility
-        List<CoffeeMachineDto> machines = coffeeMachineService.getMachinesByFacilityId(String.valueOf(facilityId));
-        return ResponseEntity.ok(machines);
+        return ETagSupport.conditional(request, etag,
+                () -> coffeeMachineService.getMachinesByFacilityId(String.valueOf(facilityId)));
     }
 
     @GetMapping("/info")
@@ -0,0 +1,37 @@
+package com.coffee.coffeeApp.controller;
+
+import com.coffee.coffeeApp.service.DeviceTokenService;
+import com.coffee.coffeeApp.service.TelemetryIngestService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+
+// Telemetry over HTTP for sites that cannot reach the MQTT broker; authenticated by device token, not JWT
+@RestController
+@RequestMapping("/api/ingest")
+public class IngestController {
+
+    @Autowired
+    private TelemetryIngestService telemetryIngestService;
+
+    @Autowired
+    private DeviceTokenService deviceTokenService;
+
+    // Body is NDJSON: one CoffeeMachineDataDto per line, read as it streams in
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> ingest(@RequestHeader(value = "X-Device-Token", required = false) String token,
+            HttpServletRequest request) throws IOException {
+        Optional<DeviceTokenService.DeviceScope> scope = deviceTokenService.authenticate(token);
+        if (scope.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Invalid device token"));
+        }
+        return ResponseEntity.ok(telemetryIngestService.ingestNdjson(request.getInputStream(), scope.get().facilityId()));
+    }
+}
@@ -1,11 +1,19 @@
 package com.coffee.coffeeApp.controller;
 
 import com.coffee.coffeeApp.dto.UsageHistoryDto;
+import com.coffee.coffeeApp.service.ChangeVersionTracker;
 import com.coffee.coffeeApp.service.UsageHistoryService;
+import com.coffee.coffeeApp.service.ExportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
@@ -19,6 +27,12 @@ public class UsageHistoryController {
     @Autowired
     private UsageHistoryService usageHistoryService;
 
+    @Autowired
+    private ChangeVersionTracker changeVersionTracker;
+
+    @Autowired
+    private ExportService exportService;
+
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping
     public ResponseEntity<UsageHistoryDto> createUsageRecord(@Valid @RequestBody UsageHistoryDto usageDto) {
@@ -28,23 +42,22 @@ public class UsageHistoryController {
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/{id}")
-    public ResponseEntity<UsageHistoryDto> getUsageById(@PathVariable String id) {
-        return usageHistoryService.getUsageById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<UsageHistoryDto> getUsageById(@PathVariable String id, WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.USAGE);
+        return ETagSupport.conditionalOrNotFound(request, etag, () -> usageHistoryService.getUsageById(id));
     }
 
     @GetMapping
-    public ResponseEntity<List<UsageHistoryDto>> getAllUsage() {
-        List<UsageHistoryDto> usage = usageHistoryService.getAllUsage();
-        return ResponseEntity.ok(usage);
+    public ResponseEntity<List<UsageHistoryDto>> getAllUsage(WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.USAGE);
+        return ETagSupport.conditional(request, etag, usageHistoryService::getAllUsage);
     }
     
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/machine/{machineId}")
-    public ResponseEntity<List<UsageHistoryDto>> getUsageByMachine(@PathVariable String machineId) {
-        List<UsageHistoryDto> usage = usageHistoryService.getUsageByMachine(machineId);
-        return ResponseEntity.ok(usage);
+    public ResponseEntity<List<UsageHistoryDto>> getUsageByMachine(@PathVariable String machineId, WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.USAGE);
+        return ETagSupport.conditional(request, etag, () -> usageHistoryService.getUsageByMachine(machineId));
     }
     
 //    @PreAuthorize("hasRole('ADMIN')")
@@ -56,18 +69,19 @@ public class UsageHistoryController {
     
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/brew-type/{brewType}")
-    public ResponseEntity<List<UsageHistoryDto>> getUsageByBrewType(@PathVariable String brewType) {
-        List<UsageHistoryDto> usage = usageHistoryService.getUsageByBrewType(brewType);
-        return ResponseEntity.ok(usage);
+    public ResponseEntity<List<UsageHistoryDto>> getUsageByBrewType(@PathVariable String brewType, WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.USAGE);
+        return ETagSupport.conditional(request, etag, () -> usageHistoryService.getUsageByBrewType(brewType));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/date-range")
     public ResponseEntity<List<UsageHistoryDto>> getUsageByDateRange(
             @RequestParam LocalDateTime startDate,
-            @RequestParam LocalDateTime endDate) {
-        List<UsageHistoryDto> usage = usageHistoryService.getUsageByDateRange(startDate, endDate);
-        return ResponseEntity.ok(usage);
+            @RequestParam LocalDateTime endDate,
+            WebRequest request) {
+        String etag = changeVersionTracker.etag(ChangeVersionTracker.Kind.USAGE);
+        return ETagSupport.conditional(request, etag, () -> usageHistoryService.getUsageByDateRange(startDate, endDate));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -76,4 +90,25 @@ public class UsageHistoryController {
         List<UsageHistoryDto> usage = usageHistoryService.getTodayUsage();
         return ResponseEntity.ok(usage);
     }
+
+    // Streamed export for reporting: csv or ndjson, gzip by default; filters are optional
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsage(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "true") boolean gzip,
+            @RequestParam(required = false) Integer facilityId,
+            @RequestParam(required = false) Integer machineId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            NativeWebRequest request) {
+        ExportService.Format exportFormat = ExportService.parseFormat(format);
+        StreamingResponseBody body = exportService.withSlot(request,
+                out -> exportService.exportUsage(facilityId, machineId, startDate, endDate, exportFormat, gzip, out));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + ExportService.fileName("usage", exportFormat, gzip) + "\"")
+                .contentType(MediaType.parseMediaType(ExportService.contentType(exportFormat, gzip)))
+                .body(body);
+    }
 }
\ No newline at end of file
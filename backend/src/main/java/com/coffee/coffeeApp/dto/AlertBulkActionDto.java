@@ -0,0 +1,74 @@
+package com.coffee.coffeeApp.dto;
+
+import jakarta.validation.constraints.*;
+import java.util.List;
+
+// Selects alerts for a bulk acknowledge/resolve: either explicit ids or any combination of the filters
+public class AlertBulkActionDto {
+    
+    @Size(max = 1000, message = "At most 1000 alert IDs per request")
+    private List<String> ids;
+    
+    private String machineId;
+    
+    private String facilityId;
+    
+    @Pattern(regexp = "LOW_WATER|LOW_MILK|LOW_BEANS|MALFUNCTION|OFFLINE|EMERGENCY|MAINTENANCE|TEMPERATURE", 
+             message = "Invalid alert type")
+    private String alertType;
+    
+    @Min(value = 0, message = "Age must not be negative")
+    private Integer olderThanHours;
+    
+    // Constructors
+    public AlertBulkActionDto() {}
+    
+    // Getters and Setters
+    public List<String> getIds() {
+        return ids;
+    }
+    
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+    
+    public String getMachineId() {
+        return machineId;
+    }
+    
+    public void setMachineId(String machineId) {
+        this.machineId = machineId;
+    }
+    
+    public String getFacilityId() {
+        return facilityId;
+    }
+    
+    public void setFacilityId(String facilityId) {
+        this.facilityId = facilityId;
+    }
+    
+    public String getAlertType() {
+        return alertType;
+    }
+    
+    public void setAlertType(String alertType) {
+        this.alertType = alertType;
+    }
+    
+    public Integer getOlderThanHours() {
+        return olderThanHours;
+    }
+    
+    public void setOlderThanHours(Integer olderThanHours) {
+        this.olderThanHours = olderThanHours;
+    }
+    
+    public boolean hasIds() {
+        return ids != null && !ids.isEmpty();
+    }
+    
+    public boolean hasFilter() {
+        return machineId != null || facilityId != null || alertType != null || olderThanHours != null;
+    }
+}
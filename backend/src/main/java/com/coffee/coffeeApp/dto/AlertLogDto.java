@@ -36,6 +36,7 @@ public class AlertLogDto {
     private String severity; // CRITICAL, HIGH, MEDIUM, LOW
     private String category; // SUPPLY, TECHNICAL, MAINTENANCE
     private Boolean isResolved;
+    private Boolean isAcknowledged;
     private Boolean requiresImmediateAttention;
     
     // Constructors
@@ -247,6 +248,14 @@ public class AlertLogDto {
         this.isResolved = isResolved;
     }
     
+    public Boolean getIsAcknowledged() {
+        return isAcknowledged;
+    }
+    
+    public void setIsAcknowledged(Boolean isAcknowledged) {
+        this.isAcknowledged = isAcknowledged;
+    }
+    
     public Boolean getRequiresImmediateAttention() {
         return requiresImmediateAttention;
     }
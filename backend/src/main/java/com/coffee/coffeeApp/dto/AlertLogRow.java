@@ -0,0 +1,27 @@
+package com.coffee.coffeeApp.dto;
+
+import java.time.LocalDateTime;
+
+// Read-only alert row selected with a JPQL constructor expression (no managed entity)
+public record AlertLogRow(Integer id, Integer machineId, String alertType, String message, LocalDateTime timestamp,
+        Boolean isActive, Boolean isAcknowledged, LocalDateTime creationDate, LocalDateTime lastUpdate) {
+
+    public static final String SELECT = "SELECT new com.coffee.coffeeApp.dto.AlertLogRow(al.id, al.machineId, "
+            + "al.alertType, al.message, al.timestamp, al.isActive, al.isAcknowledged, al.creationDate, al.lastUpdate) "
+            + "FROM AlertLog al ";
+
+    public AlertLogDto toDto() {
+        AlertLogDto dto = new AlertLogDto();
+        dto.setId(String.valueOf(id));
+        dto.setMachineId(String.valueOf(machineId));
+        dto.setAlertType(alertType);
+        dto.setMessage(message);
+        dto.setTimestamp(timestamp);
+        dto.setIsActive(isActive);
+        dto.setCreationDate(creationDate);
+        dto.setLastUpdate(lastUpdate);
+        dto.setIsResolved(!isActive);
+        dto.setIsAcknowledged(isAcknowledged);
+        return dto;
+    }
+}
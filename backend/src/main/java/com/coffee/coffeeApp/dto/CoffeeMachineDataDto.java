@@ -9,14 +9,20 @@ import lombok.Data;
 public class CoffeeMachineDataDto {
 	private Integer machineId;
 	private Integer facilityId;
+	// Sparse messages send only what changed: null means "not in this message", never 0
 	private String status;
-	private float temperature;
-	private float waterLevel;
-	private float milkLevel;
-	private float beansLevel;
-	private float sugarLevel;
+	private Float temperature;
+	private Float waterLevel;
+	private Float milkLevel;
+	private Float beansLevel;
+	private Float sugarLevel;
 	private String BrewType;
+	// Id of the BREW command this brew answered (only alongside brewType)
+	private String commandId;
 	private LocalDateTime timeStamp;
+	// Publisher start time and per-machine counter, used to drop QoS 1 redeliveries (optional)
+	private Long epoch;
+	private Long seq;
 	
 	
 	public Integer getFacilityId() {
@@ -37,34 +43,34 @@ public class CoffeeMachineDataDto {
 	public void setStatus(String status) {
 		this.status = status;
 	}
-	public float getTemperature() {
+	public Float getTemperature() {
 		return temperature;
 	}
-	public void setTemperature(float temperature) {
+	public void setTemperature(Float temperature) {
 		this.temperature = temperature;
 	}
-	public float getWaterLevel() {
+	public Float getWaterLevel() {
 		return waterLevel;
 	}
-	public void setWaterLevel(float waterLevel) {
+	public void setWaterLevel(Float waterLevel) {
 		this.waterLevel = waterLevel;
 	}
-	public float getMilkLevel() {
+	public Float getMilkLevel() {
 		return milkLevel;
 	}
-	public void setMilkLevel(float milkLevel) {
+	public void setMilkLevel(Float milkLevel) {
 		this.milkLevel = milkLevel;
 	}
-	public float getBeansLevel() {
+	public Float getBeansLevel() {
 		return beansLevel;
 	}
-	public void setBeansLevel(float beansLevel) {
+	public void setBeansLevel(Float beansLevel) {
 		this.beansLevel = beansLevel;
 	}
-	public float getSugarLevel() {
+	public Float getSugarLevel() {
 		return sugarLevel;
 	}
-	public void setSugarLevel(Integer sugarLevel) {
+	public void setSugarLevel(Float sugarLevel) {
 		this.sugarLevel = sugarLevel;
 	}
 	public String getBrewType() {
@@ -73,6 +79,12 @@ public class CoffeeMachineDataDto {
 	public void setBrewType(String brewType) {
 		BrewType = brewType;
 	}
+	public String getCommandId() {
+		return commandId;
+	}
+	public void setCommandId(String commandId) {
+		this.commandId = commandId;
+	}
 	public LocalDateTime getTimeStamp() {
 		return timeStamp;
 	}
@@ -80,14 +92,27 @@ public class CoffeeMachineDataDto {
 		this.timeStamp = timeStamp;
 	}
 	
+	public Long getEpoch() {
+		return epoch;
+	}
+	public void setEpoch(Long epoch) {
+		this.epoch = epoch;
+	}
+	public Long getSeq() {
+		return seq;
+	}
+	public void setSeq(Long seq) {
+		this.seq = seq;
+	}
+	
 	// Handle both "timestamp" and "timeStamp" from JSON
 	@JsonProperty("timestamp")
 	public void setTimestamp(LocalDateTime timestamp) {
 		this.timeStamp = timestamp;
 	}
 	
-	public CoffeeMachineDataDto(Integer id, Integer machineId, String status, float temperature, float waterLevel, float milkLevel,
-			float beansLevel, float sugarLevel, String brewType, LocalDateTime timeStamp) {
+	public CoffeeMachineDataDto(Integer id, Integer machineId, String status, Float temperature, Float waterLevel, Float milkLevel,
+			Float beansLevel, Float sugarLevel, String brewType, LocalDateTime timeStamp) {
 		super();
 		this.machineId = machineId;
 		this.status = status;
@@ -109,7 +134,8 @@ public class CoffeeMachineDataDto {
 		return "CoffeeMachineDataDto [machineId=" + machineId + ", facilityId=" + facilityId + ", status=" + status
 				+ ", temperature=" + temperature + ", waterLevel=" + waterLevel + ", milkLevel=" + milkLevel
 				+ ", beansLevel=" + beansLevel + ", sugarLevel=" + sugarLevel + ", BrewType=" + BrewType
-				+ ", timeStamp=" + timeStamp + "]";
+				+ ", commandId=" + commandId
+				+ ", timeStamp=" + timeStamp + ", epoch=" + epoch + ", seq=" + seq + "]";
 	}
 	
 }
@@ -0,0 +1,40 @@
+package com.coffee.coffeeApp.dto;
+
+import java.time.LocalDateTime;
+
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+
+// Read-only machine row selected with a JPQL constructor expression (no managed entity)
+public record CoffeeMachineRow(Integer id, Integer facilityId, String status, Float temperature, Float waterLevel,
+        Float milkLevel, Float beansLevel, Float sugarLevel, Boolean isActive, LocalDateTime creationDate,
+        LocalDateTime lastUpdate) {
+
+    // Metadata from CoffeeMachine, telemetry from its machine_state row; lastUpdate is whichever changed last
+    public static final String SELECT = "SELECT new com.coffee.coffeeApp.dto.CoffeeMachineRow(cm.id, cm.facilityId, "
+            + "cm.status, ms.temperature, ms.waterLevel, ms.milkLevel, ms.beansLevel, ms.sugarLevel, cm.isActive, "
+            + "cm.creationDate, CASE WHEN ms.lastUpdate > cm.lastUpdate THEN ms.lastUpdate ELSE cm.lastUpdate END) "
+            + "FROM CoffeeMachine cm JOIN cm.state ms ";
+
+    public CoffeeMachineDto toDto() {
+        boolean lowSupplies = CoffeeMachine.isLowLevel(waterLevel) || CoffeeMachine.isLowLevel(milkLevel)
+                || CoffeeMachine.isLowLevel(beansLevel) || CoffeeMachine.isLowLevel(sugarLevel);
+
+        CoffeeMachineDto dto = new CoffeeMachineDto();
+        dto.setId(String.valueOf(id));
+        dto.setFacilityId(String.valueOf(facilityId));
+        dto.setStatus(status);
+        dto.setTemperature(temperature);
+        dto.setWaterLevel(waterLevel);
+        dto.setMilkLevel(milkLevel);
+        dto.setBeansLevel(beansLevel);
+        dto.setIsActive(isActive);
+        dto.setCreationDate(creationDate);
+        dto.setLastUpdate(lastUpdate);
+        dto.setIsOperational(CoffeeMachine.isRunningStatus(status) && isActive && !lowSupplies);
+        dto.setHasLowSupplies(lowSupplies);
+        dto.setHasLowWater(CoffeeMachine.isLowLevel(waterLevel));
+        dto.setHasLowMilk(CoffeeMachine.isLowLevel(milkLevel));
+        dto.setHasLowBeans(CoffeeMachine.isLowLevel(beansLevel));
+        return dto;
+    }
+}
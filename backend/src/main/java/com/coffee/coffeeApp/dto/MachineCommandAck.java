@@ -0,0 +1,6 @@
+package com.coffee.coffeeApp.dto;
+
+// A machine's answer to a brew/status command, from the MQTT ack topic or the gRPC command channel
+public record MachineCommandAck(String commandId, Integer machineId, boolean success, String message,
+        String transport) {
+}
@@ -0,0 +1,27 @@
+package com.coffee.coffeeApp.dto;
+
+import java.time.LocalDateTime;
+
+// Latest telemetry as received from MQTT, whether or not the deadband persisted it
+public record MachineLiveReading(Integer machineId, Integer facilityId, String status, Float temperature,
+        Float waterLevel, Float milkLevel, Float beansLevel, Float sugarLevel, String brewType,
+        LocalDateTime timeStamp, LocalDateTime receivedAt) {
+
+    // Fields missing from a sparse message keep their previous value
+    public static MachineLiveReading of(CoffeeMachineDataDto dto, MachineLiveReading previous) {
+        if (previous == null) {
+            return new MachineLiveReading(dto.getMachineId(), dto.getFacilityId(), dto.getStatus(),
+                    dto.getTemperature(), dto.getWaterLevel(), dto.getMilkLevel(), dto.getBeansLevel(),
+                    dto.getSugarLevel(), dto.getBrewType(), dto.getTimeStamp(), LocalDateTime.now());
+        }
+        return new MachineLiveReading(dto.getMachineId(), or(dto.getFacilityId(), previous.facilityId),
+                or(dto.getStatus(), previous.status), or(dto.getTemperature(), previous.temperature),
+                or(dto.getWaterLevel(), previous.waterLevel), or(dto.getMilkLevel(), previous.milkLevel),
+                or(dto.getBeansLevel(), previous.beansLevel), or(dto.getSugarLevel(), previous.sugarLevel),
+                dto.getBrewType(), or(dto.getTimeStamp(), previous.timeStamp), LocalDateTime.now());
+    }
+
+    private static <T> T or(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+}
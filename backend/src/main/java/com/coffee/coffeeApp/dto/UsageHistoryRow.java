@@ -0,0 +1,23 @@
+package com.coffee.coffeeApp.dto;
+
+import java.time.LocalDateTime;
+
+// Read-only usage row selected with a JPQL constructor expression (no managed entity)
+public record UsageHistoryRow(Integer id, Integer machineId, LocalDateTime timestamp, String brewType,
+        Boolean isActive, LocalDateTime creationDate, LocalDateTime lastUpdate) {
+
+    public static final String SELECT = "SELECT new com.coffee.coffeeApp.dto.UsageHistoryRow(uh.id, uh.machineId, "
+            + "uh.timestamp, uh.brewType, uh.isActive, uh.creationDate, uh.lastUpdate) FROM UsageHistory uh ";
+
+    public UsageHistoryDto toDto() {
+        UsageHistoryDto dto = new UsageHistoryDto();
+        dto.setId(String.valueOf(id));
+        dto.setMachineId(String.valueOf(machineId));
+        dto.setTimestamp(timestamp);
+        dto.setBrewType(brewType);
+        dto.setIsActive(isActive);
+        dto.setCreationDate(creationDate);
+        dto.setLastUpdate(lastUpdate);
+        return dto;
+    }
+}
@@ -6,14 +6,19 @@ import jakarta.validation.constraints.NotNull;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import com.coffee.coffeeApp.service.ChangeVersionListener;
+
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "AlertLog")
+@EntityListeners(ChangeVersionListener.class)
 public class AlertLog {
 
+    // Pooled sequence ids: alerts raised during one ingest batch are inserted as one JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "alert_log_seq")
+    @SequenceGenerator(name = "alert_log_seq", sequenceName = "alert_log_seq", allocationSize = 50)
     @Column(name = "id")
     private Integer id;
 
@@ -3,20 +3,27 @@ package com.coffee.coffeeApp.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.DecimalMax;
-import jakarta.validation.constraints.DecimalMin;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import com.coffee.coffeeApp.service.ChangeVersionListener;
+
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Table(name = "CoffeeMachine")
+@EntityListeners(ChangeVersionListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "coffeeMachine")
 public class CoffeeMachine {
     
+    // Sequence id, known at persist time, so the machine_state row can share it without a round trip
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coffee_machine_seq")
+    @SequenceGenerator(name = "coffee_machine_seq", sequenceName = "coffee_machine_seq", allocationSize = 50)
     @Column(name = "id")
     private Integer id;
     
@@ -32,31 +39,6 @@ public class CoffeeMachine {
     @Column(name = "status", nullable = false)
     private String status; // ON/OFF
     
-    @DecimalMin(value = "0.0", message = "Temperature must be positive")
-    @DecimalMax(value = "200.0", message = "Temperature must be reasonable")
-    @Column(name = "temperature")
-    private Float temperature;
-    
-    @DecimalMin(value = "0.0", message = "Water level must be between 0 and 100")
-    @DecimalMax(value = "100.0", message = "Water level must be between 0 and 100")
-    @Column(name = "waterLevel")
-    private Float waterLevel;
-    
-    @DecimalMin(value = "0.0", message = "Sugar level must be between 0 and 100")
-    @DecimalMax(value = "100.0", message = "Sugar level must be between 0 and 100")
-    @Column(name = "sugarLevel")
-    private Float sugarLevel;
-    
-    @DecimalMin(value = "0.0", message = "Milk level must be between 0 and 100")
-    @DecimalMax(value = "100.0", message = "Milk level must be between 0 and 100")
-    @Column(name = "milkLevel")
-    private Float milkLevel;
-    
-    @DecimalMin(value = "0.0", message = "Beans level must be between 0 and 100")
-    @DecimalMax(value = "100.0", message = "Beans level must be between 0 and 100")
-    @Column(name = "beansLevel")
-    private Float beansLevel;
-    
     @NotNull(message = "Active status is required")
     @Column(name = "isActive", nullable = false)
     private Boolean isActive = true;
@@ -82,6 +64,10 @@ public class CoffeeMachine {
     @OneToMany(mappedBy = "coffeeMachine", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     private List<AlertLog> alertLogs;
     
+    // Temperature and supply levels live in their own row; loaded with the machine
+    @OneToOne(mappedBy = "machine", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    private MachineState state = new MachineState(this);
+    
     // Constructors
     public CoffeeMachine() {}
     
@@ -91,44 +77,48 @@ public class CoffeeMachine {
         this.status = status;
         this.isActive = true;
         // Initialize levels to 100%
-        this.waterLevel = 100.0f;
-        this.milkLevel = 100.0f;
-        this.beansLevel = 100.0f;
-        this.sugarLevel = 100.0f;
-        this.temperature = 0.0f;
+        state.setWaterLevel(100.0f);
+        state.setMilkLevel(100.0f);
+        state.setBeansLevel(100.0f);
+        state.setSugarLevel(100.0f);
+        state.setTemperature(0.0f);
     }
     
     CoffeeMachine(int id, String status, String isActive, float sugarLevel, float waterLevel, float milkLevel, float beansLevel, float temperature){
     	this.id = id;
         this.status = status;
         this.isActive = true;
-        this.sugarLevel = sugarLevel;
-        this.waterLevel = waterLevel;
-        this.milkLevel = milkLevel;
-        this.beansLevel = beansLevel;
-        this.sugarLevel = sugarLevel;
-        this.temperature = temperature;
+        state.setSugarLevel(sugarLevel);
+        state.setWaterLevel(waterLevel);
+        state.setMilkLevel(milkLevel);
+        state.setBeansLevel(beansLevel);
+        state.setTemperature(temperature);
     }
     
     // Business Logic Methods
+    // Also used by read-only projections (CoffeeMachineRow)
+    public static boolean isLowLevel(Float level) {
+        return level != null && level < 20.0f;
+    }
+    
     public boolean isLowWaterLevel() {
-        return waterLevel != null && waterLevel < 20.0f;
+        return isLowLevel(state.getWaterLevel());
     }
     
     public boolean isLowSugarLevel() {
-        return sugarLevel != null && sugarLevel < 20.0f;
+        return isLowLevel(state.getSugarLevel());
     }
     
     public boolean isLowMilkLevel() {
-        return milkLevel != null && milkLevel < 20.0f;
+        return isLowLevel(state.getMilkLevel());
     }
     
     public boolean isLowBeansLevel() {
-        return beansLevel != null && beansLevel < 20.0f;
+        return isLowLevel(state.getBeansLevel());
     }
     
     public boolean isHighTemperature() {
-    	return temperature != null && temperature >140;
+    	return state.getTemperature() != null && state.getTemperature() >140;
     }
     
     public boolean hasLowSupplies() {
@@ -136,7 +126,12 @@ public class CoffeeMachine {
     }
     
     public boolean isOperational() {
-        return !("OFF".equalsIgnoreCase(status)) && isActive && !hasLowSupplies();
+        return isRunningStatus(status) && isActive && !hasLowSupplies();
+    }
+    
+    // OFF is set by a technician, OFFLINE by the heartbeat tracker when telemetry stops
+    public static boolean isRunningStatus(String status) {
+        return !"OFF".equalsIgnoreCase(status) && !"OFFLINE".equalsIgnoreCase(status);
     }
     
     // Getters and Setters
@@ -173,43 +168,43 @@ public class CoffeeMachine {
     }
     
     public Float getSugarLevel() {
-    	return sugarLevel;
+    	return state.getSugarLevel();
     }
     
     public void setSugarLevel(float sugarLevel) {
-    	this.sugarLevel = sugarLevel;
+    	state.setSugarLevel(sugarLevel);
     }
     
     public Float getTemperature() {
-        return temperature;
+        return state.getTemperature();
     }
     
     public void setTemperature(Float temperature) {
-        this.temperature = temperature;
+        state.setTemperature(temperature);
     }
     
     public Float getWaterLevel() {
-        return waterLevel;
+        return state.getWaterLevel();
     }
     
     public void setWaterLevel(Float waterLevel) {
-        this.waterLevel = waterLevel;
+        state.setWaterLevel(waterLevel);
     }
     
     public Float getMilkLevel() {
-        return milkLevel;
+        return state.getMilkLevel();
     }
     
     public void setMilkLevel(Float milkLevel) {
-        this.milkLevel = milkLevel;
+        state.setMilkLevel(milkLevel);
     }
     
     public Float getBeansLevel() {
-        return beansLevel;
+        return state.getBeansLevel();
     }
     
     public void setBeansLevel(Float beansLevel) {
-        this.beansLevel = beansLevel;
+        state.setBeansLevel(beansLevel);
     }
     
     public Boolean getIsActive() {
@@ -244,6 +239,14 @@ public class CoffeeMachine {
         this.facility = facility;
     }
     
+    public MachineState getState() {
+        return state;
+    }
+    
+    public void setState(MachineState state) {
+        this.state = state;
+    }
+    
     public List<UsageHistory> getUsageHistories() {
         return usageHistories;
     }
@@ -266,10 +269,10 @@ public class CoffeeMachine {
                 "id='" + id + '\'' +
                 ", facilityId='" + facilityId + '\'' +
                 ", status='" + status + '\'' +
-                ", temperature=" + temperature +
-                ", waterLevel=" + waterLevel +
-                ", milkLevel=" + milkLevel +
-                ", beansLevel=" + beansLevel +
+                ", temperature=" + state.getTemperature() +
+                ", waterLevel=" + state.getWaterLevel() +
+                ", milkLevel=" + state.getMilkLevel() +
+                ", beansLevel=" + state.getBeansLevel() +
                 ", isActive=" + isActive +
                 ", creationDate=" + creationDate +
                 ", lastUpdate=" + lastUpdate +
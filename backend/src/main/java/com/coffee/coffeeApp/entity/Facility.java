@@ -3,14 +3,21 @@ package com.coffee.coffeeApp.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import com.coffee.coffeeApp.service.ChangeVersionListener;
+
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Table(name = "Facility")
+@EntityListeners(ChangeVersionListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "facility")
 public class Facility {
     
     @Id
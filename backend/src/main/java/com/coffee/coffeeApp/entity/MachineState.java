@@ -0,0 +1,146 @@
+package com.coffee.coffeeApp.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import com.coffee.coffeeApp.service.ChangeVersionListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * The fast-changing half of a coffee machine: temperature and supply levels,
+ * rewritten by every telemetry reading. Kept in its own narrow row keyed by the
+ * machine id so that telemetry updates touch only these columns and the
+ * CoffeeMachine row (name, facility, status) stays stable and cacheable.
+ * Telemetry writes it with a direct UPDATE (MachineStateRepository); manual
+ * refills and brews go through the entity.
+ */
+@Entity
+@Table(name = "machine_state")
+@EntityListeners(ChangeVersionListener.class)
+public class MachineState {
+
+    @Id
+    @Column(name = "machineId")
+    private Integer machineId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "machineId")
+    private CoffeeMachine machine;
+
+    @DecimalMin(value = "0.0", message = "Temperature must be positive")
+    @DecimalMax(value = "200.0", message = "Temperature must be reasonable")
+    @Column(name = "temperature")
+    private Float temperature;
+
+    @DecimalMin(value = "0.0", message = "Water level must be between 0 and 100")
+    @DecimalMax(value = "100.0", message = "Water level must be between 0 and 100")
+    @Column(name = "waterLevel")
+    private Float waterLevel;
+
+    @DecimalMin(value = "0.0", message = "Sugar level must be between 0 and 100")
+    @DecimalMax(value = "100.0", message = "Sugar level must be between 0 and 100")
+    @Column(name = "sugarLevel")
+    private Float sugarLevel;
+
+    @DecimalMin(value = "0.0", message = "Milk level must be between 0 and 100")
+    @DecimalMax(value = "100.0", message = "Milk level must be between 0 and 100")
+    @Column(name = "milkLevel")
+    private Float milkLevel;
+
+    @DecimalMin(value = "0.0", message = "Beans level must be between 0 and 100")
+    @DecimalMax(value = "100.0", message = "Beans level must be between 0 and 100")
+    @Column(name = "beansLevel")
+    private Float beansLevel;
+
+    @UpdateTimestamp
+    @Column(name = "lastUpdate", nullable = false)
+    private LocalDateTime lastUpdate;
+
+    // Constructors
+    public MachineState() {}
+
+    public MachineState(CoffeeMachine machine) {
+        this.machine = machine;
+    }
+
+    // Applies a sparse reading as MachineStateRepository.applyTelemetry does; absent fields keep their value
+    public void applyReading(Float temperature, Float waterLevel, Float milkLevel, Float beansLevel,
+            Float sugarLevel, LocalDateTime at) {
+        if (temperature != null)
+            this.temperature = temperature;
+        if (waterLevel != null)
+            this.waterLevel = waterLevel;
+        if (milkLevel != null)
+            this.milkLevel = milkLevel;
+        if (beansLevel != null)
+            this.beansLevel = beansLevel;
+        if (sugarLevel != null)
+            this.sugarLevel = sugarLevel;
+        this.lastUpdate = at;
+    }
+
+    // Getters and Setters
+    public Integer getMachineId() {
+        return machineId;
+    }
+
+    public CoffeeMachine getMachine() {
+        return machine;
+    }
+
+    public void setMachine(CoffeeMachine machine) {
+        this.machine = machine;
+    }
+
+    public Float getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(Float temperature) {
+        this.temperature = temperature;
+    }
+
+    public Float getWaterLevel() {
+        return waterLevel;
+    }
+
+    public void setWaterLevel(Float waterLevel) {
+        this.waterLevel = waterLevel;
+    }
+
+    public Float getSugarLevel() {
+        return sugarLevel;
+    }
+
+    public void setSugarLevel(Float sugarLevel) {
+        this.sugarLevel = sugarLevel;
+    }
+
+    public Float getMilkLevel() {
+        return milkLevel;
+    }
+
+    public void setMilkLevel(Float milkLevel) {
+        this.milkLevel = milkLevel;
+    }
+
+    public Float getBeansLevel() {
+        return beansLevel;
+    }
+
+    public void setBeansLevel(Float beansLevel) {
+        this.beansLevel = beansLevel;
+    }
+
+    public LocalDateTime getLastUpdate() {
+        return lastUpdate;
+    }
+
+    public void setLastUpdate(LocalDateTime lastUpdate) {
+        this.lastUpdate = lastUpdate;
+    }
+}
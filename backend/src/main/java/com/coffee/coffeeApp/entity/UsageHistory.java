@@ -6,14 +6,19 @@ import jakarta.validation.constraints.NotNull;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
+import com.coffee.coffeeApp.service.ChangeVersionListener;
+
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "UsageHistory")
+@EntityListeners(ChangeVersionListener.class)
 public class UsageHistory {
     
+    // Sequence ids (fetched 50 at a time, pooled-lo) let Hibernate batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usage_history_seq")
+    @SequenceGenerator(name = "usage_history_seq", sequenceName = "usage_history_seq", allocationSize = 50)
     @Column(name = "id")
     private Integer id;
     
@@ -1,13 +1,19 @@
 package com.coffee.coffeeApp.repository;
 
+import com.coffee.coffeeApp.dto.AlertLogRow;
 import com.coffee.coffeeApp.entity.AlertLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AlertLogRepository extends JpaRepository<AlertLog, Integer> {
@@ -42,6 +48,38 @@ public interface AlertLogRepository extends JpaRepository<AlertLog, Integer> {
     @Query("SELECT al FROM AlertLog al WHERE al.timestamp >= :since AND al.isActive = true ORDER BY al.timestamp DESC")
     List<AlertLog> findRecentAlerts(@Param("since") LocalDateTime since);
     
+    // List projections: select the columns straight into rows, no managed entities
+    @Query(AlertLogRow.SELECT + "WHERE al.isActive = true ORDER BY al.timestamp DESC")
+    List<AlertLogRow> findActiveRows();
+    
+    @Query(AlertLogRow.SELECT + "WHERE al.machineId = :machineId AND al.isActive = true ORDER BY al.timestamp DESC")
+    List<AlertLogRow> findActiveRowsByMachineId(@Param("machineId") Integer machineId);
+    
+    @Query(AlertLogRow.SELECT + "WHERE al.alertType = :alertType AND al.isActive = true ORDER BY al.timestamp DESC")
+    List<AlertLogRow> findActiveRowsByAlertType(@Param("alertType") String alertType);
+    
+    @Query(AlertLogRow.SELECT + "WHERE al.timestamp >= :since AND al.isActive = true ORDER BY al.timestamp DESC")
+    List<AlertLogRow> findRecentRows(@Param("since") LocalDateTime since);
+    
+    // Export: forward-only cursor over matching alerts, resolved ones included (null filter = any)
+    @QueryHints({ @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+                  @QueryHint(name = "org.hibernate.readOnly", value = "true") })
+    @Query(AlertLogRow.SELECT + "WHERE (:machineId IS NULL OR al.machineId = :machineId) " +
+           "AND (:facilityId IS NULL OR al.facilityId = :facilityId) " +
+           "AND (:startDate IS NULL OR al.timestamp >= :startDate) " +
+           "AND (:endDate IS NULL OR al.timestamp < :endDate) ORDER BY al.timestamp")
+    Stream<AlertLogRow> streamForExport(@Param("facilityId") Integer facilityId,
+                                        @Param("machineId") Integer machineId,
+                                        @Param("startDate") LocalDateTime startDate,
+                                        @Param("endDate") LocalDateTime endDate);
+    
+    // Change feed: current state of specific alerts, or of everything touched since a point in time
+    @Query(AlertLogRow.SELECT + "WHERE al.id IN :ids ORDER BY al.timestamp DESC")
+    List<AlertLogRow> findRowsByIdIn(@Param("ids") Collection<Integer> ids);
+    
+    @Query(AlertLogRow.SELECT + "WHERE al.lastUpdate >= :since ORDER BY al.timestamp DESC")
+    List<AlertLogRow> findRowsUpdatedSince(@Param("since") LocalDateTime since);
+    
     // Find critical alerts (malfunction, emergency, etc.)
     @Query("SELECT al FROM AlertLog al WHERE al.alertType IN ('MALFUNCTION', 'EMERGENCY', 'OFFLINE') " +
            "AND al.isActive = true ORDER BY al.timestamp DESC")
@@ -149,11 +187,38 @@ public interface AlertLogRepository extends JpaRepository<AlertLog, Integer> {
     Object[] getAlertSummary(@Param("today") LocalDateTime today);
     
     // Soft delete alert
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Query("UPDATE AlertLog al SET al.isActive = false, al.lastUpdate = CURRENT_TIMESTAMP WHERE al.id = :alertId")
     void softDeleteAlert(@Param("alertId") Integer alertId);
     
     // Mark alerts as resolved (soft delete all alerts of specific type for a machine)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AlertLog al SET al.isActive = false, al.lastUpdate = CURRENT_TIMESTAMP " +
+           "WHERE al.machineId = :machineId AND al.alertType = :alertType AND al.isActive = true")
+    int resolveAlertsByMachineAndType(@Param("machineId") Integer machineId, @Param("alertType") String alertType);
+    
+    // Bulk selection: ids of active alerts matching the given filters (null = any)
+    @Query("SELECT al.id FROM AlertLog al WHERE al.isActive = true " +
+           "AND (:machineId IS NULL OR al.machineId = :machineId) " +
+           "AND (:facilityId IS NULL OR al.facilityId = :facilityId) " +
+           "AND (:alertType IS NULL OR al.alertType = :alertType) " +
+           "AND (:before IS NULL OR al.timestamp < :before)")
+    List<Integer> findActiveIdsMatching(@Param("machineId") Integer machineId,
+                                        @Param("facilityId") Integer facilityId,
+                                        @Param("alertType") String alertType,
+                                        @Param("before") LocalDateTime before);
+    
+    @Query("SELECT al.id FROM AlertLog al WHERE al.isActive = true AND al.id IN :ids")
+    List<Integer> findActiveIdsIn(@Param("ids") Collection<Integer> ids);
+    
+    // Bulk acknowledge/resolve: one UPDATE per batch of ids, returns rows changed
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE AlertLog al SET al.isAcknowledged = true, al.lastUpdate = CURRENT_TIMESTAMP " +
+           "WHERE al.id IN :ids AND al.isActive = true AND al.isAcknowledged = false")
+    int acknowledgeAlerts(@Param("ids") Collection<Integer> ids);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
     @Query("UPDATE AlertLog al SET al.isActive = false, al.lastUpdate = CURRENT_TIMESTAMP " +
-           "WHERE al.machineId = :machineId AND al.alertType = :alertType")
-    void resolveAlertsByMachineAndType(@Param("machineId") Integer machineId, @Param("alertType") String alertType);
+           "WHERE al.id IN :ids AND al.isActive = true")
+    int resolveAlerts(@Param("ids") Collection<Integer> ids);
 }
\ No newline at end of file
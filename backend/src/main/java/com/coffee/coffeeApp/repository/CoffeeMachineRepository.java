@@ -1,59 +1,88 @@
 package com.coffee.coffeeApp.repository;
 
+import com.coffee.coffeeApp.dto.CoffeeMachineRow;
 import com.coffee.coffeeApp.entity.CoffeeMachine;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CoffeeMachineRepository extends JpaRepository<CoffeeMachine, Integer> {
     
+    // Entity lists fetch the machine_state row in the same select instead of one query per machine
+    @Override
+    @EntityGraph(attributePaths = "state")
+    List<CoffeeMachine> findAllById(Iterable<Integer> ids);
+    
     // Find active machines
+    @EntityGraph(attributePaths = "state")
     List<CoffeeMachine> findByIsActiveTrue();
     
     // Find machines by facility
+    @EntityGraph(attributePaths = "state")
     List<CoffeeMachine> findByFacilityIdAndIsActiveTrue(Integer facilityId);
     
     // Find machines by status
+    @EntityGraph(attributePaths = "state")
     List<CoffeeMachine> findByStatusAndIsActiveTrue(String status);
     
+    // List projections: select the columns straight into rows, no managed entities
+    @Query(CoffeeMachineRow.SELECT + "WHERE cm.isActive = true")
+    List<CoffeeMachineRow> findActiveRows();
+    
+    @Query(CoffeeMachineRow.SELECT + "WHERE cm.facilityId = :facilityId AND cm.isActive = true")
+    List<CoffeeMachineRow> findActiveRowsByFacilityId(@Param("facilityId") Integer facilityId);
+    
+    @Query(CoffeeMachineRow.SELECT + "WHERE cm.status = :status AND cm.isActive = true")
+    List<CoffeeMachineRow> findActiveRowsByStatus(@Param("status") String status);
+    
+    // Change feed: current state of specific machines, or of everything touched since a point in time
+    @Query(CoffeeMachineRow.SELECT + "WHERE cm.id IN :ids")
+    List<CoffeeMachineRow> findRowsByIdIn(@Param("ids") Collection<Integer> ids);
+    
+    @Query(CoffeeMachineRow.SELECT + "WHERE cm.lastUpdate >= :since OR ms.lastUpdate >= :since")
+    List<CoffeeMachineRow> findRowsUpdatedSince(@Param("since") LocalDateTime since);
+    
     // Find machines by facility and status
+    @EntityGraph(attributePaths = "state")
     List<CoffeeMachine> findByFacilityIdAndStatusAndIsActiveTrue(Integer facilityId, String status);
     
     // Find machines with low water level
-    @Query("SELECT cm FROM CoffeeMachine cm WHERE cm.waterLevel < :threshold AND cm.isActive = true")
+    @Query("SELECT cm FROM CoffeeMachine cm JOIN FETCH cm.state ms WHERE ms.waterLevel < :threshold AND cm.isActive = true")
     List<CoffeeMachine> findMachinesWithLowWater(@Param("threshold") Float threshold);
     
     // Find machines with low milk level
-    @Query("SELECT cm FROM CoffeeMachine cm WHERE cm.milkLevel < :threshold AND cm.isActive = true")
+    @Query("SELECT cm FROM CoffeeMachine cm JOIN FETCH cm.state ms WHERE ms.milkLevel < :threshold AND cm.isActive = true")
     List<CoffeeMachine> findMachinesWithLowMilk(@Param("threshold") Float threshold);
     
     // Find machines with low beans level
-    @Query("SELECT cm FROM CoffeeMachine cm WHERE cm.beansLevel < :threshold AND cm.isActive = true")
+    @Query("SELECT cm FROM CoffeeMachine cm JOIN FETCH cm.state ms WHERE ms.beansLevel < :threshold AND cm.isActive = true")
     List<CoffeeMachine> findMachinesWithLowBeans(@Param("threshold") Float threshold);
     
     // Find machines with any low supplies (water, milk, or beans < 20%)
-    @Query("SELECT cm FROM CoffeeMachine cm WHERE cm.isActive = true AND " +
-           "(cm.waterLevel < 20.0 OR cm.milkLevel < 20.0 OR cm.beansLevel < 20.0)")
+    @Query("SELECT cm FROM CoffeeMachine cm JOIN FETCH cm.state ms WHERE cm.isActive = true AND " +
+           "(ms.waterLevel < 20.0 OR ms.milkLevel < 20.0 OR ms.beansLevel < 20.0)")
     List<CoffeeMachine> findMachinesWithLowSupplies();
     
     // Find machines with critical supplies (< 10%)
-    @Query("SELECT cm FROM CoffeeMachine cm WHERE cm.isActive = true AND " +
-           "(cm.waterLevel < 10.0 OR cm.milkLevel < 10.0 OR cm.beansLevel < 10.0)")
+    @Query("SELECT cm FROM CoffeeMachine cm JOIN FETCH cm.state ms WHERE cm.isActive = true AND " +
+           "(ms.waterLevel < 10.0 OR ms.milkLevel < 10.0 OR ms.beansLevel < 10.0)")
     List<CoffeeMachine> findMachinesWithCriticalSupplies();
     
     // Find operational machines (ON status and no low supplies)
-    @Query("SELECT cm FROM CoffeeMachine cm WHERE cm.isActive = true AND cm.status = 'ON' AND " +
-           "cm.waterLevel >= 20.0 AND cm.milkLevel >= 20.0 AND cm.beansLevel >= 20.0")
+    @Query("SELECT cm FROM CoffeeMachine cm JOIN FETCH cm.state ms WHERE cm.isActive = true AND cm.status = 'ON' AND " +
+           "ms.waterLevel >= 20.0 AND ms.milkLevel >= 20.0 AND ms.beansLevel >= 20.0")
     List<CoffeeMachine> findOperationalMachines();
     
     // Find machines by temperature range
-    @Query("SELECT cm FROM CoffeeMachine cm WHERE cm.temperature BETWEEN :minTemp AND :maxTemp AND cm.isActive = true")
+    @Query("SELECT cm FROM CoffeeMachine cm JOIN FETCH cm.state ms WHERE ms.temperature BETWEEN :minTemp AND :maxTemp AND cm.isActive = true")
     List<CoffeeMachine> findMachinesByTemperatureRange(@Param("minTemp") Float minTemp, 
                                                       @Param("maxTemp") Float maxTemp);
     
@@ -61,43 +90,43 @@ public interface CoffeeMachineRepository extends JpaRepository<CoffeeMachine, In
     @Query("SELECT cm.facilityId, COUNT(cm), " +
            "COUNT(CASE WHEN cm.status = 'ON' THEN 1 END) as onCount, " +
            "COUNT(CASE WHEN cm.status = 'OFF' THEN 1 END) as offCount, " +
-           "COUNT(CASE WHEN cm.waterLevel < 20.0 OR cm.milkLevel < 20.0 OR cm.beansLevel < 20.0 THEN 1 END) as lowSupplyCount " +
-           "FROM CoffeeMachine cm WHERE cm.isActive = true GROUP BY cm.facilityId")
+           "COUNT(CASE WHEN ms.waterLevel < 20.0 OR ms.milkLevel < 20.0 OR ms.beansLevel < 20.0 THEN 1 END) as lowSupplyCount " +
+           "FROM CoffeeMachine cm JOIN cm.state ms WHERE cm.isActive = true GROUP BY cm.facilityId")
     List<Object[]> getMachineStatusSummaryByFacility();
     
-    // Find recently updated machines
-    @Query("SELECT cm FROM CoffeeMachine cm WHERE cm.lastUpdate >= :since AND cm.isActive = true ORDER BY cm.lastUpdate DESC")
+    // Find recently updated machines (metadata or telemetry)
+    @Query("SELECT cm FROM CoffeeMachine cm JOIN FETCH cm.state ms WHERE (cm.lastUpdate >= :since OR ms.lastUpdate >= :since) " +
+           "AND cm.isActive = true ORDER BY ms.lastUpdate DESC")
     List<CoffeeMachine> findRecentlyUpdatedMachines(@Param("since") LocalDateTime since);
     
+    // Machine id -> facility id pairs, for the in-memory facility lookup
+    @Query("SELECT cm.id, cm.facilityId FROM CoffeeMachine cm")
+    List<Object[]> findAllMachineFacilityIds();
+    
+    // Facility id of one machine without loading the entity
+    @Query("SELECT cm.facilityId FROM CoffeeMachine cm WHERE cm.id = :machineId")
+    Optional<Integer> findFacilityIdByMachineId(@Param("machineId") Integer machineId);
+    
     // Count machines by facility
     Long countByFacilityIdAndIsActiveTrue(Integer facilityId);
     
     // Count operational machines by facility
-    @Query("SELECT COUNT(cm) FROM CoffeeMachine cm WHERE cm.facilityId = :facilityId AND cm.isActive = true AND " +
-           "cm.status = 'ON' AND cm.waterLevel >= 20.0 AND cm.milkLevel >= 20.0 AND cm.beansLevel >= 20.0")
+    @Query("SELECT COUNT(cm) FROM CoffeeMachine cm JOIN cm.state ms WHERE cm.facilityId = :facilityId AND cm.isActive = true AND " +
+           "cm.status = 'ON' AND ms.waterLevel >= 20.0 AND ms.milkLevel >= 20.0 AND ms.beansLevel >= 20.0")
     Long countOperationalMachinesByFacility(@Param("facilityId") Integer facilityId);
     
-    // Find machines needing maintenance (offline or with alerts)
-    @Query("SELECT DISTINCT cm FROM CoffeeMachine cm LEFT JOIN cm.alertLogs al " +
-           "WHERE cm.isActive = true AND (cm.status = 'OFF' OR " +
-           "(al.isActive = true AND al.alertType IN ('MALFUNCTION', 'EMERGENCY') AND al.timestamp >= :since))")
+    // Find machines needing maintenance (off/offline or with recent serious alerts); EXISTS stops at the
+    // first matching alert instead of joining every alert row and de-duplicating
+    @Query("SELECT cm FROM CoffeeMachine cm JOIN FETCH cm.state WHERE cm.isActive = true AND (cm.status IN ('OFF', 'OFFLINE') OR " +
+           "EXISTS (SELECT 1 FROM AlertLog al WHERE al.machineId = cm.id AND al.isActive = true " +
+           "AND al.alertType IN ('MALFUNCTION', 'EMERGENCY') AND al.timestamp >= :since))")
     List<CoffeeMachine> findMachinesNeedingMaintenance(@Param("since") LocalDateTime since);
     
     // Get average levels by facility
-    @Query("SELECT cm.facilityId, AVG(cm.waterLevel), AVG(cm.milkLevel), AVG(cm.beansLevel), AVG(cm.temperature) " +
-           "FROM CoffeeMachine cm WHERE cm.isActive = true GROUP BY cm.facilityId")
+    @Query("SELECT cm.facilityId, AVG(ms.waterLevel), AVG(ms.milkLevel), AVG(ms.beansLevel), AVG(ms.temperature) " +
+           "FROM CoffeeMachine cm JOIN cm.state ms WHERE cm.isActive = true GROUP BY cm.facilityId")
     List<Object[]> getAverageLevelsByFacility();
     
-    // Update machine levels
-    @Query("UPDATE CoffeeMachine cm SET cm.waterLevel = :waterLevel, cm.milkLevel = :milkLevel, " +
-           "cm.beansLevel = :beansLevel, cm.temperature = :temperature, cm.lastUpdate = CURRENT_TIMESTAMP " +
-           "WHERE cm.id = :machineId")
-    void updateMachineLevels(@Param("machineId") Integer machineId, 
-                           @Param("waterLevel") Float waterLevel,
-                           @Param("milkLevel") Float milkLevel, 
-                           @Param("beansLevel") Float beansLevel,
-                           @Param("temperature") Float temperature);
-    
     // Update machine status
     @Query("UPDATE CoffeeMachine cm SET cm.status = :status, cm.lastUpdate = CURRENT_TIMESTAMP WHERE cm.id = :machineId")
     void updateMachineStatus(@Param("machineId") Integer machineId, @Param("status") String status);
@@ -3,9 +3,12 @@ package com.coffee.coffeeApp.repository;
 import com.coffee.coffeeApp.entity.Facility;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -14,9 +17,11 @@ import java.util.Optional;
 public interface FacilityRepository extends JpaRepository<Facility, Integer> {
     
     // Find active facilities
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Facility> findByIsActiveTrue();
     
     // Find facility by name
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<Facility> findByNameAndIsActiveTrue(String name);
     
     // Find facilities by location
@@ -26,6 +31,7 @@ public interface FacilityRepository extends JpaRepository<Facility, Integer> {
     List<Facility> findByLocationContainingIgnoreCaseAndIsActiveTrue(String locationKeyword);
     
     // Check if facility name exists
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     boolean existsByNameAndIsActiveTrue(String name);
     
     // Find facilities with coffee machines
@@ -33,8 +39,8 @@ public interface FacilityRepository extends JpaRepository<Facility, Integer> {
     List<Facility> findFacilitiesWithActiveMachines();
     
     // Find facilities with low supply machines
-    @Query("SELECT DISTINCT f FROM Facility f JOIN f.coffeeMachines cm WHERE f.isActive = true AND cm.isActive = true " +
-           "AND (cm.waterLevel < 20.0 OR cm.milkLevel < 20.0 OR cm.beansLevel < 20.0)")
+    @Query("SELECT DISTINCT f FROM Facility f JOIN f.coffeeMachines cm JOIN cm.state ms WHERE f.isActive = true " +
+           "AND cm.isActive = true AND (ms.waterLevel < 20.0 OR ms.milkLevel < 20.0 OR ms.beansLevel < 20.0)")
     List<Facility> findFacilitiesWithLowSupplyMachines();
     
     // Count active machines per facility
@@ -55,8 +61,8 @@ public interface FacilityRepository extends JpaRepository<Facility, Integer> {
     // Get facility statistics
     @Query("SELECT f.id, f.name, f.location, COUNT(cm), " +
            "COUNT(CASE WHEN cm.status = 'ON' THEN 1 END), " +
-           "COUNT(CASE WHEN cm.waterLevel < 20.0 OR cm.milkLevel < 20.0 OR cm.beansLevel < 20.0 THEN 1 END) " +
-           "FROM Facility f LEFT JOIN f.coffeeMachines cm " +
+           "COUNT(CASE WHEN ms.waterLevel < 20.0 OR ms.milkLevel < 20.0 OR ms.beansLevel < 20.0 THEN 1 END) " +
+           "FROM Facility f LEFT JOIN f.coffeeMachines cm LEFT JOIN cm.state ms " +
            "WHERE f.isActive = true AND (cm.isActive = true OR cm.isActive IS NULL) " +
            "GROUP BY f.id, f.name, f.location")
     List<Object[]> getFacilityStatistics();
@@ -0,0 +1,30 @@
+package com.coffee.coffeeApp.repository;
+
+import com.coffee.coffeeApp.entity.MachineState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface MachineStateRepository extends JpaRepository<MachineState, Integer> {
+
+    // Telemetry hot path: one narrow UPDATE per reading, no entity load or dirty check.
+    // Null parameters (fields absent from a sparse reading) keep the stored value. The context is neither
+    // flushed nor cleared, so inserts queued by earlier readings of a batch still go out as one JDBC batch.
+    @Modifying
+    @Query("UPDATE MachineState ms SET ms.temperature = COALESCE(:temperature, ms.temperature), " +
+           "ms.waterLevel = COALESCE(:waterLevel, ms.waterLevel), ms.milkLevel = COALESCE(:milkLevel, ms.milkLevel), " +
+           "ms.beansLevel = COALESCE(:beansLevel, ms.beansLevel), ms.sugarLevel = COALESCE(:sugarLevel, ms.sugarLevel), " +
+           "ms.lastUpdate = :lastUpdate WHERE ms.machineId = :machineId")
+    int applyTelemetry(@Param("machineId") Integer machineId,
+                       @Param("temperature") Float temperature,
+                       @Param("waterLevel") Float waterLevel,
+                       @Param("milkLevel") Float milkLevel,
+                       @Param("beansLevel") Float beansLevel,
+                       @Param("sugarLevel") Float sugarLevel,
+                       @Param("lastUpdate") LocalDateTime lastUpdate);
+}
@@ -1,14 +1,18 @@
 package com.coffee.coffeeApp.repository;
 
+import com.coffee.coffeeApp.dto.UsageHistoryRow;
 import com.coffee.coffeeApp.entity.UsageHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UsageHistoryRepository extends JpaRepository<UsageHistory, Integer> {
@@ -48,6 +52,59 @@ public interface UsageHistoryRepository extends JpaRepository<UsageHistory, Inte
            "AND uh.isActive = true ORDER BY uh.timestamp DESC")
     List<UsageHistory> findTodayUsageByMachine(@Param("machineId") Integer machineId);
     
+    // List projections: select the columns straight into rows, no managed entities
+    @Query(UsageHistoryRow.SELECT + "WHERE uh.isActive = true")
+    List<UsageHistoryRow> findActiveRows();
+    
+    @Query(UsageHistoryRow.SELECT + "WHERE uh.machineId = :machineId AND uh.isActive = true ORDER BY uh.timestamp DESC")
+    List<UsageHistoryRow> findActiveRowsByMachineId(@Param("machineId") Integer machineId);
+    
+    @Query(UsageHistoryRow.SELECT + "WHERE uh.brewType = :brewType AND uh.isActive = true ORDER BY uh.timestamp DESC")
+    List<UsageHistoryRow> findActiveRowsByBrewType(@Param("brewType") String brewType);
+    
+    @Query(UsageHistoryRow.SELECT + "WHERE uh.timestamp BETWEEN :startDate AND :endDate AND uh.isActive = true " +
+           "ORDER BY uh.timestamp DESC")
+    List<UsageHistoryRow> findRowsByDateRange(@Param("startDate") LocalDateTime startDate,
+                                              @Param("endDate") LocalDateTime endDate);
+    
+    @Query(UsageHistoryRow.SELECT + "WHERE uh.machineId = :machineId AND uh.timestamp BETWEEN :startDate AND :endDate " +
+           "AND uh.isActive = true ORDER BY uh.timestamp DESC")
+    List<UsageHistoryRow> findRowsByMachineAndDateRange(@Param("machineId") Integer machineId,
+                                                        @Param("startDate") LocalDateTime startDate,
+                                                        @Param("endDate") LocalDateTime endDate);
+    
+    @Query(UsageHistoryRow.SELECT + "WHERE uh.timestamp >= CURRENT_DATE AND uh.timestamp < CURRENT_DATE + 1 DAY " +
+           "AND uh.isActive = true ORDER BY uh.timestamp DESC")
+    List<UsageHistoryRow> findTodayRows();
+    
+    @Query(UsageHistoryRow.SELECT + "WHERE uh.machineId = :machineId AND uh.timestamp >= CURRENT_DATE " +
+           "AND uh.timestamp < CURRENT_DATE + 1 DAY AND uh.isActive = true ORDER BY uh.timestamp DESC")
+    List<UsageHistoryRow> findTodayRowsByMachine(@Param("machineId") Integer machineId);
+    
+    @Query(UsageHistoryRow.SELECT + "WHERE uh.timestamp >= :since AND uh.isActive = true ORDER BY uh.timestamp DESC")
+    List<UsageHistoryRow> findRecentRows(@Param("since") LocalDateTime since);
+    
+    // Export: forward-only cursor over matching rows (null filter = any), fetched 1000 at a time
+    @QueryHints({ @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+                  @QueryHint(name = "org.hibernate.readOnly", value = "true") })
+    @Query(UsageHistoryRow.SELECT + "WHERE uh.isActive = true " +
+           "AND (:machineId IS NULL OR uh.machineId = :machineId) " +
+           "AND (:facilityId IS NULL OR uh.machineId IN " +
+           "(SELECT cm.id FROM CoffeeMachine cm WHERE cm.facilityId = :facilityId)) " +
+           "AND (:startDate IS NULL OR uh.timestamp >= :startDate) " +
+           "AND (:endDate IS NULL OR uh.timestamp < :endDate) ORDER BY uh.timestamp")
+    Stream<UsageHistoryRow> streamForExport(@Param("facilityId") Integer facilityId,
+                                            @Param("machineId") Integer machineId,
+                                            @Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate);
+    
+    // Counts for statistics (avoid loading the rows just to size them)
+    long countByIsActiveTrue();
+    
+    @Query("SELECT COUNT(uh) FROM UsageHistory uh WHERE uh.timestamp >= CURRENT_DATE " +
+           "AND uh.timestamp < CURRENT_DATE + 1 DAY AND uh.isActive = true")
+    long countTodayUsage();
+    
     // Count usage by brew type
     @Query("SELECT uh.brewType, COUNT(uh) FROM UsageHistory uh WHERE uh.isActive = true GROUP BY uh.brewType ORDER BY COUNT(uh) DESC")
     List<Object[]> countUsageByBrewType();
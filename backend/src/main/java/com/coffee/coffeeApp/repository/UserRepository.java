@@ -3,9 +3,12 @@ package com.coffee.coffeeApp.repository;
 import com.coffee.coffeeApp.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -20,18 +23,21 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     List<User> findByRoleAndIsActiveTrue(String role);
     
     //Finding user by username(Active or inactive)
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<User> findByUsername(String username);
     
     // Find user by email
     Optional<User> findByEmail(String email);
     
     // Find user by username
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<User> findByUsernameAndIsActiveTrue(String username);
     
     //Find by userId
     Optional<User> findById(Integer id);
     
     // Check if username exists
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     boolean existsByUsernameAndIsActiveTrue(String username);
     
     // Find facility users (users with FACILITY role)
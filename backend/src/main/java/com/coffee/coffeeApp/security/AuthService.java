@@ -12,6 +12,7 @@ import com.coffee.coffeeApp.entity.User;
 import com.coffee.coffeeApp.entity.Facility;
 import com.coffee.coffeeApp.repository.UserRepository;
 import com.coffee.coffeeApp.repository.FacilityRepository;
+import com.coffee.coffeeApp.service.ReferenceDataCacheService;
 
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 
@@ -23,14 +24,17 @@ public class AuthService {
 	private final UserRepository userRepository;
 	private final FacilityRepository facilityRepository;
 	private final PasswordEncoder passwordEncoder;
+	private final ReferenceDataCacheService referenceDataCacheService;
 
 	public AuthService(AuthenticationManager authenticationManager, AuthUtil authUtil, UserRepository userRepository,
-			FacilityRepository facilityRepository, PasswordEncoder passwordEncoder) {
+			FacilityRepository facilityRepository, PasswordEncoder passwordEncoder,
+			ReferenceDataCacheService referenceDataCacheService) {
 		this.authenticationManager = authenticationManager;
 		this.authUtil = authUtil;
 		this.userRepository = userRepository;
 		this.facilityRepository = facilityRepository;
 		this.passwordEncoder = passwordEncoder;
+		this.referenceDataCacheService = referenceDataCacheService;
 	}
 
 	public LoginResponseDto login(LoginRequestDto loginRequestDto) {
@@ -92,6 +96,8 @@ public class AuthService {
 				facility);
 
 		userRepository.save(newUser);
+		// Cached "username not found" query results must not survive the signup
+		referenceDataCacheService.evictUser(newUser.getId());
 
 		return new SignupResponseDto(newUser.getId().toString(), newUser.getUsername());
 	}
@@ -1,10 +1,10 @@
 package com.coffee.coffeeApp.service;
 
+import com.coffee.coffeeApp.dto.AlertBulkActionDto;
 import com.coffee.coffeeApp.dto.AlertLogDto;
+import com.coffee.coffeeApp.dto.AlertLogRow;
 import com.coffee.coffeeApp.entity.AlertLog;
-import com.coffee.coffeeApp.entity.CoffeeMachine;
 import com.coffee.coffeeApp.repository.AlertLogRepository;
-import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,17 +13,27 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class AlertLogService {
 
+    // Keeps each bulk UPDATE's IN list within what every database accepts
+    private static final int BULK_BATCH_SIZE = 1000;
+
     @Autowired
     private AlertLogRepository alertLogRepository;
 
     @Autowired
-    private CoffeeMachineRepository coffeeMachineRepository;
+    private MachineFacilityCache machineFacilityCache;
+
+    @Autowired
+    private ChangeVersionTracker changeVersionTracker;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
 
     // Create generic alert
     public AlertLogDto createAlert(String machineId, String alertType, String message) {
@@ -89,9 +99,7 @@ public class AlertLogService {
     }
 
     private Integer resolveFacilityId(Integer machineId) {
-        return coffeeMachineRepository.findById(machineId)
-                .map(CoffeeMachine::getFacilityId)
-                .orElse(null);
+        return machineFacilityCache.getFacilityId(machineId);
     }
 
     // Get alert by ID
@@ -105,18 +113,18 @@ public class AlertLogService {
     // Get all active alerts
     @Transactional(readOnly = true)
     public List<AlertLogDto> getAllActiveAlerts() {
-        return alertLogRepository.findByIsActiveTrueOrderByTimestampDesc()
+        return alertLogRepository.findActiveRows()
                 .stream()
-                .map(this::convertToDto)
+                .map(AlertLogRow::toDto)
                 .collect(Collectors.toList());
     }
 
     // Get alerts by machine
     @Transactional(readOnly = true)
     public List<AlertLogDto> getAlertsByMachine(String machineId) {
-        return alertLogRepository.findByMachineIdAndIsActiveTrueOrderByTimestampDesc(Integer.parseInt(machineId))
+        return alertLogRepository.findActiveRowsByMachineId(Integer.parseInt(machineId))
                 .stream()
-                .map(this::convertToDto)
+                .map(AlertLogRow::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -133,9 +141,9 @@ public class AlertLogService {
     // Get alerts by type
     @Transactional(readOnly = true)
     public List<AlertLogDto> getAlertsByType(String alertType) {
-        return alertLogRepository.findByAlertTypeAndIsActiveTrueOrderByTimestampDesc(alertType)
+        return alertLogRepository.findActiveRowsByAlertType(alertType)
                 .stream()
-                .map(this::convertToDto)
+                .map(AlertLogRow::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -143,9 +151,9 @@ public class AlertLogService {
     @Transactional(readOnly = true)
     public List<AlertLogDto> getRecentAlerts(int hours) {
         LocalDateTime since = LocalDateTime.now().minusHours(hours);
-        return alertLogRepository.findRecentAlerts(since)
+        return alertLogRepository.findRecentRows(since)
                 .stream()
-                .map(this::convertToDto)
+                .map(AlertLogRow::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -208,7 +216,62 @@ public class AlertLogService {
 
     // Resolve all alerts of specific type for a machine
     public void resolveAlertsByMachineAndType(String machineId, String alertType) {
+        List<Integer> ids = alertLogRepository.findActiveIdsMatching(Integer.parseInt(machineId), null,
+                alertType, null);
         alertLogRepository.resolveAlertsByMachineAndType(Integer.parseInt(machineId), alertType);
+        recordBulkChange(ids);
+    }
+
+    // Bulk acknowledge; returns the number of alerts changed
+    public int acknowledgeAlerts(AlertBulkActionDto selection) {
+        return updateInBatches(selectActiveAlertIds(selection), alertLogRepository::acknowledgeAlerts);
+    }
+
+    // Bulk resolve (soft delete); returns the number of alerts changed
+    public int resolveAlerts(AlertBulkActionDto selection) {
+        return updateInBatches(selectActiveAlertIds(selection), alertLogRepository::resolveAlerts);
+    }
+
+    private List<Integer> selectActiveAlertIds(AlertBulkActionDto selection) {
+        if (selection.hasIds()) {
+            if (selection.hasFilter()) {
+                throw new IllegalArgumentException("Select alerts either by IDs or by filters, not both");
+            }
+            List<Integer> ids = selection.getIds().stream()
+                    .map(Integer::parseInt)
+                    .distinct()
+                    .collect(Collectors.toList());
+            return alertLogRepository.findActiveIdsIn(ids);
+        }
+        if (!selection.hasFilter()) {
+            throw new IllegalArgumentException("Bulk alert actions need IDs or at least one filter");
+        }
+        LocalDateTime before = selection.getOlderThanHours() != null
+                ? LocalDateTime.now().minusHours(selection.getOlderThanHours())
+                : null;
+        return alertLogRepository.findActiveIdsMatching(
+                selection.getMachineId() != null ? Integer.parseInt(selection.getMachineId()) : null,
+                selection.getFacilityId() != null ? Integer.parseInt(selection.getFacilityId()) : null,
+                selection.getAlertType(),
+                before);
+    }
+
+    private int updateInBatches(List<Integer> ids, ToIntFunction<List<Integer>> update) {
+        int affected = 0;
+        for (int from = 0; from < ids.size(); from += BULK_BATCH_SIZE) {
+            affected += update.applyAsInt(ids.subList(from, Math.min(ids.size(), from + BULK_BATCH_SIZE)));
+        }
+        recordBulkChange(ids);
+        return affected;
+    }
+
+    // Bulk updates skip the entity listener, so bump the version and feed here
+    private void recordBulkChange(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        changeVersionTracker.markChanged(ChangeVersionTracker.Kind.ALERT);
+        ids.forEach(id -> changeFeedService.record(ChangeVersionTracker.Kind.ALERT, id));
     }
 
     // Get alert statistics
@@ -316,6 +379,7 @@ public class AlertLogService {
 
         // Set computed fields
         dto.setIsResolved(!alert.getIsActive());
+        dto.setIsAcknowledged(alert.getIsAcknowledged());
 
         return dto;
     }
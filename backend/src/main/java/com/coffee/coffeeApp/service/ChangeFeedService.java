@@ -0,0 +1,179 @@
+package com.coffee.coffeeApp.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.coffee.coffeeApp.dto.AlertLogDto;
+import com.coffee.coffeeApp.dto.AlertLogRow;
+import com.coffee.coffeeApp.dto.CoffeeMachineDto;
+import com.coffee.coffeeApp.dto.CoffeeMachineRow;
+import com.coffee.coffeeApp.repository.AlertLogRepository;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+
+/**
+ * "Changes since token" feed for machines and alerts. Committed changes are
+ * appended to a fixed-size ring of (sequence, kind, id); a poll returns the
+ * current state of just the ids touched after the client's sequence. Tokens
+ * that fell off the ring, or come from a previous process, fall back to a
+ * lastUpdate query using the time carried in the token.
+ *
+ * Token format: epoch-sequence-millis (opaque to clients).
+ */
+@Service
+public class ChangeFeedService {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final int capacity;
+
+    private final long fallbackOverlapMs;
+
+    private final byte[] kinds;
+
+    private final int[] ids;
+
+    // Sequence of the last appended entry; entry n lives at n % capacity
+    private long head;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Autowired
+    private AlertLogRepository alertLogRepository;
+
+    public ChangeFeedService(@Value("${app.changes.buffer-size:8192}") int capacity,
+            @Value("${app.changes.fallback-overlap-ms:5000}") long fallbackOverlapMs) {
+        this.capacity = capacity;
+        this.fallbackOverlapMs = fallbackOverlapMs;
+        this.kinds = new byte[capacity];
+        this.ids = new int[capacity];
+    }
+
+    // Record a machine/alert change; appended once the surrounding transaction (if any) commits
+    public void record(ChangeVersionTracker.Kind kind, Integer id) {
+        if (id == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(kind, id);
+                }
+            });
+        } else {
+            append(kind, id);
+        }
+    }
+
+    private synchronized void append(ChangeVersionTracker.Kind kind, int id) {
+        head++;
+        int slot = (int) (head % capacity);
+        kinds[slot] = (byte) kind.ordinal();
+        ids[slot] = id;
+    }
+
+    // Not readOnly: that would route to a replica, whose lag could hide changes the returned token already covers
+    @Transactional
+    public Map<String, Object> getChangesSince(String since) {
+        Set<Integer> machineIds = new LinkedHashSet<>();
+        Set<Integer> alertIds = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+        long currentHead;
+        boolean fromBuffer = false;
+        String[] token = parseToken(since);
+
+        // Read the ring before touching the DB: rows may be newer than the token, never older
+        synchronized (this) {
+            currentHead = head;
+            if (token != null && token[0].equals(epoch)) {
+                long sequence = Long.parseLong(token[1]);
+                if (sequence > head) {
+                    throw new IllegalArgumentException("Change token is ahead of this server: " + since);
+                }
+                if (sequence >= head - capacity) {
+                    for (long n = sequence + 1; n <= head; n++) {
+                        int slot = (int) (n % capacity);
+                        if (kinds[slot] == ChangeVersionTracker.Kind.MACHINE.ordinal()) {
+                            machineIds.add(ids[slot]);
+                        } else {
+                            alertIds.add(ids[slot]);
+                        }
+                    }
+                    fromBuffer = true;
+                }
+            }
+        }
+
+        List<CoffeeMachineRow> machines;
+        List<AlertLogRow> alerts;
+        String source;
+        if (token == null) {
+            source = "snapshot";
+            machines = coffeeMachineRepository.findActiveRows();
+            alerts = alertLogRepository.findActiveRows();
+        } else if (fromBuffer) {
+            source = "buffer";
+            machines = machineIds.isEmpty() ? List.of() : coffeeMachineRepository.findRowsByIdIn(machineIds);
+            alerts = alertIds.isEmpty() ? List.of() : alertLogRepository.findRowsByIdIn(alertIds);
+        } else {
+            source = "database";
+            LocalDateTime from = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(Long.parseLong(token[2]) - fallbackOverlapMs), ZoneId.systemDefault());
+            machines = coffeeMachineRepository.findRowsUpdatedSince(from);
+            alerts = alertLogRepository.findRowsUpdatedSince(from);
+        }
+
+        List<CoffeeMachineDto> machineDtos = machines.stream().map(CoffeeMachineRow::toDto).collect(Collectors.toList());
+        List<AlertLogDto> alertDtos = alerts.stream().map(AlertLogRow::toDto).collect(Collectors.toList());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("token", epoch + "-" + currentHead + "-" + now);
+        result.put("source", source);
+        // Snapshot replaces the client's copy; buffer/database results are upserts (isActive=false means removed)
+        result.put("reset", token == null);
+        result.put("machines", machineDtos);
+        result.put("alerts", alertDtos);
+        return result;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("epoch", epoch);
+        stats.put("head", head);
+        stats.put("oldestRetained", Math.max(1, head - capacity + 1));
+        stats.put("capacity", capacity);
+        return stats;
+    }
+
+    private String[] parseToken(String since) {
+        if (since == null || since.isBlank()) {
+            return null;
+        }
+        String[] parts = since.split("-");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid change token: " + since);
+        }
+        try {
+            Long.parseLong(parts[1]);
+            Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid change token: " + since);
+        }
+        return parts;
+    }
+}
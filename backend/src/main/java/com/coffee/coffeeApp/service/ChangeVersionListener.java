@@ -0,0 +1,56 @@
+package com.coffee.coffeeApp.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.coffee.coffeeApp.entity.AlertLog;
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.entity.Facility;
+import com.coffee.coffeeApp.entity.MachineState;
+import com.coffee.coffeeApp.entity.UsageHistory;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA entity listener that feeds {@link ChangeVersionTracker} and, for machines
+ * and alerts, {@link ChangeFeedService} from every entity write. Hibernate
+ * obtains it through Spring's bean container while the EntityManagerFactory is
+ * still being built, so the services are looked up lazily to avoid a cycle with
+ * the repositories they use. Bulk JPQL updates bypass it and record their
+ * changes themselves.
+ */
+public class ChangeVersionListener {
+
+    @Autowired
+    private ObjectProvider<ChangeVersionTracker> changeVersionTrackerProvider;
+
+    @Autowired
+    private ObjectProvider<ChangeFeedService> changeFeedServiceProvider;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (changeVersionTrackerProvider == null) {
+            return;
+        }
+        ChangeVersionTracker changeVersionTracker = changeVersionTrackerProvider.getObject();
+        ChangeFeedService changeFeedService = changeFeedServiceProvider.getObject();
+        if (entity instanceof CoffeeMachine machine) {
+            changeVersionTracker.markChanged(ChangeVersionTracker.Kind.MACHINE);
+            changeFeedService.record(ChangeVersionTracker.Kind.MACHINE, machine.getId());
+        } else if (entity instanceof MachineState state) {
+            changeVersionTracker.markChanged(ChangeVersionTracker.Kind.MACHINE);
+            changeFeedService.record(ChangeVersionTracker.Kind.MACHINE, state.getMachineId());
+        } else if (entity instanceof AlertLog alert) {
+            changeVersionTracker.markChanged(ChangeVersionTracker.Kind.ALERT);
+            changeFeedService.record(ChangeVersionTracker.Kind.ALERT, alert.getId());
+        } else if (entity instanceof Facility) {
+            changeVersionTracker.markChanged(ChangeVersionTracker.Kind.FACILITY);
+        } else if (entity instanceof UsageHistory) {
+            changeVersionTracker.markChanged(ChangeVersionTracker.Kind.USAGE);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.coffee.coffeeApp.service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Monotonic change counters per entity kind, used as strong ETags on the
+ * polling endpoints. Counters are bumped after the writing transaction commits
+ * and read before a GET queries anything, so a tag can lag the data it is sent
+ * with but never run ahead of it. The epoch keeps tags from one process from
+ * matching the (restarted) counters of the next.
+ */
+@Service
+public class ChangeVersionTracker {
+
+    public enum Kind {
+        MACHINE, ALERT, FACILITY, USAGE
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<Kind, AtomicLong> versions = new EnumMap<>(Kind.class);
+
+    public ChangeVersionTracker() {
+        for (Kind kind : Kind.values()) {
+            versions.put(kind, new AtomicLong());
+        }
+    }
+
+    // Record a change; applied once the surrounding transaction (if any) commits
+    public void markChanged(Kind kind) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.get(kind).incrementAndGet();
+                }
+            });
+        } else {
+            versions.get(kind).incrementAndGet();
+        }
+    }
+
+    public long getVersion(Kind kind) {
+        return versions.get(kind).get();
+    }
+
+    // Strong ETag over the given kinds, e.g. "m12.a40-lx3k9q"
+    public String etag(Kind... kinds) {
+        return etag(null, kinds);
+    }
+
+    // Same, scoped to a caller-dependent view (e.g. the user's facility)
+    public String etag(String scope, Kind... kinds) {
+        StringBuilder tag = new StringBuilder("\"");
+        if (scope != null) {
+            tag.append(scope).append('.');
+        }
+        for (int i = 0; i < kinds.length; i++) {
+            if (i > 0) {
+                tag.append('.');
+            }
+            tag.append(Character.toLowerCase(kinds[i].name().charAt(0))).append(getVersion(kinds[i]));
+        }
+        return tag.append('-').append(epoch).append('"').toString();
+    }
+
+    public Map<String, Object> getVersions() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("epoch", epoch);
+        for (Kind kind : Kind.values()) {
+            result.put(kind.name().toLowerCase(), getVersion(kind));
+        }
+        return result;
+    }
+}
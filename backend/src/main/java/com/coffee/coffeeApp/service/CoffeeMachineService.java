@@ -3,22 +3,34 @@ package com.coffee.coffeeApp.service;
 import com.coffee.coffeeApp.dto.CoffeeMachineDto;
 import com.coffee.coffeeApp.dto.BrewCommandDto;
 import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
+import com.coffee.coffeeApp.dto.CoffeeMachineRow;
 import com.coffee.coffeeApp.entity.AlertLog;
 import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.entity.MachineState;
 import com.coffee.coffeeApp.entity.UsageHistory;
 import com.coffee.coffeeApp.repository.AlertLogRepository;
 import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
 import com.coffee.coffeeApp.repository.FacilityRepository;
+import com.coffee.coffeeApp.repository.MachineStateRepository;
 import com.coffee.coffeeApp.repository.UsageHistoryRepository;
 
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,10 +55,41 @@ public class CoffeeMachineService {
     @Autowired
     private UsageHistoryService usageHistoryService;
 
+    @Autowired
+    private MachineFacilityCache machineFacilityCache;
+
+    @Autowired
+    private HeartbeatTracker heartbeatTracker;
+
+    @Autowired
+    private TelemetryDeadbandFilter telemetryDeadbandFilter;
+
+    @Autowired
+    private MachineStateRepository machineStateRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ChangeVersionTracker changeVersionTracker;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    // Lazy: the command path reaches back here through the gRPC ingest service
+    @Autowired
+    @Lazy
+    private MachineCommandService machineCommandService;
+
     // Supply level thresholds
     private static final float LOW_SUPPLY_THRESHOLD = 20.0f;
     private static final float CRITICAL_SUPPLY_THRESHOLD = 10.0f;
 
+    // BREW commands sent by processBrew, by command id -> sent at (millis). processBrew records their usage, so the
+    // reading that reports the brew back is not counted again. Brews from the raw command endpoint are not in here.
+    private final ConcurrentHashMap<String, Long> recordedBrewCommands = new ConcurrentHashMap<>();
+    private static final long RECORDED_BREW_COMMAND_TTL_MS = 10 * 60 * 1000L;
+
     // Create new coffee machine
     public CoffeeMachineDto createCoffeeMachine(CoffeeMachineDto machineDto) {
         validateCoffeeMachineDto(machineDto);
@@ -73,6 +116,7 @@ public class CoffeeMachineService {
             machine.setTemperature(0.0f);
 
         CoffeeMachine savedMachine = coffeeMachineRepository.save(machine);
+        machineFacilityCache.put(savedMachine.getId(), savedMachine.getFacilityId());
         return convertToDtoWithStats(savedMachine);
     }
 
@@ -87,18 +131,18 @@ public class CoffeeMachineService {
     // Get machines by facility
     @Transactional(readOnly = true)
     public List<CoffeeMachineDto> getMachinesByFacilityId(String facilityId) {
-        return coffeeMachineRepository.findByFacilityIdAndIsActiveTrue(Integer.parseInt(facilityId))
+        return coffeeMachineRepository.findActiveRowsByFacilityId(Integer.parseInt(facilityId))
                 .stream()
-                .map(this::convertToDtoWithStats)
+                .map(CoffeeMachineRow::toDto)
                 .collect(Collectors.toList());
     }
 
     // Get all active machines
     @Transactional(readOnly = true)
     public List<CoffeeMachineDto> getAllMachines() {
-        return coffeeMachineRepository.findByIsActiveTrue()
+        return coffeeMachineRepository.findActiveRows()
                 .stream()
-                .map(this::convertToDtoWithStats)
+                .map(CoffeeMachineRow::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -106,9 +150,9 @@ public class CoffeeMachineService {
     @Transactional(readOnly = true)
     public List<CoffeeMachineDto> getMachinesByStatus(String status) {
         validateStatus(status);
-        return coffeeMachineRepository.findByStatusAndIsActiveTrue(status)
+        return coffeeMachineRepository.findActiveRowsByStatus(status)
                 .stream()
-                .map(this::convertToDtoWithStats)
+                .map(CoffeeMachineRow::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -174,6 +218,7 @@ public class CoffeeMachineService {
         machine.setTemperature(temperature);
 
         CoffeeMachine savedMachine = coffeeMachineRepository.save(machine);
+        telemetryDeadbandFilter.invalidate(savedMachine.getId());
 
         // Check for new low supply alerts
         checkAndCreateSupplyAlerts(savedMachine, previousWater, previousMilk, previousBeans);
@@ -201,6 +246,7 @@ public class CoffeeMachineService {
         }
 
         CoffeeMachine savedMachine = coffeeMachineRepository.save(machine);
+        telemetryDeadbandFilter.invalidate(savedMachine.getId());
         return convertToDtoWithStats(savedMachine);
     }
 
@@ -216,12 +262,25 @@ public class CoffeeMachineService {
         machine.setStatus(status);
 
         CoffeeMachine savedMachine = coffeeMachineRepository.save(machine);
+        telemetryDeadbandFilter.invalidate(savedMachine.getId());
 
         // Create alert if machine went offline
         if ("ON".equals(previousStatus) && "OFF".equals(status)) {
             alertLogService.createOfflineAlert(machineId, "Machine went offline");
         }
 
+        // Tell the machine once the new status is committed; the row stays updated whether or not it acks
+        if (!status.equals(previousStatus)) {
+            machineCommandService.dispatchAfterCommit(savedMachine.getId(), "STATUS", status);
+        }
+
+        // Only running machines are expected to send telemetry
+        if ("ON".equals(status)) {
+            heartbeatTracker.heartbeat(savedMachine.getId());
+        } else {
+            heartbeatTracker.forget(savedMachine.getId());
+        }
+
         return convertToDtoWithStats(savedMachine);
     }
 
@@ -254,6 +313,7 @@ public class CoffeeMachineService {
         machine.setBeansLevel(machine.getBeansLevel() - consumption.beansUsage);
 
         coffeeMachineRepository.save(machine);
+        telemetryDeadbandFilter.invalidate(machine.getId());
 
         // Create usage history record
         usageHistoryService.createUsageRecord(brewCommand.getMachineId(),
@@ -262,7 +322,15 @@ public class CoffeeMachineService {
         // Check for low supply alerts after brewing
         checkAndCreateSupplyAlerts(machine, null, null, null);
 
-        return new BrewResult(true, "Brew completed successfully!");
+        // Ask the machine to brew after the supplies and usage record commit; its ack arrives asynchronously
+        String commandId = machineCommandService.dispatchAfterCommit(machine.getId(), "BREW", brewCommand.getBrewType());
+        if (commandId != null) {
+            long now = System.currentTimeMillis();
+            recordedBrewCommands.values().removeIf(sentAt -> now - sentAt > RECORDED_BREW_COMMAND_TTL_MS);
+            recordedBrewCommands.put(commandId, now);
+        }
+
+        return new BrewResult(true, "Brew completed successfully!", commandId);
     }
 
     // Update machine
@@ -285,6 +353,8 @@ public class CoffeeMachineService {
             existingMachine.setTemperature(machineDto.getTemperature());
 
         CoffeeMachine savedMachine = coffeeMachineRepository.save(existingMachine);
+        machineFacilityCache.put(savedMachine.getId(), savedMachine.getFacilityId());
+        telemetryDeadbandFilter.invalidate(savedMachine.getId());
         return convertToDtoWithStats(savedMachine);
     }
 
@@ -297,6 +367,25 @@ public class CoffeeMachineService {
         machine.setIsActive(false);
         machine.setStatus("OFF");
         coffeeMachineRepository.save(machine);
+        machineFacilityCache.remove(machine.getId());
+        heartbeatTracker.forget(machine.getId());
+        telemetryDeadbandFilter.forget(machine.getId());
+    }
+
+    // Heartbeat deadline passed: flag a running machine OFFLINE and raise an alert
+    public void markOffline(Integer machineId, long silentMs) {
+        CoffeeMachine machine = coffeeMachineRepository.findById(machineId)
+                .filter(CoffeeMachine::getIsActive)
+                .orElse(null);
+        if (machine == null || !"ON".equalsIgnoreCase(machine.getStatus())) {
+            return;
+        }
+
+        machine.setStatus("OFFLINE");
+        coffeeMachineRepository.save(machine);
+        telemetryDeadbandFilter.invalidate(machineId);
+        alertLogService.createOfflineAlert(String.valueOf(machineId),
+                "No telemetry for " + (silentMs / 1000) + " seconds");
     }
 
     // MQTT subscriber service...
@@ -304,26 +393,76 @@ public class CoffeeMachineService {
     public void updateMachineData(CoffeeMachineDataDto dto) {
         CoffeeMachine machine = coffeeMachineRepository.findById(dto.getMachineId()).orElseThrow(
                 () -> new RuntimeException("Machine not found: " + dto.getMachineId()));
+        applyMachineData(machine, dto);
+    }
 
-        // Apply simulated updates only when technician has turned machine ON
-        if (!"ON".equalsIgnoreCase(machine.getStatus())) {
-            return;
+    // Backlog catch-up: many readings in one transaction, each machine loaded once.
+    // Returns how many readings matched a machine.
+    @Transactional
+    public int updateMachineDataBatch(List<CoffeeMachineDataDto> batch) {
+        Set<Integer> ids = batch.stream().map(CoffeeMachineDataDto::getMachineId).collect(Collectors.toSet());
+        Map<Integer, CoffeeMachine> machines = new HashMap<>();
+        coffeeMachineRepository.findAllById(ids).forEach(machine -> machines.put(machine.getId(), machine));
+
+        int applied = 0;
+        for (CoffeeMachineDataDto dto : batch) {
+            CoffeeMachine machine = machines.get(dto.getMachineId());
+            if (machine == null) {
+                continue;
+            }
+            // save() hands back the managed copy if the context was cleared by a bulk update
+            machines.put(machine.getId(), applyMachineData(machine, dto));
+            applied++;
         }
+        return applied;
+    }
 
-        // Update machine real-time values (do not override ON/OFF from MQTT)
-        machine.setTemperature(dto.getTemperature());
-        machine.setWaterLevel(dto.getWaterLevel());
-        machine.setMilkLevel(dto.getMilkLevel());
-        machine.setBeansLevel(dto.getBeansLevel());
-        machine.setSugarLevel(dto.getSugarLevel());
-        machine.setLastUpdate(LocalDateTime.now());
-        coffeeMachineRepository.save(machine);
+    private CoffeeMachine applyMachineData(CoffeeMachine machine, CoffeeMachineDataDto dto) {
+        // Telemetry is back after the heartbeat tracker flagged the machine
+        boolean recovered = "OFFLINE".equalsIgnoreCase(machine.getStatus());
+        if (recovered) {
+            machine.setStatus("ON");
+        }
 
-        // Log usage if brewType present...
-        if (dto.getBrewType() != null && !"None".equalsIgnoreCase(dto.getBrewType())) {
-            UsageHistory usage = new UsageHistory();
-            usage.setMachineId(machine.getId());
-            usage.setBrewType(dto.getBrewType().toUpperCase());
+        // Apply simulated updates only when technician has turned machine ON
+        if (!"ON".equalsIgnoreCase(machine.getStatus())) {
+            return machine;
+        }
+
+        // Only a recovery changes the (cached) machine row itself
+        if (recovered) {
+            machine = coffeeMachineRepository.save(machine);
+        }
+
+        // Update machine real-time values (do not override ON/OFF from MQTT) with one UPDATE of the
+        // machine_state row. Sparse messages carry only changed fields; absent ones keep their stored value.
+        LocalDateTime now = LocalDateTime.now();
+        machineStateRepository.applyTelemetry(machine.getId(), dto.getTemperature(), dto.getWaterLevel(),
+                dto.getMilkLevel(), dto.getBeansLevel(), dto.getSugarLevel(), now);
+        // The bulk UPDATE bypasses the entity listener
+        changeVersionTracker.markChanged(ChangeVersionTracker.Kind.MACHINE);
+        changeFeedService.record(ChangeVersionTracker.Kind.MACHINE, machine.getId());
+        // Mirror the UPDATE in memory for the alert checks and later readings of the batch. The managed
+        // copy is made read-only first so the flush does not write the row a second time.
+        MachineState state = machine.getState();
+        if (entityManager.contains(state)) {
+            entityManager.unwrap(Session.class).setReadOnly(state, true);
+        }
+        state.applyReading(dto.getTemperature(), dto.getWaterLevel(), dto.getMilkLevel(), dto.getBeansLevel(),
+                dto.getSugarLevel(), now);
+
+        if (recovered) {
+            alertLogService.resolveAlertsByMachineAndType(String.valueOf(machine.getId()), "OFFLINE");
+        }
+
+        // Log usage if brewType present, unless it is processBrew's own command coming back
+        boolean alreadyRecorded = dto.getCommandId() != null && recordedBrewCommands.remove(dto.getCommandId()) != null;
+        if (dto.getBrewType() != null && !"None".equalsIgnoreCase(dto.getBrewType()) && !alreadyRecorded) {
+            UsageHistory usage = new UsageHistory(machine.getId(), dto.getBrewType().toUpperCase());
+            // Backlog readings keep the time the brew happened, not the time we caught up
+            if (dto.getTimeStamp() != null) {
+                usage.setTimestamp(dto.getTimeStamp());
+            }
             usageHistoryRepository.save(usage);
         }
 
@@ -331,28 +470,26 @@ public class CoffeeMachineService {
         // public AlertLog(Integer machineId, String alertType, String message)
         if (machine.hasLowSupplies()) {
             if (machine.isLowMilkLevel()) {
-                saveAlert(machine.getId(), "LOW SUPPLIES", "Milk level is low");
+                saveAlert(machine, "LOW SUPPLIES", "Milk level is low");
             }
 
             if (machine.isLowWaterLevel()) {
-                saveAlert(machine.getId(), "LOW SUPPLIES", "Water level is low");
+                saveAlert(machine, "LOW SUPPLIES", "Water level is low");
             }
 
             if (machine.isLowBeansLevel()) {
-                saveAlert(machine.getId(), "LOW SUPPLIES", "Beans level is low");
+                saveAlert(machine, "LOW SUPPLIES", "Beans level is low");
             }
 
             if (machine.isHighTemperature()) {
-                saveAlert(machine.getId(), "SYSTEM FAULT", "Temperature is high");
+                saveAlert(machine, "SYSTEM FAULT", "Temperature is high");
             }
         }
+        return machine;
     }
 
-    private void saveAlert(Integer machineId, String alertType, String message) {
-        Integer facilityId = coffeeMachineRepository.findById(machineId)
-                .map(CoffeeMachine::getFacilityId)
-                .orElse(null);
-        AlertLog alert = new AlertLog(machineId, facilityId, alertType, message);
+    private void saveAlert(CoffeeMachine machine, String alertType, String message) {
+        AlertLog alert = new AlertLog(machine.getId(), machine.getFacilityId(), alertType, message);
         alertLogRepository.save(alert);
     }
 
@@ -517,7 +654,10 @@ public class CoffeeMachineService {
         dto.setBeansLevel(machine.getBeansLevel());
         dto.setIsActive(machine.getIsActive());
         dto.setCreationDate(machine.getCreationDate());
-        dto.setLastUpdate(machine.getLastUpdate());
+        // Whichever half changed last, as in CoffeeMachineRow
+        LocalDateTime stateUpdate = machine.getState().getLastUpdate();
+        dto.setLastUpdate(stateUpdate != null && stateUpdate.isAfter(machine.getLastUpdate()) ? stateUpdate
+                : machine.getLastUpdate());
 
         // Add computed fields
         dto.setIsOperational(machine.isOperational());
@@ -585,10 +725,17 @@ public class CoffeeMachineService {
     public static class BrewResult {
         private final boolean success;
         private final String message;
+        // Id of the command sent to the machine, null when it could not be reached
+        private final String commandId;
 
         public BrewResult(boolean success, String message) {
+            this(success, message, null);
+        }
+
+        public BrewResult(boolean success, String message, String commandId) {
             this.success = success;
             this.message = message;
+            this.commandId = commandId;
         }
 
         public boolean isSuccess() {
@@ -598,6 +745,10 @@ public class CoffeeMachineService {
         public String getMessage() {
             return message;
         }
+
+        public String getCommandId() {
+            return commandId;
+        }
     }
 
     private static class ResourceConsumption {
@@ -0,0 +1,64 @@
+package com.coffee.coffeeApp.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import com.coffee.coffeeApp.config.DatabaseConcurrencyLimiter;
+import com.coffee.coffeeApp.config.ReadReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+@Service
+public class DataSourceStatsService {
+
+    private final List<DataSource> dataSources;
+    private final ObjectProvider<ReadReplicaRoutingDataSource> routingDataSource;
+    private final DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    public DataSourceStatsService(List<DataSource> dataSources,
+            ObjectProvider<ReadReplicaRoutingDataSource> routingDataSource,
+            DatabaseConcurrencyLimiter databaseConcurrencyLimiter) {
+        this.dataSources = dataSources;
+        this.routingDataSource = routingDataSource;
+        this.databaseConcurrencyLimiter = databaseConcurrencyLimiter;
+    }
+
+    // Per-pool connection usage, plus primary/replica routing when a replica is configured
+    public Map<String, Object> getStats() {
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof HikariDataSource hikari) {
+                pools.put(hikari.getPoolName(), poolStats(hikari));
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pools", pools);
+        stats.put("concurrencyLimiter", databaseConcurrencyLimiter.getStats());
+        ReadReplicaRoutingDataSource routing = routingDataSource.getIfAvailable();
+        stats.put("replicaEnabled", routing != null);
+        if (routing != null) {
+            stats.put("routing", routing.getRoutingStats());
+        }
+        return stats;
+    }
+
+    private Map<String, Object> poolStats(HikariDataSource hikari) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maximumPoolSize", hikari.getMaximumPoolSize());
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool != null) {
+            stats.put("active", pool.getActiveConnections());
+            stats.put("idle", pool.getIdleConnections());
+            stats.put("total", pool.getTotalConnections());
+            stats.put("threadsAwaitingConnection", pool.getThreadsAwaitingConnection());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,57 @@
+package com.coffee.coffeeApp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Device tokens for edge gateways posting to /api/ingest, configured as
+ * app.ingest.device-tokens=token[:facilityId],... A token with a facility
+ * may only report that facility's machines; one without may report any.
+ * No tokens configured means HTTP ingest is closed.
+ */
+@Service
+public class DeviceTokenService {
+
+    // Scope of a valid token: the facility it is bound to, or null for all facilities
+    public record DeviceScope(Integer facilityId) {
+    }
+
+    private record Token(byte[] value, Integer facilityId) {
+    }
+
+    private final List<Token> tokens = new ArrayList<>();
+
+    public DeviceTokenService(@Value("${app.ingest.device-tokens:}") String configured) {
+        for (String entry : configured.split(",")) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.lastIndexOf(':');
+            String value = colon > 0 ? trimmed.substring(0, colon) : trimmed;
+            Integer facilityId = colon > 0 ? Integer.valueOf(trimmed.substring(colon + 1)) : null;
+            tokens.add(new Token(value.getBytes(StandardCharsets.UTF_8), facilityId));
+        }
+    }
+
+    public Optional<DeviceScope> authenticate(String presented) {
+        if (presented == null || presented.isEmpty()) {
+            return Optional.empty();
+        }
+        byte[] candidate = presented.getBytes(StandardCharsets.UTF_8);
+        // Constant-time compare against every token so timing does not reveal which one matched
+        Token match = null;
+        for (Token token : tokens) {
+            if (MessageDigest.isEqual(token.value(), candidate)) {
+                match = token;
+            }
+        }
+        return match == null ? Optional.empty() : Optional.of(new DeviceScope(match.facilityId()));
+    }
+}
@@ -0,0 +1,212 @@
+package com.coffee.coffeeApp.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.coffee.coffeeApp.dto.AlertLogRow;
+import com.coffee.coffeeApp.dto.UsageHistoryRow;
+import com.coffee.coffeeApp.repository.AlertLogRepository;
+import com.coffee.coffeeApp.repository.UsageHistoryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams usage/alert exports as CSV or NDJSON, optionally gzip-compressed,
+ * straight from a forward-only cursor in a read-only transaction. Rows are
+ * DTO projections written as they arrive, so memory stays flat regardless of
+ * size. Each running export pins one connection, so the number of concurrent
+ * exports is capped: a slot is taken before the response is handed out and
+ * given back when the body finishes or the async request ends, whichever
+ * comes first.
+ */
+@Service
+public class ExportService {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private final Semaphore exportSlots;
+
+    @Autowired
+    private UsageHistoryRepository usageHistoryRepository;
+
+    @Autowired
+    private AlertLogRepository alertLogRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public ExportService(@Value("${app.export.max-concurrent:2}") int maxConcurrent) {
+        this.exportSlots = new Semaphore(maxConcurrent);
+    }
+
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid export format: " + format + " (csv or ndjson)");
+        }
+    }
+
+    public static String contentType(Format format, boolean gzip) {
+        if (gzip) {
+            return "application/gzip";
+        }
+        return format == Format.CSV ? "text/csv" : "application/x-ndjson";
+    }
+
+    public static String fileName(String name, Format format, boolean gzip) {
+        return name + "." + format.name().toLowerCase() + (gzip ? ".gz" : "");
+    }
+
+    /**
+     * Takes an export slot (IllegalStateException when none is free) and wraps
+     * {@code export} in a body that gives it back when done. The slot is also
+     * given back when the async request completes, so a timeout, an aborted
+     * download or a body that never ran cannot leak it.
+     */
+    public StreamingResponseBody withSlot(NativeWebRequest request, StreamingResponseBody export) {
+        if (!exportSlots.tryAcquire()) {
+            throw new IllegalStateException("Too many exports running, try again later");
+        }
+        AtomicBoolean held = new AtomicBoolean(true);
+        Runnable release = () -> {
+            if (held.compareAndSet(true, false)) {
+                exportSlots.release();
+            }
+        };
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ExportService.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest completed, Callable<T> task) {
+                        release.run();
+                    }
+                });
+        return out -> {
+            try {
+                export.writeTo(out);
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    public long exportUsage(Integer facilityId, Integer machineId, LocalDateTime startDate, LocalDateTime endDate,
+            Format format, boolean gzip, OutputStream out) {
+        return export("usage", UsageHistoryRow.class, format, gzip, out,
+                () -> usageHistoryRepository.streamForExport(facilityId, machineId, startDate, endDate));
+    }
+
+    public long exportAlerts(Integer facilityId, Integer machineId, LocalDateTime startDate, LocalDateTime endDate,
+            Format format, boolean gzip, OutputStream out) {
+        return export("alerts", AlertLogRow.class, format, gzip, out,
+                () -> alertLogRepository.streamForExport(facilityId, machineId, startDate, endDate));
+    }
+
+    private <T extends Record> long export(String name, Class<T> type, Format format, boolean gzip,
+            OutputStream out, Supplier<Stream<T>> query) {
+        long started = System.currentTimeMillis();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        Long rows = readOnly.execute(status -> {
+            try (Stream<T> stream = query.get()) {
+                return write(stream, type, format, gzip, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        System.out.println("Export " + name + " (" + format + "): " + rows + " rows in "
+                + (System.currentTimeMillis() - started) + " ms");
+        return rows;
+    }
+
+    private <T extends Record> long write(Stream<T> rows, Class<T> type, Format format, boolean gzip,
+            OutputStream out) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, 64 * 1024) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(compressed != null ? compressed : out, StandardCharsets.UTF_8), 64 * 1024);
+        RecordComponent[] columns = type.getRecordComponents();
+        Method[] accessors = new Method[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            accessors[i] = columns[i].getAccessor();
+        }
+
+        if (format == Format.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                writer.write(i == 0 ? "" : ",");
+                writer.write(columns[i].getName());
+            }
+            writer.write('\n');
+        }
+
+        long count = 0;
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            T row = iterator.next();
+            if (format == Format.NDJSON) {
+                writer.write(objectMapper.writeValueAsString(row));
+            } else {
+                for (int i = 0; i < accessors.length; i++) {
+                    writer.write(i == 0 ? "" : ",");
+                    writer.write(csvValue(read(accessors[i], row)));
+                }
+            }
+            writer.write('\n');
+            count++;
+        }
+
+        writer.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        out.flush();
+        return count;
+    }
+
+    private static Object read(Method accessor, Object row) {
+        try {
+            return accessor.invoke(row);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -25,6 +25,9 @@ public class FacilityService {
     
     @Autowired
     private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Autowired
+    private ReferenceDataCacheService referenceDataCacheService;
     
     // Removed circular dependency - will use repository directly
     
@@ -46,6 +49,7 @@ public class FacilityService {
         facility.setIsActive(true);
         
         Facility savedFacility = facilityRepository.save(facility);
+        referenceDataCacheService.evictFacility(savedFacility.getId());
         return convertToDto(savedFacility);
     }
     
@@ -145,6 +149,7 @@ public class FacilityService {
         existingFacility.setLocation(facilityDto.getLocation());
         
         Facility savedFacility = facilityRepository.save(existingFacility);
+        referenceDataCacheService.evictFacility(savedFacility.getId());
         return convertToDtoWithStats(savedFacility);
     }
     
@@ -162,6 +167,7 @@ public class FacilityService {
         
         facility.setIsActive(false);
         facilityRepository.save(facility);
+        referenceDataCacheService.evictFacility(facility.getId());
     }
     
     // Reactivate facility
@@ -171,6 +177,7 @@ public class FacilityService {
         
         facility.setIsActive(true);
         Facility savedFacility = facilityRepository.save(facility);
+        referenceDataCacheService.evictFacility(savedFacility.getId());
         return convertToDtoWithStats(savedFacility);
     }
     
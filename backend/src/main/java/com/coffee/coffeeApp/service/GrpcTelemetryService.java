@@ -0,0 +1,336 @@
+package com.coffee.coffeeApp.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
+import com.coffee.grpc.telemetry.BrewAction;
+import com.coffee.grpc.telemetry.CommandAck;
+import com.coffee.grpc.telemetry.CommandChannelMessage;
+import com.coffee.grpc.telemetry.IngestSummary;
+import com.coffee.grpc.telemetry.MachineCommand;
+import com.coffee.grpc.telemetry.MachineReading;
+import com.coffee.grpc.telemetry.StatusAction;
+import com.coffee.grpc.telemetry.TelemetryIngestGrpc;
+
+import io.grpc.Context;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * gRPC transport for the same ingest pipeline as MQTT and /api/ingest, plus a
+ * command channel back to the machines.
+ *
+ * StreamTelemetry is client-streamed protobuf readings, written in batches of
+ * app.ingest.batch-size; a batch that has not filled within
+ * app.grpc.flush-interval-ms is written anyway, so a long-lived stream from a
+ * quiet site does not sit on readings. CommandChannel is a bidi stream: the
+ * client names its machines in a Hello, the backend pushes MachineCommands
+ * and completes each {@link #sendCommand} future when the matching ack comes
+ * back, or fails it after app.commands.timeout-ms.
+ *
+ * Callers are authenticated by the x-device-token metadata header (see
+ * {@link DeviceTokenService}); the server is started by GrpcServerConfig when
+ * app.grpc.enabled=true.
+ */
+@Service
+public class GrpcTelemetryService extends TelemetryIngestGrpc.TelemetryIngestImplBase {
+
+    // Set by the server's token interceptor for every call
+    public static final Context.Key<DeviceTokenService.DeviceScope> DEVICE_SCOPE = Context.key("deviceScope");
+
+    private record PendingCommand(Integer machineId, CompletableFuture<CommandAck> ack) {
+    }
+
+    @Autowired
+    private TelemetryIngestService telemetryIngestService;
+
+    @Autowired
+    private MachineFacilityCache machineFacilityCache;
+
+    @Value("${app.grpc.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${app.commands.timeout-ms:5000}")
+    private long commandTimeoutMs;
+
+    private final Set<TelemetryIngestService.Session> sessions = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Integer, CommandChannel> channels = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, PendingCommand> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong telemetryStreams = new AtomicLong();
+    private final AtomicLong readings = new AtomicLong();
+    private final AtomicLong commandsSent = new AtomicLong();
+    private final AtomicLong acks = new AtomicLong();
+    private final AtomicLong nacks = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    @Override
+    public StreamObserver<MachineReading> streamTelemetry(StreamObserver<IngestSummary> responseObserver) {
+        TelemetryIngestService.Session session = telemetryIngestService.openSession(facilityOfCaller());
+        sessions.add(session);
+        telemetryStreams.incrementAndGet();
+
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(MachineReading reading) {
+                readings.incrementAndGet();
+                session.offer(toDto(reading));
+            }
+
+            // Readings already admitted are written even when the client goes away
+            @Override
+            public void onError(Throwable t) {
+                close();
+            }
+
+            @Override
+            public void onCompleted() {
+                close();
+                Map<String, Object> totals = session.getTotals();
+                responseObserver.onNext(IngestSummary.newBuilder()
+                        .setReceived((Long) totals.get("received"))
+                        .setAccepted((Long) totals.get("accepted"))
+                        .setRejected((Long) totals.get("rejected"))
+                        .setDuplicates((Long) totals.get("duplicates"))
+                        .build());
+                responseObserver.onCompleted();
+            }
+
+            private void close() {
+                sessions.remove(session);
+                flush(session);
+            }
+        };
+    }
+
+    @Override
+    public StreamObserver<CommandChannelMessage> commandChannel(StreamObserver<MachineCommand> responseObserver) {
+        return new CommandChannel((ServerCallStreamObserver<MachineCommand>) responseObserver, facilityOfCaller());
+    }
+
+    // Writes stream batches that have been filling for longer than the flush interval
+    @Scheduled(fixedDelayString = "${app.grpc.flush-interval-ms:1000}")
+    public void flushIdleSessions() {
+        long cutoff = System.currentTimeMillis() - flushIntervalMs;
+        for (TelemetryIngestService.Session session : sessions) {
+            long started = session.getBatchStartedMs();
+            if (started > 0 && started <= cutoff) {
+                flush(session);
+            }
+        }
+    }
+
+    private static void flush(TelemetryIngestService.Session session) {
+        try {
+            session.flush();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public boolean isConnected(Integer machineId) {
+        return machineId != null && channels.containsKey(machineId);
+    }
+
+    /**
+     * Pushes a command to the machine's open command channel and returns a
+     * future for its ack. A command without an id gets one here. Fails with
+     * IllegalStateException when the machine has no channel; the future fails
+     * with a TimeoutException if no ack arrives in time.
+     */
+    public CompletableFuture<CommandAck> sendCommand(MachineCommand command) {
+        CommandChannel channel = channels.get(command.getMachineId());
+        if (channel == null) {
+            throw new IllegalStateException("Machine " + command.getMachineId() + " has no open command channel");
+        }
+        String commandId = command.getCommandId().isEmpty() ? UUID.randomUUID().toString() : command.getCommandId();
+        CompletableFuture<CommandAck> ack = new CompletableFuture<>();
+        pending.put(commandId, new PendingCommand(command.getMachineId(), ack));
+        ack.orTimeout(commandTimeoutMs, TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+            pending.remove(commandId);
+            if (error instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+            }
+        });
+
+        if (!channel.push(command.toBuilder().setCommandId(commandId).build())) {
+            ack.completeExceptionally(new IllegalStateException("Command channel for machine "
+                    + command.getMachineId() + " closed"));
+        } else {
+            commandsSent.incrementAndGet();
+        }
+        return ack;
+    }
+
+    // BREW <brewType> or STATUS ON|OFF
+    public static MachineCommand command(Integer machineId, String type, String value) {
+        MachineCommand.Builder command = MachineCommand.newBuilder().setMachineId(machineId);
+        if ("BREW".equalsIgnoreCase(type)) {
+            command.setBrew(BrewAction.newBuilder().setBrewType(value.toUpperCase()));
+        } else if ("STATUS".equalsIgnoreCase(type) && ("ON".equalsIgnoreCase(value) || "OFF".equalsIgnoreCase(value))) {
+            command.setStatus(StatusAction.newBuilder().setStatus(value.toUpperCase()));
+        } else {
+            throw new IllegalArgumentException("Unsupported command: " + type + " " + value);
+        }
+        return command.build();
+    }
+
+    // One client's command stream; it may speak for several machines (e.g. a facility gateway)
+    private final class CommandChannel implements StreamObserver<CommandChannelMessage> {
+
+        private final ServerCallStreamObserver<MachineCommand> out;
+        private final Integer facilityId;
+        private final Set<Integer> machineIds = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        CommandChannel(ServerCallStreamObserver<MachineCommand> out, Integer facilityId) {
+            this.out = out;
+            this.facilityId = facilityId;
+            out.setOnCancelHandler(this::close);
+        }
+
+        @Override
+        public void onNext(CommandChannelMessage message) {
+            if (message.hasHello()) {
+                for (Integer machineId : message.getHello().getMachineIdsList()) {
+                    Integer machineFacility = machineFacilityCache.getFacilityId(machineId);
+                    // Unknown machines and machines outside the token's facility are ignored
+                    if (machineFacility != null && (facilityId == null || facilityId.equals(machineFacility))) {
+                        machineIds.add(machineId);
+                        channels.put(machineId, this);
+                    }
+                }
+            } else if (message.hasAck()) {
+                CommandAck ack = message.getAck();
+                PendingCommand command = pending.get(ack.getCommandId());
+                // Only the channel the command went out on may answer it
+                if (command != null && machineIds.contains(command.machineId())) {
+                    if (ack.getSuccess()) {
+                        acks.incrementAndGet();
+                    } else {
+                        nacks.incrementAndGet();
+                    }
+                    command.ack().complete(ack);
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+
+        @Override
+        public void onCompleted() {
+            close();
+            synchronized (this) {
+                out.onCompleted();
+            }
+        }
+
+        synchronized boolean push(MachineCommand command) {
+            if (closed || out.isCancelled()) {
+                return false;
+            }
+            try {
+                out.onNext(command);
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        // Commands still waiting on this channel will never be answered
+        private void close() {
+            closed = true;
+            for (Integer machineId : machineIds) {
+                channels.remove(machineId, this);
+            }
+            for (PendingCommand command : pending.values()) {
+                if (machineIds.contains(command.machineId()) && !channels.containsKey(command.machineId())) {
+                    command.ack().completeExceptionally(
+                            new IllegalStateException("Command channel for machine " + command.machineId() + " closed"));
+                }
+            }
+        }
+    }
+
+    private static Integer facilityOfCaller() {
+        DeviceTokenService.DeviceScope scope = DEVICE_SCOPE.get();
+        return scope != null ? scope.facilityId() : null;
+    }
+
+    // Unset optional fields stay null, so sparse readings keep their meaning
+    static CoffeeMachineDataDto toDto(MachineReading reading) {
+        CoffeeMachineDataDto dto = new CoffeeMachineDataDto();
+        dto.setMachineId(reading.getMachineId());
+        if (reading.hasFacilityId()) {
+            dto.setFacilityId(reading.getFacilityId());
+        }
+        if (reading.hasStatus()) {
+            dto.setStatus(reading.getStatus());
+        }
+        if (reading.hasTemperature()) {
+            dto.setTemperature(reading.getTemperature());
+        }
+        if (reading.hasWaterLevel()) {
+            dto.setWaterLevel(reading.getWaterLevel());
+        }
+        if (reading.hasMilkLevel()) {
+            dto.setMilkLevel(reading.getMilkLevel());
+        }
+        if (reading.hasBeansLevel()) {
+            dto.setBeansLevel(reading.getBeansLevel());
+        }
+        if (reading.hasSugarLevel()) {
+            dto.setSugarLevel(reading.getSugarLevel());
+        }
+        if (reading.hasBrewType()) {
+            dto.setBrewType(reading.getBrewType());
+        }
+        if (reading.hasCommandId()) {
+            dto.setCommandId(reading.getCommandId());
+        }
+        if (reading.hasTimestampMs()) {
+            dto.setTimeStamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(reading.getTimestampMs()),
+                    ZoneId.systemDefault()));
+        }
+        if (reading.hasEpoch()) {
+            dto.setEpoch(reading.getEpoch());
+        }
+        if (reading.hasSeq()) {
+            dto.setSeq(reading.getSeq());
+        }
+        return dto;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("telemetryStreams", telemetryStreams.get());
+        stats.put("openTelemetryStreams", sessions.size());
+        stats.put("readings", readings.get());
+        stats.put("connectedMachines", channels.size());
+        stats.put("commandsSent", commandsSent.get());
+        stats.put("acks", acks.get());
+        stats.put("nacks", nacks.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("pendingCommands", pending.size());
+        return stats;
+    }
+}
@@ -0,0 +1,228 @@
+package com.coffee.coffeeApp.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+
+/**
+ * Offline detection from telemetry heartbeats using a hashed timing wheel.
+ *
+ * A heartbeat only stores the arrival time on the machine's entry (one map
+ * lookup and a volatile write, no locking). Entries are not moved on every
+ * message: when the tick reaches an entry's slot it recomputes the deadline
+ * from the last heartbeat and either re-files the entry further along the
+ * wheel or expires it. Deadlines more than one revolution away simply get
+ * re-filed again on the next pass. Work per message is O(1) and work per tick
+ * is proportional to the entries in that slot.
+ *
+ * While the subscriber is disconnected from the broker the wheel is
+ * suspended, so a broker outage does not flag the whole fleet offline.
+ */
+@Service
+public class HeartbeatTracker {
+
+    private static final class Entry {
+        final int machineId;
+        volatile long lastSeenMs;
+        final AtomicBoolean offline = new AtomicBoolean();
+        // Set while the entry is filed in (or queued for) the wheel
+        final AtomicBoolean armed = new AtomicBoolean();
+
+        Entry(int machineId) {
+            this.machineId = machineId;
+        }
+    }
+
+    private final long tickMs;
+    private final long timeoutMs;
+    private final LongSupplier clock;
+    private final long startMs;
+
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+
+    // Wheel state below is only touched by the tick thread
+    private final List<List<Entry>> wheel;
+    private long currentTick;
+
+    private volatile boolean suspended;
+    private volatile long resumedAtMs;
+
+    private final AtomicLong heartbeats = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong recoveries = new AtomicLong();
+    private final AtomicInteger offlineCount = new AtomicInteger();
+
+    @Autowired
+    @Lazy
+    private CoffeeMachineService coffeeMachineService;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Autowired
+    public HeartbeatTracker(@Value("${app.heartbeat.tick-ms:1000}") long tickMs,
+            @Value("${app.heartbeat.timeout-ms:60000}") long timeoutMs,
+            @Value("${app.heartbeat.wheel-size:512}") int wheelSize) {
+        this(tickMs, timeoutMs, wheelSize, System::currentTimeMillis);
+    }
+
+    HeartbeatTracker(long tickMs, long timeoutMs, int wheelSize, LongSupplier clock) {
+        this.tickMs = tickMs;
+        this.timeoutMs = timeoutMs;
+        this.clock = clock;
+        this.startMs = clock.getAsLong();
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayList<>());
+        }
+    }
+
+    // Arm every machine that is expected to be sending, so one that never reports is caught too
+    @EventListener(ApplicationReadyEvent.class)
+    public void armRunningMachines() {
+        coffeeMachineRepository.findActiveRowsByStatus("ON").forEach(row -> heartbeat(row.id()));
+        System.out.println("Heartbeat tracker armed for " + entries.size() + " machines (timeout " + timeoutMs + " ms)");
+    }
+
+    // Called from the ingest path for every telemetry message; true when this ends an offline spell
+    public boolean heartbeat(Integer machineId) {
+        if (machineId == null) {
+            return false;
+        }
+        boolean recovered = false;
+        Entry entry = entries.computeIfAbsent(machineId, Entry::new);
+        entry.lastSeenMs = clock.getAsLong();
+        heartbeats.incrementAndGet();
+        if (entry.offline.get() && entry.offline.compareAndSet(true, false)) {
+            offlineCount.decrementAndGet();
+            recoveries.incrementAndGet();
+            recovered = true;
+        }
+        if (entry.armed.compareAndSet(false, true)) {
+            pending.add(entry);
+        }
+        return recovered;
+    }
+
+    // Machine deliberately switched off or deleted: stop expecting heartbeats
+    public void forget(Integer machineId) {
+        Entry entry = entries.remove(machineId);
+        if (entry != null && entry.offline.get()) {
+            offlineCount.decrementAndGet();
+        }
+    }
+
+    public void suspend() {
+        suspended = true;
+    }
+
+    // Silence while suspended was not the machines' fault: count from now
+    public void resume() {
+        resumedAtMs = clock.getAsLong();
+        suspended = false;
+    }
+
+    @Scheduled(fixedRateString = "${app.heartbeat.tick-ms:1000}")
+    public void tick() {
+        if (suspended) {
+            return;
+        }
+        long nowTick = (clock.getAsLong() - startMs) / tickMs;
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            file(entry);
+        }
+        while (currentTick < nowTick) {
+            currentTick++;
+            int slot = (int) (currentTick % wheel.size());
+            List<Entry> due = wheel.get(slot);
+            wheel.set(slot, new ArrayList<>());
+            for (Entry candidate : due) {
+                if (entries.get(candidate.machineId) != candidate) {
+                    // Forgotten; a later heartbeat creates a fresh entry
+                    continue;
+                }
+                if (deadlineTick(candidate) > currentTick) {
+                    file(candidate);
+                } else {
+                    expire(candidate);
+                }
+            }
+        }
+    }
+
+    private void file(Entry entry) {
+        long deadline = Math.max(deadlineTick(entry), currentTick + 1);
+        wheel.get((int) (deadline % wheel.size())).add(entry);
+    }
+
+    private long deadlineTick(Entry entry) {
+        long lastSeen = Math.max(entry.lastSeenMs, resumedAtMs);
+        long deadlineMs = lastSeen + timeoutMs;
+        // Round up so a deadline never fires early
+        return (deadlineMs - startMs + tickMs - 1) / tickMs;
+    }
+
+    private void expire(Entry entry) {
+        entry.armed.set(false);
+        // A heartbeat may have landed between the deadline check and disarming
+        if (deadlineTick(entry) > currentTick) {
+            if (entry.armed.compareAndSet(false, true)) {
+                file(entry);
+            }
+            return;
+        }
+        if (!entry.offline.compareAndSet(false, true)) {
+            return;
+        }
+        offlineCount.incrementAndGet();
+        expirations.incrementAndGet();
+        long silentMs = clock.getAsLong() - entry.lastSeenMs;
+        try {
+            onOffline(entry.machineId, silentMs);
+        } catch (Exception e) {
+            System.out.println("Failed to mark machine " + entry.machineId + " offline: " + e.getMessage());
+        }
+    }
+
+    protected void onOffline(int machineId, long silentMs) {
+        coffeeMachineService.markOffline(machineId, silentMs);
+    }
+
+    public boolean isOffline(Integer machineId) {
+        Entry entry = entries.get(machineId);
+        return entry != null && entry.offline.get();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedMachines", entries.size());
+        stats.put("offlineMachines", offlineCount.get());
+        stats.put("heartbeats", heartbeats.get());
+        stats.put("expirations", expirations.get());
+        stats.put("recoveries", recoveries.get());
+        stats.put("suspended", suspended);
+        stats.put("timeoutMs", timeoutMs);
+        stats.put("tickMs", tickMs);
+        stats.put("wheelSize", wheel.size());
+        return stats;
+    }
+}
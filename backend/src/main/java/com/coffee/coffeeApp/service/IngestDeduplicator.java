@@ -0,0 +1,219 @@
+package com.coffee.coffeeApp.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
+
+/**
+ * Drops QoS 1 redeliveries before any ingest work is done.
+ *
+ * A message is keyed by (machineId, epoch, seq) when the publisher sends a
+ * sequence number, otherwise by (machineId, timestamp). Per machine we keep the
+ * current epoch, the highest key seen and a small window of the most recent
+ * keys. Keys above the high-watermark are new (the usual case), keys inside
+ * the window are checked against it, and keys older than the whole window are
+ * dropped as stale. A newer epoch means the publisher restarted its counter and
+ * resets the machine's window. Messages with neither seq nor timestamp cannot
+ * be keyed and are always let through.
+ */
+@Service
+public class IngestDeduplicator {
+
+    // Epoch used for timestamp-keyed messages, so switching key type resets the window
+    private static final long TIMESTAMP_EPOCH = Long.MIN_VALUE;
+
+    private static final class Window {
+        long epoch;
+        long high = Long.MIN_VALUE;
+        final long[] keys;
+        int size;
+
+        Window(long epoch, int capacity) {
+            this.epoch = epoch;
+            this.keys = new long[capacity];
+        }
+
+        boolean contains(long key) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long oldest() {
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, keys[i]);
+            }
+            return min;
+        }
+
+        // Adds the key, evicting the oldest once full
+        void add(long key) {
+            if (size < keys.length) {
+                keys[size++] = key;
+            } else {
+                int oldest = 0;
+                for (int i = 1; i < size; i++) {
+                    if (keys[i] < keys[oldest]) {
+                        oldest = i;
+                    }
+                }
+                keys[oldest] = key;
+            }
+            high = Math.max(high, key);
+        }
+
+        // Removes the key; a high-watermark it set falls back to the largest remaining key
+        void remove(long key) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    keys[i] = keys[--size];
+                    if (key == high) {
+                        high = Long.MIN_VALUE;
+                        for (int j = 0; j < size; j++) {
+                            high = Math.max(high, keys[j]);
+                        }
+                    }
+                    return;
+                }
+            }
+        }
+
+        void reset(long newEpoch) {
+            epoch = newEpoch;
+            high = Long.MIN_VALUE;
+            size = 0;
+        }
+    }
+
+    private final boolean enabled;
+    private final int windowSize;
+    private final ConcurrentHashMap<Integer, Window> windows = new ConcurrentHashMap<>();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong unkeyed = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+
+    public IngestDeduplicator(@Value("${app.ingest.dedupe.enabled:true}") boolean enabled,
+            @Value("${app.ingest.dedupe.window-size:32}") int windowSize) {
+        this.enabled = enabled;
+        this.windowSize = windowSize;
+    }
+
+    // True when the message is new and should be processed
+    public boolean accept(CoffeeMachineDataDto dto) {
+        if (!enabled || dto.getMachineId() == null) {
+            return true;
+        }
+        if (dto.getSeq() == null && dto.getTimeStamp() == null) {
+            unkeyed.incrementAndGet();
+            return true;
+        }
+        long epoch = epochOf(dto);
+        long key = keyOf(dto);
+
+        Window window = windows.computeIfAbsent(dto.getMachineId(), id -> new Window(epoch, windowSize));
+        boolean isNew;
+        synchronized (window) {
+            if (window.epoch != epoch) {
+                if (epoch != TIMESTAMP_EPOCH && window.epoch != TIMESTAMP_EPOCH && epoch < window.epoch) {
+                    // Left over from a publisher run we have already moved past
+                    stale.incrementAndGet();
+                    return false;
+                }
+                window.reset(epoch);
+                resets.incrementAndGet();
+            }
+            if (key > window.high) {
+                isNew = true;
+            } else if (window.contains(key)) {
+                isNew = false;
+            } else if (window.size == windowSize && key < window.oldest()) {
+                stale.incrementAndGet();
+                return false;
+            } else {
+                isNew = true;
+            }
+            if (isNew) {
+                window.add(key);
+            }
+        }
+
+        if (isNew) {
+            accepted.incrementAndGet();
+        } else {
+            duplicates.incrementAndGet();
+        }
+        return isNew;
+    }
+
+    /**
+     * Takes back an accepted message whose write failed, so that the
+     * publisher's retry of the same key is processed instead of being dropped
+     * as a duplicate.
+     */
+    public void release(CoffeeMachineDataDto dto) {
+        if (!enabled || dto.getMachineId() == null || (dto.getSeq() == null && dto.getTimeStamp() == null)) {
+            return;
+        }
+        Window window = windows.get(dto.getMachineId());
+        if (window == null) {
+            return;
+        }
+        synchronized (window) {
+            // After an epoch reset the key is no longer in the window anyway
+            if (window.epoch == epochOf(dto)) {
+                window.remove(keyOf(dto));
+                released.incrementAndGet();
+            }
+        }
+    }
+
+    public void forget(Integer machineId) {
+        windows.remove(machineId);
+    }
+
+    // Sequence-keyed when the publisher sends seq, timestamp-keyed otherwise
+    private static long epochOf(CoffeeMachineDataDto dto) {
+        if (dto.getSeq() != null) {
+            return dto.getEpoch() == null ? 0L : dto.getEpoch();
+        }
+        return TIMESTAMP_EPOCH;
+    }
+
+    private static long keyOf(CoffeeMachineDataDto dto) {
+        return dto.getSeq() != null ? dto.getSeq() : timestampKey(dto.getTimeStamp());
+    }
+
+    private static long timestampKey(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("accepted", accepted.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("stale", stale.get());
+        stats.put("unkeyed", unkeyed.get());
+        stats.put("epochResets", resets.get());
+        stats.put("releasedAfterFailedWrite", released.get());
+        stats.put("trackedMachines", windows.size());
+        stats.put("windowSize", windowSize);
+        return stats;
+    }
+}
@@ -1,29 +1,86 @@
 package com.coffee.coffeeApp.service;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import org.eclipse.paho.client.mqttv3.IMqttClient;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
 import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
 import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import com.coffee.coffeeApp.config.DatabaseConcurrencyLimiter;
 import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PreDestroy;
 
+/**
+ * Telemetry ingest from coffeemachine/+/data (one reading per message) and
+ * facility/+/telemetry (a gateway's JSON array of readings for its machines,
+ * written in one transaction; readings for machines of another facility than
+ * the topic's are dropped).
+ *
+ * Messages are acknowledged manually: the PUBACK goes out only once every
+ * reading the message carried has been written or filtered out. A message
+ * whose write failed stays unacknowledged and is redelivered by the broker
+ * after the next reconnect (readings of it that were written are then dropped
+ * as duplicates).
+ *
+ * With mqtt.session.durable=true the subscriber uses the configured
+ * mqtt.client-id, a persistent session (cleanSession=false) and on-disk Paho
+ * persistence, so the broker queues QoS 1 messages while the backend is down
+ * or disconnected. After every (re)connect the subscriber is in catch-up mode:
+ * readings are queued and written in batches of mqtt.catch-up.batch-size per
+ * transaction until the queue is empty and the newest reading is within
+ * mqtt.catch-up.live-lag-ms of now. After that, each message is written on its own again.
+ */
 @Service
 public class MQTTSubscriberService {
 
-	private final CoffeeMachineService coffeeMachineService;
-	private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+	private static final String MACHINE_TOPIC = "coffeemachine/+/data";
+	private static final String FACILITY_TOPIC = "facility/+/telemetry";
+
+	private final TelemetryIngestService telemetryIngestService;
 	private final ObjectMapper objectMapper;
+	private final HeartbeatTracker heartbeatTracker;
+	private final TaskExecutor executor;
 
-	public MQTTSubscriberService(CoffeeMachineService coffeeMachineService, ObjectMapper objectMapper) {
-		this.coffeeMachineService = coffeeMachineService;
+	public MQTTSubscriberService(TelemetryIngestService telemetryIngestService, ObjectMapper objectMapper,
+			DatabaseConcurrencyLimiter databaseConcurrencyLimiter, HeartbeatTracker heartbeatTracker) {
+		this.telemetryIngestService = telemetryIngestService;
 		this.objectMapper = objectMapper;
+		this.heartbeatTracker = heartbeatTracker;
+		this.executor = createExecutor(databaseConcurrencyLimiter.isVirtualThreads());
+	}
+
+	// One virtual thread per message, or the original 50-thread pool
+	private static TaskExecutor createExecutor(boolean virtualThreads) {
+		if (virtualThreads) {
+			return new VirtualThreadTaskExecutor("mqtt-ingest-");
+		}
+		ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+		pool.setCorePoolSize(50);
+		pool.setMaxPoolSize(50);
+		pool.setThreadNamePrefix("mqtt-ingest-");
+		pool.initialize();
+		return pool;
 	}
 
 	@Value("${mqtt.broker.url}")
@@ -35,44 +92,391 @@ public class MQTTSubscriberService {
 	@Value("${mqtt.password}")
 	private String password;
 
-	private IMqttClient client;
+	@Value("${mqtt.session.durable:false}")
+	private boolean durableSession;
+
+	// Required for a durable session and must be unique per backend instance; otherwise only a prefix
+	@Value("${mqtt.client-id:}")
+	private String clientId;
+
+	@Value("${mqtt.persistence.dir:mqtt-persistence}")
+	private String persistenceDir;
+
+	@Value("${mqtt.catch-up.batch-size:500}")
+	private int catchUpBatchSize;
+
+	@Value("${mqtt.catch-up.live-lag-ms:10000}")
+	private long liveLagMs;
+
+	@Value("${mqtt.shutdown.drain-timeout-ms:10000}")
+	private long drainTimeoutMs;
+
+	private volatile MqttClient client;
+
+	// Catch-up state: readings waiting for a batch write, and messages still being parsed/filtered
+	private final LinkedBlockingQueue<Queued> backlog = new LinkedBlockingQueue<>(100_000);
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile boolean catchingUp;
+	private volatile boolean stopping;
+	private Thread backlogWriter;
+
+	private final AtomicLong received = new AtomicLong();
+	private final AtomicLong gatewayMessages = new AtomicLong();
+	private final AtomicLong gatewayReadings = new AtomicLong();
+	private final AtomicLong gatewayRejected = new AtomicLong();
+	private final AtomicLong catchUpWritten = new AtomicLong();
+	private final AtomicLong catchUpBatches = new AtomicLong();
+	private final AtomicLong catchUpRuns = new AtomicLong();
+	private final AtomicLong acked = new AtomicLong();
+	private final AtomicLong unacked = new AtomicLong();
+	private volatile long catchUpStartedMs;
+	private volatile long lastCatchUpMs;
+	private volatile long lastLagMs;
 
 	public void start() throws MqttException {
-		String clientId = "backend-subscriber-" + UUID.randomUUID();
-		MqttClient client = new MqttClient(broker, clientId, new MemoryPersistence());
+		if (durableSession && clientId.isBlank()) {
+			// A shared fixed id would have instances take over each other's session
+			throw new IllegalStateException("mqtt.session.durable=true needs a per-instance mqtt.client-id");
+		}
+		MqttClientPersistence persistence = durableSession ? new MqttDefaultFilePersistence(persistenceDir)
+				: new MemoryPersistence();
+		String id = durableSession ? clientId
+				: (clientId.isBlank() ? "backend-subscriber" : clientId) + "-" + UUID.randomUUID();
+		MqttClient client = new MqttClient(broker, id, persistence);
+		this.client = client;
+		// PUBACK only after the readings are written, see Delivery
+		client.setManualAcks(true);
 
 		MqttConnectOptions options = new MqttConnectOptions();
 		options.setUserName(username);
 		options.setPassword(password.toCharArray());
 		options.setAutomaticReconnect(true);
-		options.setCleanSession(true);
+		options.setCleanSession(!durableSession);
+
+		// Pause offline detection while we (not the machines) are cut off from the broker
+		client.setCallback(new MqttCallbackExtended() {
+			@Override
+			public void connectComplete(boolean reconnect, String serverURI) {
+				heartbeatTracker.resume();
+				if (durableSession) {
+					// The broker now replays whatever it queued for us
+					beginCatchUp();
+				} else if (reconnect) {
+					// A clean session loses its subscription on reconnect; don't block the callback thread
+					executor.execute(() -> subscribe(client));
+				}
+			}
+
+			@Override
+			public void connectionLost(Throwable cause) {
+				System.out.println("MQTT connection lost: " + cause.getMessage());
+				heartbeatTracker.suspend();
+			}
+
+			// Queued session messages can arrive before subscribe() returns, so everything is handled here
+			@Override
+			public void messageArrived(String topic, MqttMessage message) {
+				dispatch(topic, message);
+			}
+
+			@Override
+			public void deliveryComplete(IMqttDeliveryToken token) {
+			}
+		});
+
+		if (durableSession) {
+			catchingUp = true;
+			backlogWriter = new Thread(this::writeBacklog, "mqtt-catch-up");
+			backlogWriter.setDaemon(true);
+			backlogWriter.start();
+		}
 
 		// connecting to the broker...
 		client.connect(options);
 
 		// subscribing to all coffee machine topics...
-		client.subscribe("coffeemachine/+/data", (topic, msg) -> {
-			executorService.submit(() -> {
+		subscribe(client);
+
+		System.out.println("MQTT Subscriber listening on topics " + MACHINE_TOPIC + ", " + FACILITY_TOPIC
+				+ (durableSession ? " (durable session " + id + ")" : ""));
+	}
+
+	private void subscribe(MqttClient client) {
+		try {
+			client.subscribe(new String[] { MACHINE_TOPIC, FACILITY_TOPIC }, new int[] { 1, 1 });
+		} catch (MqttException e) {
+			System.out.println("MQTT subscribe failed: " + e.getMessage());
+		}
+	}
+
+	// Left unacknowledged while stopping, so the broker redelivers it
+	private void dispatch(String topic, MqttMessage message) {
+		if (stopping) {
+			return;
+		}
+		received.incrementAndGet();
+		inFlight.incrementAndGet();
+		Delivery delivery = new Delivery(message.getId(), message.getQos());
+		byte[] payload = message.getPayload();
+		try {
+			executor.execute(() -> {
 				try {
-					String payload = new String(msg.getPayload());
-					CoffeeMachineDataDto dto = objectMapper.readValue(payload, CoffeeMachineDataDto.class);
-					coffeeMachineService.updateMachineData(dto);
-					System.out.println(payload);
-				} catch (Exception e) {
-					e.printStackTrace();
+					if (topic.startsWith("facility/")) {
+						processGateway(topic, payload, delivery);
+					} else {
+						process(payload, delivery);
+					}
+				} finally {
+					inFlight.decrementAndGet();
 				}
 			});
-		});
-		
-		System.out.println("MQTT Subscriber listening on topic coffeemachine/+/data");
+		} catch (RuntimeException e) {
+			inFlight.decrementAndGet();
+			throw e;
+		}
 	}
-	
+
+	private void process(byte[] payload, Delivery delivery) {
+		boolean handled = false;
+		try {
+			CoffeeMachineDataDto dto = objectMapper.readValue(payload, CoffeeMachineDataDto.class);
+			if (telemetryIngestService.admit(dto) == TelemetryIngestService.Admission.WRITE
+					&& !(catchingUp && enqueue(dto, delivery))) {
+				telemetryIngestService.persist(dto);
+				System.out.println(new String(payload));
+			}
+			handled = true;
+		} catch (IOException e) {
+			// Unreadable payload: a redelivery would fail the same way
+			handled = true;
+			e.printStackTrace();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			delivery.done(handled);
+		}
+	}
+
+	// Gateway batch: same filters per reading, then one transaction for whatever is left
+	private void processGateway(String topic, byte[] payload, Delivery delivery) {
+		boolean handled = false;
+		try {
+			CoffeeMachineDataDto[] readings = objectMapper.readValue(payload, CoffeeMachineDataDto[].class);
+			gatewayMessages.incrementAndGet();
+			gatewayReadings.addAndGet(readings.length);
+			Integer facilityId = facilityIdOf(topic);
+			if (facilityId == null) {
+				// Nothing to check the machines against; a redelivery would not fix the topic
+				gatewayRejected.addAndGet(readings.length);
+				handled = true;
+				return;
+			}
+
+			List<CoffeeMachineDataDto> batch = new ArrayList<>(readings.length);
+			for (CoffeeMachineDataDto dto : readings) {
+				// A gateway speaks only for its own facility's machines
+				if (!telemetryIngestService.inScope(dto, facilityId)) {
+					gatewayRejected.incrementAndGet();
+					continue;
+				}
+				if (telemetryIngestService.admit(dto) == TelemetryIngestService.Admission.WRITE
+						&& !(catchingUp && enqueue(dto, delivery))) {
+					batch.add(dto);
+				}
+			}
+			handled = batch.isEmpty() || telemetryIngestService.writeBatch(batch) == batch.size();
+		} catch (IOException e) {
+			handled = true;
+			e.printStackTrace();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			delivery.done(handled);
+		}
+	}
+
+	// Hands a reading to the catch-up writer; its message is acknowledged after the batch write
+	private boolean enqueue(CoffeeMachineDataDto dto, Delivery delivery) {
+		delivery.hold();
+		if (backlog.offer(new Queued(dto, delivery))) {
+			return true;
+		}
+		delivery.done(true);
+		return false;
+	}
+
+	private record Queued(CoffeeMachineDataDto dto, Delivery delivery) {
+	}
+
+	/**
+	 * One received message. Processing holds one count and every reading
+	 * queued for the catch-up writer another; when the last is done the
+	 * message is acknowledged, unless some write failed.
+	 */
+	private final class Delivery {
+		private final int messageId;
+		private final int qos;
+		private final AtomicInteger pending = new AtomicInteger(1);
+		private volatile boolean failed;
+
+		Delivery(int messageId, int qos) {
+			this.messageId = messageId;
+			this.qos = qos;
+		}
+
+		void hold() {
+			pending.incrementAndGet();
+		}
+
+		void done(boolean written) {
+			if (!written) {
+				failed = true;
+			}
+			if (pending.decrementAndGet() > 0) {
+				return;
+			}
+			if (failed) {
+				unacked.incrementAndGet();
+				return;
+			}
+			try {
+				client.messageArrivedComplete(messageId, qos);
+				acked.incrementAndGet();
+			} catch (MqttException e) {
+				// Disconnected meanwhile: the broker redelivers and the dedupe window drops it
+				unacked.incrementAndGet();
+				System.out.println("MQTT ack of message " + messageId + " failed: " + e.getMessage());
+			}
+		}
+	}
+
+	private static Integer facilityIdOf(String topic) {
+		String[] parts = topic.split("/");
+		try {
+			return parts.length > 1 ? Integer.valueOf(parts[1]) : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private void beginCatchUp() {
+		catchUpStartedMs = System.currentTimeMillis();
+		catchUpRuns.incrementAndGet();
+		catchingUp = true;
+	}
+
+	// Single writer for the catch-up queue; runs for the life of a durable subscriber
+	private void writeBacklog() {
+		List<Queued> batch = new ArrayList<>(catchUpBatchSize);
+		List<CoffeeMachineDataDto> readings = new ArrayList<>(catchUpBatchSize);
+		while (!stopping || !backlog.isEmpty() || inFlight.get() > 0) {
+			try {
+				Queued first = backlog.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					// Nothing queued for a second: whatever the broker held has been delivered
+					if (catchingUp && inFlight.get() == 0) {
+						endCatchUp();
+					}
+					continue;
+				}
+				batch.add(first);
+				backlog.drainTo(batch, catchUpBatchSize - 1);
+				for (Queued queued : batch) {
+					readings.add(queued.dto());
+				}
+				int written = telemetryIngestService.writeBatch(readings);
+				catchUpWritten.addAndGet(written);
+				catchUpBatches.incrementAndGet();
+				lastLagMs = lagMs(readings.get(readings.size() - 1));
+				for (Queued queued : batch) {
+					queued.delivery().done(written == readings.size());
+				}
+				batch.clear();
+				readings.clear();
+
+				if (catchingUp && backlog.isEmpty() && lastLagMs <= liveLagMs) {
+					endCatchUp();
+				} else if (catchUpBatches.get() % 20 == 0) {
+					System.out.println("MQTT catch-up: " + catchUpWritten.get() + " readings written, "
+							+ backlog.size() + " queued, " + (lastLagMs / 1000) + "s behind");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private void endCatchUp() {
+		catchingUp = false;
+		if (catchUpStartedMs > 0) {
+			lastCatchUpMs = System.currentTimeMillis() - catchUpStartedMs;
+		}
+		System.out.println("MQTT catch-up complete: " + catchUpWritten.get() + " readings in "
+				+ catchUpBatches.get() + " batches, " + lastCatchUpMs + " ms");
+	}
+
+	private static long lagMs(CoffeeMachineDataDto dto) {
+		if (dto.getTimeStamp() == null) {
+			return 0;
+		}
+		return Math.max(0, Duration.between(dto.getTimeStamp(), LocalDateTime.now()).toMillis());
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		MqttClient current = client;
+		stats.put("connected", current != null && current.isConnected());
+		stats.put("durableSession", durableSession);
+		stats.put("received", received.get());
+		stats.put("gatewayMessages", gatewayMessages.get());
+		stats.put("gatewayReadings", gatewayReadings.get());
+		stats.put("gatewayRejected", gatewayRejected.get());
+		stats.put("inFlight", inFlight.get());
+		stats.put("acked", acked.get());
+		stats.put("unackedAfterFailedWrite", unacked.get());
+		stats.put("catchingUp", catchingUp);
+		stats.put("catchUpRuns", catchUpRuns.get());
+		stats.put("catchUpQueued", backlog.size());
+		stats.put("catchUpWritten", catchUpWritten.get());
+		stats.put("catchUpBatches", catchUpBatches.get());
+		stats.put("catchUpLagMs", lastLagMs);
+		stats.put("lastCatchUpMs", lastCatchUpMs);
+		return stats;
+	}
+
+	// Stop taking messages, then let queued and in-flight readings finish (and be acked) before disconnecting
 	@PreDestroy
-	public void shutdown() throws MqttException{
-		if(client != null && client.isConnected()) {
-			client.disconnect();
-			client.close();
+	public void shutdown() throws MqttException {
+		stopping = true;
+
+		long deadline = System.currentTimeMillis() + drainTimeoutMs;
+		try {
+			if (backlogWriter != null) {
+				backlogWriter.join(drainTimeoutMs);
+			}
+			while ((inFlight.get() > 0 || !backlog.isEmpty()) && System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (inFlight.get() > 0 || !backlog.isEmpty()) {
+			System.out.println("MQTT shutdown: gave up draining with " + inFlight.get() + " in flight and "
+					+ backlog.size() + " queued");
+		}
+		if (backlogWriter != null) {
+			backlogWriter.interrupt();
+		}
+		MqttClient current = client;
+		if (current != null) {
+			if (current.isConnected()) {
+				current.disconnect();
+			}
+			current.close();
+		}
+		if (executor instanceof ThreadPoolTaskExecutor pool) {
+			pool.shutdown();
 		}
-		executorService.shutdown();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,331 @@
+package com.coffee.coffeeApp.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.coffee.coffeeApp.dto.MachineCommandAck;
+import com.coffee.grpc.telemetry.MachineCommand;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sends brew/status commands to machines and correlates their acks.
+ *
+ * A machine with an open gRPC command channel gets the command there;
+ * otherwise it is published as JSON on coffeemachine/{id}/cmd and the machine
+ * answers on coffeemachine/{id}/ack. Every command gets an id and an entry in
+ * the pending table, and its future completes when the matching ack arrives
+ * or fails after app.commands.timeout-ms. Publishing is asynchronous and acks
+ * complete on the MQTT callback thread, so no thread waits on a machine: a
+ * caller either chains on the future or uses {@link #dispatch} and moves on.
+ */
+@Service
+public class MachineCommandService {
+
+    public static final String COMMAND_TOPIC = "coffeemachine/%d/cmd";
+    private static final String ACK_TOPIC = "coffeemachine/+/ack";
+
+    private record PendingCommand(Integer machineId, CompletableFuture<MachineCommandAck> ack, long sentAtNanos) {
+    }
+
+    @Autowired
+    private GrpcTelemetryService grpcTelemetryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mqtt.broker.url}")
+    private String broker;
+
+    @Value("${mqtt.username}")
+    private String username;
+
+    @Value("${mqtt.password}")
+    private String password;
+
+    @Value("${mqtt.client-id:backend-subscriber}")
+    private String clientId;
+
+    @Value("${app.commands.timeout-ms:5000}")
+    private long timeoutMs;
+
+    // Unacknowledged QoS 1 publishes (PUBACK, not the machine's ack); beyond this a send fails fast
+    @Value("${app.commands.max-inflight:1000}")
+    private int maxInflight;
+
+    private volatile MqttAsyncClient client;
+
+    private final ConcurrentHashMap<String, PendingCommand> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong sentMqtt = new AtomicLong();
+    private final AtomicLong sentGrpc = new AtomicLong();
+    private final AtomicLong acks = new AtomicLong();
+    private final AtomicLong nacks = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong unmatchedAcks = new AtomicLong();
+    private final AtomicLong ackNanos = new AtomicLong();
+
+    // Own connection with a clean session: a command or ack that outlived the backend is useless
+    public void start() throws MqttException {
+        MqttAsyncClient client = new MqttAsyncClient(broker, clientId + "-commands-" + UUID.randomUUID(),
+                new MemoryPersistence());
+        this.client = client;
+
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setUserName(username);
+        options.setPassword(password.toCharArray());
+        options.setAutomaticReconnect(true);
+        options.setCleanSession(true);
+        options.setMaxInflight(maxInflight);
+
+        client.setCallback(new MqttCallbackExtended() {
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                try {
+                    client.subscribe(ACK_TOPIC, 1);
+                } catch (MqttException e) {
+                    System.out.println("MQTT command ack subscribe failed: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void connectionLost(Throwable cause) {
+                System.out.println("MQTT command connection lost: " + cause.getMessage());
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                handleAck(message.getPayload());
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+            }
+        });
+        client.connect(options).waitForCompletion();
+        System.out.println("MQTT command dispatcher publishing on coffeemachine/{id}/cmd, acks on " + ACK_TOPIC);
+    }
+
+    /**
+     * Sends BREW &lt;brewType&gt; or STATUS ON|OFF and returns a future for
+     * the machine's ack. Fails with IllegalArgumentException for an unknown
+     * command and IllegalStateException when the machine cannot be reached at
+     * all; the future fails with a TimeoutException when no ack arrives in time.
+     */
+    public CompletableFuture<MachineCommandAck> send(Integer machineId, String type, String value) {
+        return send(command(machineId, type, value));
+    }
+
+    private static MachineCommand command(Integer machineId, String type, String value) {
+        return GrpcTelemetryService.command(machineId, type, value).toBuilder()
+                .setCommandId(UUID.randomUUID().toString())
+                .build();
+    }
+
+    private CompletableFuture<MachineCommandAck> send(MachineCommand command) {
+        if (grpcTelemetryService.isConnected(command.getMachineId())) {
+            sentGrpc.incrementAndGet();
+            return grpcTelemetryService.sendCommand(command).thenApply(ack -> new MachineCommandAck(
+                    ack.getCommandId(), ack.getMachineId(), ack.getSuccess(), ack.getMessage(), "grpc"));
+        }
+        return publish(command);
+    }
+
+    // Fire and forget: the outcome is only logged and counted. Returns the command id, or null if it could not be sent.
+    public String dispatch(Integer machineId, String type, String value) {
+        MachineCommand command = command(machineId, type, value);
+        return dispatch(command, type, value) ? command.getCommandId() : null;
+    }
+
+    /**
+     * {@link #dispatch} once the caller's transaction has committed (right
+     * away outside one), so a machine is never told about a change that was
+     * rolled back. Returns the command id, or null when the machine has no
+     * channel up at the time of the call.
+     */
+    public String dispatchAfterCommit(Integer machineId, String type, String value) {
+        MachineCommand command = command(machineId, type, value);
+        if (!grpcTelemetryService.isConnected(machineId) && !isMqttConnected()) {
+            System.out.println("Command " + type + " " + value + " not sent: machine " + machineId
+                    + " has no command channel and MQTT is not connected");
+            return null;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(command, type, value);
+                }
+            });
+        } else {
+            dispatch(command, type, value);
+        }
+        return command.getCommandId();
+    }
+
+    private boolean dispatch(MachineCommand command, String type, String value) {
+        Integer machineId = command.getMachineId();
+        CompletableFuture<MachineCommandAck> ack;
+        try {
+            ack = send(command);
+        } catch (IllegalStateException e) {
+            System.out.println("Command " + type + " " + value + " not sent: " + e.getMessage());
+            return false;
+        }
+        ack.whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                System.out.println("Command " + type + " " + value + " to machine " + machineId + " failed: "
+                        + (cause instanceof TimeoutException ? "no ack" : cause.getMessage()));
+            } else if (!result.success()) {
+                System.out.println("Machine " + machineId + " refused " + type + " " + value + ": " + result.message());
+            }
+        });
+        return true;
+    }
+
+    private boolean isMqttConnected() {
+        MqttAsyncClient current = client;
+        return current != null && current.isConnected();
+    }
+
+    private CompletableFuture<MachineCommandAck> publish(MachineCommand command) {
+        MqttAsyncClient current = client;
+        if (current == null || !current.isConnected()) {
+            throw new IllegalStateException("Machine " + command.getMachineId()
+                    + " has no command channel and MQTT is not connected");
+        }
+        String commandId = command.getCommandId();
+        CompletableFuture<MachineCommandAck> ack = new CompletableFuture<>();
+        pending.put(commandId, new PendingCommand(command.getMachineId(), ack, System.nanoTime()));
+        ack.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+            pending.remove(commandId);
+            if (error instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+            }
+        });
+
+        try {
+            current.publish(String.format(COMMAND_TOPIC, command.getMachineId()), payload(command), 1, false, null,
+                    new IMqttActionListener() {
+                        @Override
+                        public void onSuccess(IMqttToken token) {
+                        }
+
+                        @Override
+                        public void onFailure(IMqttToken token, Throwable e) {
+                            failed.incrementAndGet();
+                            ack.completeExceptionally(new IllegalStateException("Command publish failed: "
+                                    + e.getMessage()));
+                        }
+                    });
+            sentMqtt.incrementAndGet();
+        } catch (MqttException e) {
+            // Including a full in-flight window
+            failed.incrementAndGet();
+            ack.completeExceptionally(new IllegalStateException("Command publish failed: " + e.getMessage()));
+        }
+        return ack;
+    }
+
+    // The machine can drop a command that reaches it after expiresAt (e.g. queued while it was offline)
+    private byte[] payload(MachineCommand command) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        json.put("commandId", command.getCommandId());
+        json.put("machineId", command.getMachineId());
+        if (command.hasBrew()) {
+            json.put("type", "BREW");
+            json.put("brewType", command.getBrew().getBrewType());
+        } else {
+            json.put("type", "STATUS");
+            json.put("status", command.getStatus().getStatus());
+        }
+        json.put("issuedAt", now);
+        json.put("expiresAt", now + timeoutMs);
+        try {
+            return objectMapper.writeValueAsBytes(json);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // {"commandId": "...", "machineId": 1, "success": true, "message": "..."}
+    void handleAck(byte[] payload) {
+        JsonNode ack;
+        try {
+            ack = objectMapper.readTree(payload);
+        } catch (Exception e) {
+            unmatchedAcks.incrementAndGet();
+            return;
+        }
+        PendingCommand command = pending.get(ack.path("commandId").asText());
+        // Late (already timed out) or for a command another instance sent
+        if (command == null || command.machineId() != ack.path("machineId").asInt()) {
+            unmatchedAcks.incrementAndGet();
+            return;
+        }
+        boolean success = ack.path("success").asBoolean();
+        if (success) {
+            acks.incrementAndGet();
+        } else {
+            nacks.incrementAndGet();
+        }
+        ackNanos.addAndGet(System.nanoTime() - command.sentAtNanos());
+        command.ack().complete(new MachineCommandAck(ack.path("commandId").asText(), command.machineId(), success,
+                ack.path("message").asText(null), "mqtt"));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        MqttAsyncClient current = client;
+        long answered = acks.get() + nacks.get();
+        stats.put("mqttConnected", current != null && current.isConnected());
+        stats.put("sentMqtt", sentMqtt.get());
+        stats.put("sentGrpc", sentGrpc.get());
+        stats.put("pending", pending.size());
+        stats.put("acks", acks.get());
+        stats.put("nacks", nacks.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("failed", failed.get());
+        stats.put("unmatchedAcks", unmatchedAcks.get());
+        stats.put("avgAckMillis", answered == 0 ? 0.0 : ackNanos.get() / 1e6 / answered);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws MqttException {
+        MqttAsyncClient current = client;
+        if (current != null) {
+            if (current.isConnected()) {
+                current.disconnect().waitForCompletion(5000);
+            }
+            current.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.coffee.coffeeApp.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+
+/**
+ * Machine id -> facility id, kept in memory so alert producers can stamp the
+ * facility without reading the machine row. Loaded once the app is ready and
+ * maintained by CoffeeMachineService; a miss falls back to a scalar query.
+ */
+@Service
+public class MachineFacilityCache {
+
+    private final CoffeeMachineRepository coffeeMachineRepository;
+    private final Map<Integer, Integer> facilityByMachine = new ConcurrentHashMap<>();
+
+    public MachineFacilityCache(CoffeeMachineRepository coffeeMachineRepository) {
+        this.coffeeMachineRepository = coffeeMachineRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Object[] row : coffeeMachineRepository.findAllMachineFacilityIds()) {
+            facilityByMachine.put((Integer) row[0], (Integer) row[1]);
+        }
+        System.out.println("Machine facility cache loaded with " + facilityByMachine.size() + " machines");
+    }
+
+    // Null if the machine does not exist
+    public Integer getFacilityId(Integer machineId) {
+        Integer facilityId = facilityByMachine.get(machineId);
+        if (facilityId == null) {
+            facilityId = coffeeMachineRepository.findFacilityIdByMachineId(machineId).orElse(null);
+            if (facilityId != null) {
+                facilityByMachine.put(machineId, facilityId);
+            }
+        }
+        return facilityId;
+    }
+
+    public void put(Integer machineId, Integer facilityId) {
+        if (machineId != null && facilityId != null) {
+            facilityByMachine.put(machineId, facilityId);
+        }
+    }
+
+    public void remove(Integer machineId) {
+        facilityByMachine.remove(machineId);
+    }
+}
@@ -0,0 +1,88 @@
+package com.coffee.coffeeApp.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.coffee.coffeeApp.entity.Facility;
+import com.coffee.coffeeApp.entity.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Explicit eviction and statistics for the Facility/User second-level cache.
+ * Evictions run after the surrounding transaction commits so a concurrent
+ * reader cannot re-cache the old row in between.
+ */
+@Service
+public class ReferenceDataCacheService {
+
+    private static final String[] REGIONS = { "facility", "user", "default-query-results-region" };
+
+    private final SessionFactory sessionFactory;
+
+    public ReferenceDataCacheService(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public void evictFacility(Integer facilityId) {
+        afterCommit(() -> {
+            sessionFactory.getCache().evictEntityData(Facility.class, facilityId);
+            sessionFactory.getCache().evictDefaultQueryRegion();
+        });
+    }
+
+    public void evictUser(Integer userId) {
+        afterCommit(() -> {
+            if (userId != null) {
+                sessionFactory.getCache().evictEntityData(User.class, userId);
+            }
+            sessionFactory.getCache().evictDefaultQueryRegion();
+        });
+    }
+
+    public Map<String, Object> getStatistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : REGIONS) {
+            CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+            if (regionStats == null) {
+                continue;
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("hits", regionStats.getHitCount());
+            stats.put("misses", regionStats.getMissCount());
+            stats.put("puts", regionStats.getPutCount());
+            stats.put("elementsInMemory", regionStats.getElementCountInMemory());
+            regions.put(region, stats);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        result.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        result.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        result.put("regions", regions);
+        return result;
+    }
+
+    private void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.coffee.coffeeApp.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
+import com.coffee.coffeeApp.dto.MachineLiveReading;
+
+/**
+ * Report-by-exception stage in front of {@link CoffeeMachineService#updateMachineData}.
+ *
+ * Every reading replaces the machine's entry in the in-memory live view. It is
+ * only written to the database when it differs from the last persisted reading:
+ * a level moved by more than epsilon, the temperature by more than its own
+ * epsilon, the status changed, a brew was reported, or max-interval-ms passed
+ * since the last write. Callers can force a write (e.g. a machine coming back
+ * from OFFLINE), and anything that changes the machine row outside telemetry
+ * must {@link #invalidate} it so the next reading is written unconditionally.
+ */
+@Service
+public class TelemetryDeadbandFilter {
+
+    // Last values written for a machine and when; a sparse message only replaces the fields it carries
+    private record Persisted(String status, Float temperature, Float waterLevel, Float milkLevel, Float beansLevel,
+            Float sugarLevel, long persistedAtMs) {
+
+        static Persisted of(CoffeeMachineDataDto dto, Persisted last, long now) {
+            if (last == null) {
+                return new Persisted(dto.getStatus(), dto.getTemperature(), dto.getWaterLevel(), dto.getMilkLevel(),
+                        dto.getBeansLevel(), dto.getSugarLevel(), now);
+            }
+            return new Persisted(or(dto.getStatus(), last.status), or(dto.getTemperature(), last.temperature),
+                    or(dto.getWaterLevel(), last.waterLevel), or(dto.getMilkLevel(), last.milkLevel),
+                    or(dto.getBeansLevel(), last.beansLevel), or(dto.getSugarLevel(), last.sugarLevel), now);
+        }
+
+        private static <T> T or(T value, T fallback) {
+            return value != null ? value : fallback;
+        }
+    }
+
+    private final boolean enabled;
+    private final float levelEpsilon;
+    private final float temperatureEpsilon;
+    private final long maxIntervalMs;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<Integer, MachineLiveReading> live = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Persisted> persisted = new ConcurrentHashMap<>();
+
+    private final AtomicLong readings = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong intervalWrites = new AtomicLong();
+
+    @Autowired
+    public TelemetryDeadbandFilter(@Value("${app.telemetry.deadband.enabled:true}") boolean enabled,
+            @Value("${app.telemetry.deadband.level-epsilon:1.0}") float levelEpsilon,
+            @Value("${app.telemetry.deadband.temperature-epsilon:2.0}") float temperatureEpsilon,
+            @Value("${app.telemetry.deadband.max-interval-ms:60000}") long maxIntervalMs) {
+        this(enabled, levelEpsilon, temperatureEpsilon, maxIntervalMs, System::currentTimeMillis);
+    }
+
+    TelemetryDeadbandFilter(boolean enabled, float levelEpsilon, float temperatureEpsilon, long maxIntervalMs,
+            LongSupplier clock) {
+        this.enabled = enabled;
+        this.levelEpsilon = levelEpsilon;
+        this.temperatureEpsilon = temperatureEpsilon;
+        this.maxIntervalMs = maxIntervalMs;
+        this.clock = clock;
+    }
+
+    // Records the reading in the live view and returns whether it should be persisted
+    public boolean offer(CoffeeMachineDataDto dto, boolean force) {
+        if (dto.getMachineId() == null) {
+            return false;
+        }
+        readings.incrementAndGet();
+        live.compute(dto.getMachineId(), (id, previous) -> MachineLiveReading.of(dto, previous));
+
+        long now = clock.getAsLong();
+        boolean[] write = new boolean[1];
+        // compute() keeps decide-and-record atomic when two readings for one machine race
+        persisted.compute(dto.getMachineId(), (id, last) -> {
+            if (!enabled || force || last == null || hasBrew(dto) || changed(last, dto)) {
+                write[0] = true;
+            } else if (now - last.persistedAtMs() >= maxIntervalMs) {
+                write[0] = true;
+                intervalWrites.incrementAndGet();
+            }
+            return write[0] ? Persisted.of(dto, last, now) : last;
+        });
+
+        if (write[0]) {
+            written.incrementAndGet();
+        } else {
+            suppressed.incrementAndGet();
+        }
+        return write[0];
+    }
+
+    // The write did not happen or the row changed elsewhere: persist the next reading regardless
+    public void invalidate(Integer machineId) {
+        if (machineId != null) {
+            persisted.remove(machineId);
+        }
+    }
+
+    public void forget(Integer machineId) {
+        invalidate(machineId);
+        if (machineId != null) {
+            live.remove(machineId);
+        }
+    }
+
+    public MachineLiveReading getLiveReading(Integer machineId) {
+        return live.get(machineId);
+    }
+
+    public List<MachineLiveReading> getLiveReadings(Integer facilityId) {
+        List<MachineLiveReading> result = new ArrayList<>();
+        for (MachineLiveReading reading : live.values()) {
+            if (facilityId == null || facilityId.equals(reading.facilityId())) {
+                result.add(reading);
+            }
+        }
+        return result;
+    }
+
+    // Fields absent from the message count as unchanged
+    private boolean changed(Persisted last, CoffeeMachineDataDto dto) {
+        return (dto.getStatus() != null && !dto.getStatus().equalsIgnoreCase(last.status()))
+                || moved(dto.getTemperature(), last.temperature(), temperatureEpsilon)
+                || moved(dto.getWaterLevel(), last.waterLevel(), levelEpsilon)
+                || moved(dto.getMilkLevel(), last.milkLevel(), levelEpsilon)
+                || moved(dto.getBeansLevel(), last.beansLevel(), levelEpsilon)
+                || moved(dto.getSugarLevel(), last.sugarLevel(), levelEpsilon);
+    }
+
+    private static boolean moved(Float current, Float last, float epsilon) {
+        return current != null && (last == null || Math.abs(current - last) > epsilon);
+    }
+
+    private static boolean hasBrew(CoffeeMachineDataDto dto) {
+        return dto.getBrewType() != null && !"None".equalsIgnoreCase(dto.getBrewType());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long total = readings.get();
+        stats.put("enabled", enabled);
+        stats.put("readings", total);
+        stats.put("written", written.get());
+        stats.put("suppressed", suppressed.get());
+        stats.put("intervalWrites", intervalWrites.get());
+        stats.put("suppressedRatio", total == 0 ? 0.0 : (double) suppressed.get() / total);
+        stats.put("liveMachines", live.size());
+        stats.put("levelEpsilon", levelEpsilon);
+        stats.put("temperatureEpsilon", temperatureEpsilon);
+        stats.put("maxIntervalMs", maxIntervalMs);
+        return stats;
+    }
+}
@@ -0,0 +1,268 @@
+package com.coffee.coffeeApp.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The ingest pipeline shared by MQTT, HTTP and gRPC: dedupe, heartbeat and deadband
+ * for every reading, then a single or batched write through
+ * {@link CoffeeMachineService}.
+ */
+@Service
+public class TelemetryIngestService {
+
+    public enum Admission {
+        DUPLICATE, UNCHANGED, WRITE
+    }
+
+    @Autowired
+    private CoffeeMachineService coffeeMachineService;
+
+    @Autowired
+    private HeartbeatTracker heartbeatTracker;
+
+    @Autowired
+    private TelemetryDeadbandFilter telemetryDeadbandFilter;
+
+    @Autowired
+    private IngestDeduplicator ingestDeduplicator;
+
+    @Autowired
+    private MachineFacilityCache machineFacilityCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.ingest.batch-size:500}")
+    private int batchSize;
+
+    // Dedupe, heartbeat and deadband; WRITE when the reading still needs a database write
+    public Admission admit(CoffeeMachineDataDto dto) {
+        // QoS 1 redelivery: already handled, and it must not roll the live view back
+        if (!ingestDeduplicator.accept(dto)) {
+            return Admission.DUPLICATE;
+        }
+        boolean recovered = heartbeatTracker.heartbeat(dto.getMachineId());
+        // Unchanged readings only refresh the live view
+        return telemetryDeadbandFilter.offer(dto, recovered) ? Admission.WRITE : Admission.UNCHANGED;
+    }
+
+    public void persist(CoffeeMachineDataDto dto) {
+        boolean persisted = false;
+        try {
+            coffeeMachineService.updateMachineData(dto);
+            persisted = true;
+        } finally {
+            // Not written after all: don't let the deadband compare against it, and let a retry through
+            if (!persisted) {
+                telemetryDeadbandFilter.invalidate(dto.getMachineId());
+                ingestDeduplicator.release(dto);
+            }
+        }
+    }
+
+    // One transaction for the whole batch; if that fails, one at a time. Returns how many were written.
+    public int writeBatch(List<CoffeeMachineDataDto> batch) {
+        try {
+            return coffeeMachineService.updateMachineDataBatch(batch);
+        } catch (RuntimeException e) {
+            System.out.println("Telemetry batch of " + batch.size() + " failed, retrying one by one: "
+                    + e.getMessage());
+        }
+        int written = 0;
+        for (CoffeeMachineDataDto dto : batch) {
+            try {
+                persist(dto);
+                written++;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Streams an NDJSON body (one CoffeeMachineDataDto per line) through the
+     * pipeline in batches of app.ingest.batch-size. Records are read one at a
+     * time from the parser, so the body is never held in memory. A record that
+     * does not bind, has no machineId, names an unknown machine or one outside
+     * {@code facilityId} (when given) is rejected on its own; malformed JSON
+     * ends the stream, keeping whatever was ingested before it.
+     */
+    public Map<String, Object> ingestNdjson(InputStream body, Integer facilityId) throws IOException {
+        List<Map<String, Object>> batches = new ArrayList<>();
+        String error = null;
+
+        Session session = openSession(facilityId);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            while (true) {
+                JsonNode node;
+                try {
+                    if (parser.nextToken() == null) {
+                        break;
+                    }
+                    node = parser.getCurrentToken() == JsonToken.START_OBJECT ? parser.readValueAsTree() : null;
+                    if (node == null) {
+                        parser.skipChildren();
+                    }
+                } catch (JsonProcessingException e) {
+                    error = "Malformed JSON after " + session.received() + " records: " + e.getOriginalMessage();
+                    break;
+                }
+
+                Map<String, Object> batch = session.offer(bind(node));
+                if (batch != null) {
+                    batches.add(batch);
+                }
+            }
+        }
+        Map<String, Object> last = session.flush();
+        if (last != null) {
+            batches.add(last);
+        }
+
+        Map<String, Object> result = session.getTotals();
+        result.put("batches", batches);
+        if (error != null) {
+            result.put("error", error);
+        }
+        return result;
+    }
+
+    public Session openSession(Integer facilityId) {
+        return new Session(facilityId);
+    }
+
+    /**
+     * One ingest stream (an NDJSON body, a gRPC telemetry stream): readings are
+     * scoped to the caller's facility, admitted one by one and written in
+     * batches of app.ingest.batch-size, with per-batch and running counts.
+     */
+    public final class Session {
+
+        private final Integer facilityId;
+        private BatchCounts counts = new BatchCounts();
+        private List<CoffeeMachineDataDto> pending = new ArrayList<>();
+        private final long[] totals = new long[4];
+        // When the first reading of the current batch arrived; 0 while the batch is empty
+        private volatile long batchStartedMs;
+
+        private Session(Integer facilityId) {
+            this.facilityId = facilityId;
+        }
+
+        // A null reading counts as rejected. Returns the batch this reading completed, if any.
+        public synchronized Map<String, Object> offer(CoffeeMachineDataDto dto) {
+            if (counts.received++ == 0) {
+                batchStartedMs = System.currentTimeMillis();
+            }
+            if (dto == null || !inScope(dto, facilityId)) {
+                counts.rejected++;
+            } else {
+                switch (admit(dto)) {
+                case DUPLICATE -> counts.duplicates++;
+                case UNCHANGED -> counts.accepted++;
+                case WRITE -> pending.add(dto);
+                }
+            }
+            return counts.received >= batchSize ? flush() : null;
+        }
+
+        // Writes whatever is pending; null when nothing was received since the last flush
+        public synchronized Map<String, Object> flush() {
+            if (counts.received == 0) {
+                return null;
+            }
+            if (!pending.isEmpty()) {
+                int written = writeBatch(pending);
+                counts.accepted += written;
+                counts.rejected += pending.size() - written;
+            }
+            totals[0] += counts.received;
+            totals[1] += counts.accepted;
+            totals[2] += counts.rejected;
+            totals[3] += counts.duplicates;
+
+            Map<String, Object> batch = new LinkedHashMap<>();
+            batch.put("received", counts.received);
+            batch.put("accepted", counts.accepted);
+            batch.put("rejected", counts.rejected);
+            batch.put("duplicates", counts.duplicates);
+            counts = new BatchCounts();
+            pending = new ArrayList<>();
+            batchStartedMs = 0;
+            return batch;
+        }
+
+        public synchronized long received() {
+            return totals[0] + counts.received;
+        }
+
+        public long getBatchStartedMs() {
+            return batchStartedMs;
+        }
+
+        // Flushed batches only
+        public synchronized Map<String, Object> getTotals() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("received", totals[0]);
+            result.put("accepted", totals[1]);
+            result.put("rejected", totals[2]);
+            result.put("duplicates", totals[3]);
+            return result;
+        }
+    }
+
+    private static final class BatchCounts {
+        long received;
+        long accepted;
+        long rejected;
+        long duplicates;
+    }
+
+    private CoffeeMachineDataDto bind(JsonNode node) {
+        if (node == null) {
+            return null;
+        }
+        try {
+            return objectMapper.treeToValue(node, CoffeeMachineDataDto.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * True when the reading names a known machine that belongs to
+     * {@code facilityId} (any facility when null) and does not claim another
+     * facility itself; a missing facilityId is filled in from the machine.
+     */
+    public boolean inScope(CoffeeMachineDataDto dto, Integer facilityId) {
+        if (dto.getMachineId() == null) {
+            return false;
+        }
+        Integer machineFacility = machineFacilityCache.getFacilityId(dto.getMachineId());
+        if (machineFacility == null || (facilityId != null && !facilityId.equals(machineFacility))
+                || (dto.getFacilityId() != null && !dto.getFacilityId().equals(machineFacility))) {
+            return false;
+        }
+        if (dto.getFacilityId() == null) {
+            dto.setFacilityId(machineFacility);
+        }
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 package com.coffee.coffeeApp.service;
 
 import com.coffee.coffeeApp.dto.UsageHistoryDto;
+import com.coffee.coffeeApp.dto.UsageHistoryRow;
 import com.coffee.coffeeApp.entity.UsageHistory;
 import com.coffee.coffeeApp.repository.UsageHistoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -49,18 +50,18 @@ public class UsageHistoryService {
     // Get all usage records
     @Transactional(readOnly = true)
     public List<UsageHistoryDto> getAllUsage() {
-        return usageHistoryRepository.findByIsActiveTrue()
+        return usageHistoryRepository.findActiveRows()
                 .stream()
-                .map(this::convertToDto)
+                .map(UsageHistoryRow::toDto)
                 .collect(Collectors.toList());
     }
     
     // Get usage by machine
     @Transactional(readOnly = true)
     public List<UsageHistoryDto> getUsageByMachine(String machineId) {
-        return usageHistoryRepository.findByMachineIdAndIsActiveTrueOrderByTimestampDesc(Integer.parseInt(machineId))
+        return usageHistoryRepository.findActiveRowsByMachineId(Integer.parseInt(machineId))
                 .stream()
-                .map(this::convertToDto)
+                .map(UsageHistoryRow::toDto)
                 .collect(Collectors.toList());
     }
     
@@ -76,45 +77,45 @@ public class UsageHistoryService {
     // Get usage by brew type
     @Transactional(readOnly = true)
     public List<UsageHistoryDto> getUsageByBrewType(String brewType) {
-        return usageHistoryRepository.findByBrewTypeAndIsActiveTrueOrderByTimestampDesc(brewType)
+        return usageHistoryRepository.findActiveRowsByBrewType(brewType)
                 .stream()
-                .map(this::convertToDto)
+                .map(UsageHistoryRow::toDto)
                 .collect(Collectors.toList());
     }
     
     // Get usage within date range
     @Transactional(readOnly = true)
     public List<UsageHistoryDto> getUsageByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return usageHistoryRepository.findUsageByDateRange(startDate, endDate)
+        return usageHistoryRepository.findRowsByDateRange(startDate, endDate)
                 .stream()
-                .map(this::convertToDto)
+                .map(UsageHistoryRow::toDto)
                 .collect(Collectors.toList());
     }
     
     // Get usage by machine within date range
     @Transactional(readOnly = true)
     public List<UsageHistoryDto> getUsageByMachineAndDateRange(String machineId, LocalDateTime startDate, LocalDateTime endDate) {
-        return usageHistoryRepository.findUsageByMachineAndDateRange(Integer.parseInt(machineId), startDate, endDate)
+        return usageHistoryRepository.findRowsByMachineAndDateRange(Integer.parseInt(machineId), startDate, endDate)
                 .stream()
-                .map(this::convertToDto)
+                .map(UsageHistoryRow::toDto)
                 .collect(Collectors.toList());
     }
 
     // Get today's usage
     @Transactional(readOnly = true)
     public List<UsageHistoryDto> getTodayUsage() {
-        return usageHistoryRepository.findTodayUsage()
+        return usageHistoryRepository.findTodayRows()
                 .stream()
-                .map(this::convertToDto)
+                .map(UsageHistoryRow::toDto)
                 .collect(Collectors.toList());
     }
     
     // Get today's usage by machine
     @Transactional(readOnly = true)
     public List<UsageHistoryDto> getTodayUsageByMachine(String machineId) {
-        return usageHistoryRepository.findTodayUsageByMachine(Integer.parseInt(machineId))
+        return usageHistoryRepository.findTodayRowsByMachine(Integer.parseInt(machineId))
                 .stream()
-                .map(this::convertToDto)
+                .map(UsageHistoryRow::toDto)
                 .collect(Collectors.toList());
     }
     
@@ -122,17 +123,17 @@ public class UsageHistoryService {
     @Transactional(readOnly = true)
     public List<UsageHistoryDto> getRecentUsage(int hours) {
         LocalDateTime since = LocalDateTime.now().minusHours(hours);
-        return usageHistoryRepository.findRecentUsage(since)
+        return usageHistoryRepository.findRecentRows(since)
                 .stream()
-                .map(this::convertToDto)
+                .map(UsageHistoryRow::toDto)
                 .collect(Collectors.toList());
     }
     
     // Get usage statistics
     @Transactional(readOnly = true)
     public UsageStatistics getUsageStatistics() {
-        long totalUsage = usageHistoryRepository.findByIsActiveTrue().size();
-        long todayUsage = usageHistoryRepository.findTodayUsage().size();
+        long totalUsage = usageHistoryRepository.countByIsActiveTrue();
+        long todayUsage = usageHistoryRepository.countTodayUsage();
         Double averageUsagePerDay = usageHistoryRepository.getAverageUsagePerDay();
         
         return new UsageStatistics(totalUsage, todayUsage, averageUsagePerDay != null ? averageUsagePerDay : 0.0);
@@ -20,6 +20,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ReferenceDataCacheService referenceDataCacheService;
+
     // Create new user
     public UserDto createUser(UserDto userDto) {
         validateUserDto(userDto);
@@ -38,6 +41,7 @@ public class UserService {
         user.setIsActive(true);
 
         User savedUser = userRepository.save(user);
+        referenceDataCacheService.evictUser(savedUser.getId());
         return convertToDto(savedUser);
     }
 
@@ -112,6 +116,7 @@ public class UserService {
         existingUser.setRole(userDto.getRole());
 
         User savedUser = userRepository.save(existingUser);
+        referenceDataCacheService.evictUser(savedUser.getId());
         return convertToDto(savedUser);
     }
 
@@ -123,6 +128,7 @@ public class UserService {
 
         user.setIsActive(false);
         userRepository.save(user);
+        referenceDataCacheService.evictUser(user.getId());
     }
 
     // Reactivate user
@@ -132,6 +138,7 @@ public class UserService {
 
         user.setIsActive(true);
         User savedUser = userRepository.save(user);
+        referenceDataCacheService.evictUser(savedUser.getId());
         return convertToDto(savedUser);
     }
 
@@ -0,0 +1,73 @@
+-- Schema before the versioned changes below: identity ids, telemetry columns on coffee_machine. A fresh database
+-- starts here; an existing one is baselined at this version (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE facility (
+    id INT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    location VARCHAR(255) NOT NULL,
+    is_active BIT NOT NULL,
+    creation_date DATETIME(6) NOT NULL,
+    last_update DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE users (
+    id INT NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role ENUM ('ADMIN', 'FACILITY') NOT NULL,
+    is_active BIT NOT NULL,
+    facility_id INT,
+    creation_date DATETIME(6) NOT NULL,
+    last_update DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT fk_users_facility FOREIGN KEY (facility_id) REFERENCES facility (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE coffee_machine (
+    id INT NOT NULL AUTO_INCREMENT,
+    facility_id INT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    temperature FLOAT(23),
+    water_level FLOAT(23),
+    sugar_level FLOAT(23),
+    milk_level FLOAT(23),
+    beans_level FLOAT(23),
+    is_active BIT NOT NULL,
+    creation_date DATETIME(6) NOT NULL,
+    last_update DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_coffee_machine_facility FOREIGN KEY (facility_id) REFERENCES facility (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE alert_log (
+    id INT NOT NULL AUTO_INCREMENT,
+    machine_id INT NOT NULL,
+    facility_id INT,
+    alert_type VARCHAR(255) NOT NULL,
+    message VARCHAR(500) NOT NULL,
+    is_acknowledged BIT NOT NULL,
+    timestamp DATETIME(6) NOT NULL,
+    is_active BIT NOT NULL,
+    creation_date DATETIME(6) NOT NULL,
+    last_update DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_alert_log_machine FOREIGN KEY (machine_id) REFERENCES coffee_machine (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE usage_history (
+    id INT NOT NULL AUTO_INCREMENT,
+    machine_id INT NOT NULL,
+    user_id INT,
+    timestamp DATETIME(6) NOT NULL,
+    brew_type VARCHAR(255) NOT NULL,
+    is_active BIT NOT NULL,
+    creation_date DATETIME(6) NOT NULL,
+    last_update DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_usage_history_machine FOREIGN KEY (machine_id) REFERENCES coffee_machine (id),
+    CONSTRAINT fk_usage_history_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
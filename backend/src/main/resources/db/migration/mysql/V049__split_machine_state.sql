@@ -0,0 +1,25 @@
+-- Telemetry (temperature, supply levels) moves from coffee_machine to machine_state, one row per machine
+-- sharing its id.
+
+CREATE TABLE machine_state (
+    machine_id INT NOT NULL,
+    temperature FLOAT,
+    water_level FLOAT,
+    sugar_level FLOAT,
+    milk_level FLOAT,
+    beans_level FLOAT,
+    last_update DATETIME(6) NOT NULL,
+    PRIMARY KEY (machine_id),
+    CONSTRAINT fk_machine_state_machine FOREIGN KEY (machine_id) REFERENCES coffee_machine (id)
+) ENGINE = InnoDB;
+
+INSERT INTO machine_state (machine_id, temperature, water_level, sugar_level, milk_level, beans_level, last_update)
+SELECT id, temperature, water_level, sugar_level, milk_level, beans_level, last_update
+FROM coffee_machine;
+
+ALTER TABLE coffee_machine
+    DROP COLUMN temperature,
+    DROP COLUMN water_level,
+    DROP COLUMN sugar_level,
+    DROP COLUMN milk_level,
+    DROP COLUMN beans_level;
@@ -0,0 +1,21 @@
+-- coffee_machine, alert_log and usage_history ids move from AUTO_INCREMENT to Hibernate sequences. MySQL has no
+-- sequences, so each is a one-row table holding the next value; with the pooled-lo optimizer Hibernate reads
+-- next_val, advances it by 50 and uses next_val .. next_val + 49. Seed each past the current maximum id.
+-- Flyway applies it at startup, before the application hands out any id.
+
+CREATE TABLE coffee_machine_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO coffee_machine_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM coffee_machine;
+
+CREATE TABLE alert_log_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO alert_log_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM alert_log;
+
+CREATE TABLE usage_history_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO usage_history_seq (next_val) SELECT COALESCE(MAX(id), 0) + 1 FROM usage_history;
+
+-- Ids are assigned by the application from now on; machine_state and the history tables reference
+-- coffee_machine.id, so relax the foreign key checks while the column is redefined
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE coffee_machine MODIFY id INT NOT NULL;
+ALTER TABLE alert_log MODIFY id INT NOT NULL;
+ALTER TABLE usage_history MODIFY id INT NOT NULL;
+SET FOREIGN_KEY_CHECKS = 1;
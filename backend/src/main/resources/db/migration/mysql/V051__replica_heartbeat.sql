@@ -0,0 +1,5 @@
+-- Heartbeat row for ReplicaLagMonitor (app.datasource.replica.enabled=true): the primary's row is stamped every
+-- heartbeat interval and read back from the replica. Created here so the monitor itself never runs DDL.
+
+CREATE TABLE IF NOT EXISTS replica_heartbeat (id INT PRIMARY KEY, beat_at TIMESTAMP(3) NOT NULL) ENGINE = InnoDB;
+INSERT IGNORE INTO replica_heartbeat (id, beat_at) VALUES (1, CURRENT_TIMESTAMP(3));
@@ -0,0 +1,66 @@
+package com.coffee.coffeeApp.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.coffee.coffeeApp.repository.FacilityRepository;
+import com.coffee.coffeeApp.service.ChangeFeedService;
+
+// The "replica" is a second pool on the same in-memory H2 database
+@SpringBootTest(properties = {
+		"app.datasource.replica.enabled=true",
+		"app.datasource.replica.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"app.datasource.replica.username=sa",
+		"app.datasource.replica.password=" })
+@ActiveProfiles("test")
+class ReadReplicaRoutingTests {
+
+	@Autowired
+	private ReadReplicaRoutingDataSource routingDataSource;
+
+	@Autowired
+	private ReplicaLagMonitor lagMonitor;
+
+	@Autowired
+	private FacilityRepository facilityRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ChangeFeedService changeFeedService;
+
+	@Test
+	void readOnlyTransactionsUseReplicaAndWritesUsePrimary() {
+		lagMonitor.heartbeat();
+		assertTrue(lagMonitor.isReplicaUsable());
+
+		TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+		long replicaBefore = (Long) routingDataSource.getRoutingStats().get("replicaRoutes");
+		readOnly.executeWithoutResult(status -> facilityRepository.count());
+		assertEquals(replicaBefore + 1, routingDataSource.getRoutingStats().get("replicaRoutes"));
+
+		long primaryBefore = (Long) routingDataSource.getRoutingStats().get("primaryRoutes");
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> facilityRepository.count());
+		assertEquals(primaryBefore + 1, routingDataSource.getRoutingStats().get("primaryRoutes"));
+	}
+
+	// The token covers everything recorded up to now, so the rows must come from the primary
+	@Test
+	void changeFeedReadsFromPrimary() {
+		lagMonitor.heartbeat();
+		long replicaBefore = (Long) routingDataSource.getRoutingStats().get("replicaRoutes");
+		long primaryBefore = (Long) routingDataSource.getRoutingStats().get("primaryRoutes");
+		changeFeedService.getChangesSince(null);
+		assertEquals(replicaBefore, routingDataSource.getRoutingStats().get("replicaRoutes"));
+		assertEquals(primaryBefore + 1, routingDataSource.getRoutingStats().get("primaryRoutes"));
+	}
+}
@@ -0,0 +1,79 @@
+package com.coffee.coffeeApp.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.coffee.coffeeApp.dto.CoffeeMachineDto;
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ConditionalGetTests {
+
+    @Autowired
+    private CoffeeMachineController coffeeMachineController;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void unchangedMachinesAnswer304UntilAWriteCommits() {
+        ResponseEntity<List<CoffeeMachineDto>> first = coffeeMachineController.getAllMachines(get(null).request);
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+
+        Get unchanged = get(etag);
+        assertNull(coffeeMachineController.getAllMachines(unchanged.request));
+        assertEquals(304, unchanged.response.getStatus());
+
+        // A rolled-back write must not move the tag
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            touchFirstMachine();
+            status.setRollbackOnly();
+        });
+        assertNull(coffeeMachineController.getAllMachines(get(etag).request));
+
+        tx.executeWithoutResult(status -> touchFirstMachine());
+        ResponseEntity<List<CoffeeMachineDto>> changed = coffeeMachineController.getAllMachines(get(etag).request);
+        assertNotNull(changed);
+        assertNotEquals(etag, changed.getHeaders().getETag());
+    }
+
+    private void touchFirstMachine() {
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(0);
+        machine.setTemperature(machine.getTemperature() + 1.0f);
+        coffeeMachineRepository.save(machine);
+    }
+
+    private static Get get(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/machines");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        return new Get(new ServletWebRequest(request, response), response);
+    }
+
+    private record Get(ServletWebRequest request, MockHttpServletResponse response) {
+    }
+}
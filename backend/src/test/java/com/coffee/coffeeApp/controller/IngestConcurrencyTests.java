@@ -0,0 +1,98 @@
+package com.coffee.coffeeApp.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.coffee.coffeeApp.config.DatabaseConcurrencyLimiter;
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+
+// The limiter enforcing on platform threads, with as many concurrent posts as it has permits
+@SpringBootTest(properties = { "app.db.concurrency-limit.always=true", "spring.datasource.hikari.maximum-pool-size=4" })
+@ActiveProfiles("test")
+class IngestConcurrencyTests {
+
+    private static final int PERMITS = 4;
+
+    @Autowired
+    private IngestController ingestController;
+
+    @Autowired
+    private DatabaseConcurrencyLimiter databaseConcurrencyLimiter;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // One permit per transaction, for its duration only; a nested REQUIRES_NEW reuses it
+    @Test
+    void permitIsHeldForTheTransactionOnly() {
+        assertEquals(PERMITS, databaseConcurrencyLimiter.getStats().get("available"));
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        new TransactionTemplate(transactionManager).executeWithoutResult(outer -> {
+            coffeeMachineRepository.count();
+            assertEquals(PERMITS - 1, databaseConcurrencyLimiter.getStats().get("available"));
+            requiresNew.executeWithoutResult(inner -> assertEquals(PERMITS - 1,
+                    databaseConcurrencyLimiter.getStats().get("available")));
+        });
+        assertEquals(PERMITS, databaseConcurrencyLimiter.getStats().get("available"));
+    }
+
+    @Test
+    void concurrentPostsDoNotDeadlockOnTheLimiter() throws Exception {
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(0);
+        // Every poster already holds a permit when the ingest transactions begin
+        CyclicBarrier allHoldingPermits = new CyclicBarrier(PERMITS);
+        ExecutorService executor = Executors.newFixedThreadPool(PERMITS);
+        try {
+            List<Future<Integer>> posts = new ArrayList<>();
+            for (int i = 0; i < PERMITS; i++) {
+                String body = "{\"machineId\":" + machine.getId() + ",\"epoch\":" + System.nanoTime()
+                        + ",\"seq\":1,\"waterLevel\":" + (60 + i) + "}\n";
+                posts.add(executor.submit(() -> {
+                    databaseConcurrencyLimiter.acquire();
+                    try {
+                        allHoldingPermits.await(10, TimeUnit.SECONDS);
+                        return ingestController.ingest("test-gateway", post(body)).getStatusCode().value();
+                    } finally {
+                        databaseConcurrencyLimiter.release();
+                    }
+                }));
+            }
+            for (Future<Integer> post : posts) {
+                assertEquals(200, post.get(20, TimeUnit.SECONDS));
+            }
+            assertEquals(PERMITS, databaseConcurrencyLimiter.getStats().get("available"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static MockHttpServletRequest post(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/ingest");
+        request.setRequestURI("/api/ingest");
+        request.setContentType("application/x-ndjson");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,80 @@
+package com.coffee.coffeeApp.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+import com.coffee.coffeeApp.service.TelemetryIngestService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IngestControllerTests {
+
+    @Autowired
+    private IngestController ingestController;
+
+    @Autowired
+    private TelemetryIngestService telemetryIngestService;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Test
+    void ingestsNdjsonAndCountsEachRecord() throws Exception {
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(0);
+        long epoch = System.nanoTime();
+        String reading = "{\"machineId\":" + machine.getId() + ",\"epoch\":" + epoch + ",\"seq\":1,\"waterLevel\":55}";
+        String body = reading + "\n"
+                + reading + "\n"                                       // redelivered
+                + "{\"machineId\":\"not-a-number\"}\n"                 // does not bind
+                + "{\"machineId\":" + Integer.MAX_VALUE + ",\"seq\":1}\n" // unknown machine
+                + "[1,2]\n"                                            // not an object
+                + "{\"machineId\":" + machine.getId() + ",\"epoch\":" + epoch + ",\"seq\":2,\"waterLevel\":40}\n";
+
+        ResponseEntity<Map<String, Object>> response = ingestController.ingest("test-gateway", post(body));
+        Map<String, Object> result = response.getBody();
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(6L, result.get("received"));
+        assertEquals(2L, result.get("accepted"));
+        assertEquals(3L, result.get("rejected"));
+        assertEquals(1L, result.get("duplicates"));
+        assertEquals(1, ((List<?>) result.get("batches")).size());
+
+        assertEquals(401, ingestController.ingest("wrong", post(body)).getStatusCode().value());
+        assertEquals(401, ingestController.ingest(null, post(body)).getStatusCode().value());
+    }
+
+    @Test
+    void rejectsMachinesOutsideTheTokenFacilityAndStopsAtMalformedJson() throws Exception {
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(0);
+        String body = "{\"machineId\":" + machine.getId() + ",\"epoch\":" + System.nanoTime() + ",\"seq\":1}\n"
+                + "{\"machineId\": oops\n"
+                + "{\"machineId\":" + machine.getId() + "}\n";
+
+        Map<String, Object> result = telemetryIngestService.ingestNdjson(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), machine.getFacilityId() + 1000);
+        assertEquals(1L, result.get("received"));
+        assertEquals(1L, result.get("rejected"));
+        assertTrue(String.valueOf(result.get("error")).startsWith("Malformed JSON after 1 records"));
+    }
+
+    private static MockHttpServletRequest post(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/ingest");
+        request.setContentType("application/x-ndjson");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,56 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.coffee.coffeeApp.dto.AlertBulkActionDto;
+import com.coffee.coffeeApp.dto.AlertLogDto;
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AlertBulkActionTests {
+
+    @Autowired
+    private AlertLogService alertLogService;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Test
+    void acknowledgesAndResolvesMatchingAlertsInBulk() {
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(0);
+        String machineId = String.valueOf(machine.getId());
+        AlertLogDto first = alertLogService.createAlert(machineId, "MAINTENANCE", "bulk test 1");
+        alertLogService.createAlert(machineId, "MAINTENANCE", "bulk test 2");
+        alertLogService.createAlert(machineId, "TEMPERATURE", "bulk test 3");
+
+        AlertBulkActionDto byType = new AlertBulkActionDto();
+        byType.setMachineId(machineId);
+        byType.setAlertType("MAINTENANCE");
+        assertEquals(2, alertLogService.acknowledgeAlerts(byType));
+        // Already acknowledged alerts are not counted again
+        assertEquals(0, alertLogService.acknowledgeAlerts(byType));
+
+        AlertBulkActionDto byId = new AlertBulkActionDto();
+        byId.setIds(List.of(first.getId()));
+        assertEquals(1, alertLogService.resolveAlerts(byId));
+
+        AlertBulkActionDto byFacility = new AlertBulkActionDto();
+        byFacility.setFacilityId(String.valueOf(machine.getFacilityId()));
+        byFacility.setOlderThanHours(0);
+        assertTrue(alertLogService.resolveAlerts(byFacility) >= 2);
+        assertEquals(0, alertLogService.getAlertsByMachine(machineId).size());
+
+        assertThrows(IllegalArgumentException.class, () -> alertLogService.resolveAlerts(new AlertBulkActionDto()));
+    }
+}
@@ -0,0 +1,70 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.coffee.coffeeApp.dto.CoffeeMachineDto;
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+
+// Small ring so the overflow path is easy to reach
+@SpringBootTest(properties = "app.changes.buffer-size=4")
+@ActiveProfiles("test")
+class ChangeFeedServiceTests {
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void returnsOnlyTouchedMachinesAndFallsBackWhenTheRingOverflows() {
+        Map<String, Object> snapshot = changeFeedService.getChangesSince(null);
+        assertEquals("snapshot", snapshot.get("source"));
+        String token = (String) snapshot.get("token");
+
+        Integer touchedId = touchMachine(0);
+        Map<String, Object> delta = changeFeedService.getChangesSince(token);
+        assertEquals("buffer", delta.get("source"));
+        List<?> machines = (List<?>) delta.get("machines");
+        assertEquals(1, machines.size());
+        assertEquals(String.valueOf(touchedId), ((CoffeeMachineDto) machines.get(0)).getId());
+
+        // Nothing new since the latest token
+        Map<String, Object> empty = changeFeedService.getChangesSince((String) delta.get("token"));
+        assertTrue(((List<?>) empty.get("machines")).isEmpty());
+
+        // More changes than the ring holds: answered from lastUpdate instead
+        for (int i = 0; i < 5; i++) {
+            touchMachine(i % 2);
+        }
+        Map<String, Object> fallback = changeFeedService.getChangesSince(token);
+        assertEquals("database", fallback.get("source"));
+        assertTrue(((List<?>) fallback.get("machines")).size() >= 2);
+
+        assertThrows(IllegalArgumentException.class, () -> changeFeedService.getChangesSince("garbage"));
+    }
+
+    private Integer touchMachine(int index) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(index);
+            machine.setTemperature(machine.getTemperature() + 1.0f);
+            return coffeeMachineRepository.save(machine).getId();
+        });
+    }
+}
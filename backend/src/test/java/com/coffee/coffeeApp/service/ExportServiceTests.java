@@ -0,0 +1,90 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ExportServiceTests {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private AlertLogService alertLogService;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Test
+    void streamsFilteredAlertsAsGzipCsvAndNdjson() throws Exception {
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(1);
+        alertLogService.createAlert(String.valueOf(machine.getId()), "MAINTENANCE", "Descale, then \"flush\"");
+        alertLogService.createAlert(String.valueOf(machine.getId()), "TEMPERATURE", "Too hot");
+
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        long rows = exportService.exportAlerts(null, machine.getId(), null, null, ExportService.Format.CSV, true,
+                gzipped);
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(gzipped.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        String[] lines = csv.split("\n");
+        assertEquals(rows + 1, lines.length);
+        assertTrue(lines[0].startsWith("id,machineId,alertType,message"));
+        assertTrue(csv.contains("\"Descale, then \"\"flush\"\"\""));
+
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        exportService.exportAlerts(null, machine.getId(), null, null, ExportService.Format.NDJSON, false, plain);
+        String[] json = plain.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(rows, json.length);
+        assertTrue(json[0].startsWith("{\"id\":"));
+    }
+
+    // app.export.max-concurrent=2
+    @Test
+    void slotIsReleasedWhenTheRequestEndsWithoutRunningTheBody() throws Exception {
+        ServletWebRequest first = exportRequest();
+        exportService.withSlot(first, out -> { });
+        // A body that ran gives its slot back
+        exportService.withSlot(exportRequest(), out -> { }).writeTo(new ByteArrayOutputStream());
+        exportService.withSlot(exportRequest(), out -> { });
+        assertThrows(IllegalStateException.class, () -> exportService.withSlot(exportRequest(), out -> { }));
+
+        // Timed out or aborted before the executor ran the body: only the async completion is left
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(first);
+        asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(
+                (MockHttpServletRequest) first.getRequest(), (MockHttpServletResponse) first.getResponse()));
+        asyncManager.setTaskExecutor(mock(AsyncTaskExecutor.class));
+        asyncManager.startCallableProcessing(() -> null);
+        first.getRequest().getAsyncContext().complete();
+
+        exportService.withSlot(exportRequest(), out -> { });
+    }
+
+    private static ServletWebRequest exportRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/alerts/export");
+        request.setAsyncSupported(true);
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
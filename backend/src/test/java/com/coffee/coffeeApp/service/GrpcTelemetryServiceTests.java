@@ -0,0 +1,174 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.coffee.coffeeApp.config.GrpcServerConfig;
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+import com.coffee.grpc.telemetry.CommandAck;
+import com.coffee.grpc.telemetry.CommandChannelMessage;
+import com.coffee.grpc.telemetry.Hello;
+import com.coffee.grpc.telemetry.IngestSummary;
+import com.coffee.grpc.telemetry.MachineCommand;
+import com.coffee.grpc.telemetry.MachineReading;
+import com.coffee.grpc.telemetry.TelemetryIngestGrpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+
+// In-process server with the real interceptor and ingest pipeline
+@SpringBootTest
+@ActiveProfiles("test")
+class GrpcTelemetryServiceTests {
+
+    @Autowired
+    private GrpcTelemetryService grpcTelemetryService;
+
+    @Autowired
+    private DeviceTokenService deviceTokenService;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .addService(GrpcServerConfig.authenticated(grpcTelemetryService, deviceTokenService))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    private TelemetryIngestGrpc.TelemetryIngestStub stub(String token) {
+        Metadata headers = new Metadata();
+        headers.put(Metadata.Key.of("x-device-token", Metadata.ASCII_STRING_MARSHALLER), token);
+        return TelemetryIngestGrpc.newStub(channel).withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+    }
+
+    @Test
+    void streamsTelemetryThroughTheIngestPipeline() throws Exception {
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(0);
+        long epoch = System.nanoTime();
+        CompletableFuture<IngestSummary> summary = new CompletableFuture<>();
+
+        StreamObserver<MachineReading> readings = stub("test-gateway").streamTelemetry(observer(summary));
+        MachineReading reading = MachineReading.newBuilder().setMachineId(machine.getId()).setEpoch(epoch).setSeq(1)
+                .setWaterLevel(33f).setTimestampMs(System.currentTimeMillis()).build();
+        readings.onNext(reading);
+        readings.onNext(reading);
+        readings.onNext(MachineReading.newBuilder().setMachineId(Integer.MAX_VALUE).setSeq(1).build());
+        readings.onCompleted();
+
+        IngestSummary result = summary.get(10, TimeUnit.SECONDS);
+        assertEquals(3, result.getReceived());
+        assertEquals(1, result.getAccepted());
+        assertEquals(1, result.getRejected());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(33f, coffeeMachineRepository.findById(machine.getId()).orElseThrow().getWaterLevel());
+
+        CompletableFuture<IngestSummary> denied = new CompletableFuture<>();
+        stub("wrong").streamTelemetry(observer(denied)).onCompleted();
+        Throwable error = assertThrows(Exception.class, () -> denied.get(10, TimeUnit.SECONDS)).getCause();
+        assertEquals(Status.Code.UNAUTHENTICATED, Status.fromThrowable(error).getCode());
+    }
+
+    @Test
+    void pushesCommandsAndCompletesOnAck() throws Exception {
+        Integer machineId = coffeeMachineRepository.findByIsActiveTrue().get(0).getId();
+        assertFalse(grpcTelemetryService.isConnected(machineId));
+        assertThrows(IllegalStateException.class,
+                () -> grpcTelemetryService.sendCommand(GrpcTelemetryService.command(machineId, "STATUS", "OFF")));
+
+        // The client acks a brew and refuses anything else
+        CountDownLatch closed = new CountDownLatch(1);
+        StreamObserver<CommandChannelMessage>[] up = new StreamObserver[1];
+        up[0] = stub("test-gateway").commandChannel(new StreamObserver<>() {
+            @Override
+            public void onNext(MachineCommand command) {
+                up[0].onNext(CommandChannelMessage.newBuilder().setAck(CommandAck.newBuilder()
+                        .setCommandId(command.getCommandId())
+                        .setMachineId(command.getMachineId())
+                        .setSuccess(command.hasBrew())
+                        .setMessage(command.hasBrew() ? "Brewed " + command.getBrew().getBrewType() : "Refused"))
+                        .build());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                closed.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                closed.countDown();
+            }
+        });
+        up[0].onNext(CommandChannelMessage.newBuilder().setHello(Hello.newBuilder().addMachineIds(machineId)).build());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!grpcTelemetryService.isConnected(machineId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(grpcTelemetryService.isConnected(machineId));
+
+        CommandAck brewed = grpcTelemetryService.sendCommand(GrpcTelemetryService.command(machineId, "BREW", "latte"))
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(brewed.getSuccess());
+        assertEquals("Brewed LATTE", brewed.getMessage());
+        assertFalse(grpcTelemetryService.sendCommand(GrpcTelemetryService.command(machineId, "STATUS", "OFF"))
+                .get(5, TimeUnit.SECONDS).getSuccess());
+        assertThrows(IllegalArgumentException.class, () -> GrpcTelemetryService.command(machineId, "STATUS", "MAYBE"));
+
+        up[0].onCompleted();
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertFalse(grpcTelemetryService.isConnected(machineId));
+    }
+
+    private static <T> StreamObserver<T> observer(CompletableFuture<T> result) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+// Plain unit test: fake clock, 1s ticks, 5s timeout, deliberately small wheel so deadlines wrap
+class HeartbeatTrackerTests {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final List<Integer> flagged = new ArrayList<>();
+    private final HeartbeatTracker tracker = new HeartbeatTracker(1000, 5000, 4, now::get) {
+        @Override
+        protected void onOffline(int machineId, long silentMs) {
+            flagged.add(machineId);
+        }
+    };
+
+    @Test
+    void flagsOnlyMachinesThatStopReporting() {
+        tracker.heartbeat(1);
+        tracker.heartbeat(2);
+
+        // Machine 1 keeps reporting every 3s, machine 2 goes silent
+        for (int second = 1; second <= 12; second++) {
+            advance(1000);
+            if (second % 3 == 0) {
+                tracker.heartbeat(1);
+            }
+        }
+        assertEquals(List.of(2), flagged);
+        assertTrue(tracker.isOffline(2));
+        assertFalse(tracker.isOffline(1));
+
+        // Recovery re-arms; once both go silent both are flagged
+        tracker.heartbeat(2);
+        assertFalse(tracker.isOffline(2));
+        advance(7000);
+        assertEquals(3, flagged.size());
+        assertTrue(flagged.subList(1, 3).containsAll(List.of(1, 2)));
+    }
+
+    @Test
+    void suspendedWheelDoesNotExpireAndRestartsTheClockOnResume() {
+        tracker.heartbeat(7);
+        advance(2000);
+        tracker.suspend();
+        advance(10_000);
+        assertTrue(flagged.isEmpty());
+
+        tracker.resume();
+        advance(4000);
+        assertTrue(flagged.isEmpty());
+        advance(2000);
+        assertEquals(List.of(7), flagged);
+    }
+
+    @Test
+    void forgottenMachinesAreNotFlagged() {
+        tracker.heartbeat(3);
+        tracker.forget(3);
+        advance(10_000);
+        assertTrue(flagged.isEmpty());
+    }
+
+    private void advance(long ms) {
+        for (long step = 0; step < ms; step += 500) {
+            now.addAndGet(500);
+            tracker.tick();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
+
+// Plain unit test with a window of 4 keys per machine
+class IngestDeduplicatorTests {
+
+    private final IngestDeduplicator deduplicator = new IngestDeduplicator(true, 4);
+
+    private static CoffeeMachineDataDto message(int machineId, Long epoch, Long seq, LocalDateTime timestamp) {
+        CoffeeMachineDataDto dto = new CoffeeMachineDataDto();
+        dto.setMachineId(machineId);
+        dto.setEpoch(epoch);
+        dto.setSeq(seq);
+        dto.setTimeStamp(timestamp);
+        return dto;
+    }
+
+    @Test
+    void dropsRedeliveredSequenceNumbers() {
+        assertTrue(deduplicator.accept(message(1, 100L, 1L, null)));
+        assertTrue(deduplicator.accept(message(1, 100L, 3L, null)));
+        assertFalse(deduplicator.accept(message(1, 100L, 3L, null)));
+        // Out of order but not seen yet
+        assertTrue(deduplicator.accept(message(1, 100L, 2L, null)));
+        assertFalse(deduplicator.accept(message(1, 100L, 2L, null)));
+        // Same seq on another machine is a different message
+        assertTrue(deduplicator.accept(message(2, 100L, 3L, null)));
+
+        // Window holds 4 keys: once 5..7 arrive, seq 1 has fallen out and is stale
+        deduplicator.accept(message(1, 100L, 5L, null));
+        deduplicator.accept(message(1, 100L, 6L, null));
+        deduplicator.accept(message(1, 100L, 7L, null));
+        assertFalse(deduplicator.accept(message(1, 100L, 1L, null)));
+
+        // Publisher restarted: counter starts again under a newer epoch, the old epoch is stale
+        assertTrue(deduplicator.accept(message(1, 200L, 1L, null)));
+        assertFalse(deduplicator.accept(message(1, 100L, 8L, null)));
+
+        assertEquals(2L, deduplicator.getStats().get("duplicates"));
+        assertEquals(2L, deduplicator.getStats().get("stale"));
+    }
+
+    @Test
+    void fallsBackToTimestampWithoutSequence() {
+        LocalDateTime t = LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123_456_000);
+        assertTrue(deduplicator.accept(message(1, null, null, t)));
+        assertTrue(deduplicator.accept(message(1, null, null, t.plusSeconds(5))));
+        assertFalse(deduplicator.accept(message(1, null, null, t)));
+        // Nothing to key on: let it through
+        assertTrue(deduplicator.accept(message(1, null, null, null)));
+        assertTrue(deduplicator.accept(message(1, null, null, null)));
+    }
+
+    @Test
+    void releasedKeyIsAcceptedAgainOnRetry() {
+        assertTrue(deduplicator.accept(message(1, 100L, 1L, null)));
+        assertTrue(deduplicator.accept(message(1, 100L, 2L, null)));
+        // Write of seq 2 failed: the retry must not be dropped as a duplicate
+        deduplicator.release(message(1, 100L, 2L, null));
+        assertTrue(deduplicator.accept(message(1, 100L, 2L, null)));
+        assertFalse(deduplicator.accept(message(1, 100L, 2L, null)));
+        assertFalse(deduplicator.accept(message(1, 100L, 1L, null)));
+        // Releasing a key from an older epoch leaves the current window alone
+        assertTrue(deduplicator.accept(message(1, 200L, 1L, null)));
+        deduplicator.release(message(1, 100L, 1L, null));
+        assertFalse(deduplicator.accept(message(1, 200L, 1L, null)));
+    }
+}
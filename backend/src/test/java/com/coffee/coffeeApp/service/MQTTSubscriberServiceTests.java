@@ -0,0 +1,71 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+import com.coffee.coffeeApp.repository.MachineStateRepository;
+
+// No broker in tests: messages are handed to the subscriber as Paho would, with a mocked client for the acks
+@SpringBootTest
+@ActiveProfiles("test")
+class MQTTSubscriberServiceTests {
+
+    @Autowired
+    private MQTTSubscriberService subscriberService;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Autowired
+    private MachineStateRepository machineStateRepository;
+
+    @AfterEach
+    void disconnect() {
+        ReflectionTestUtils.setField(subscriberService, "client", null);
+    }
+
+    @Test
+    void gatewayReadingsForAnotherFacilityAreDropped() throws Exception {
+        MqttClient client = mock(MqttClient.class);
+        ReflectionTestUtils.setField(subscriberService, "client", client);
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(0);
+        String reading = "[{\"machineId\":" + machine.getId() + ",\"waterLevel\":33.0}]";
+        Float before = machineStateRepository.findById(machine.getId()).orElseThrow().getWaterLevel();
+        long rejectedBefore = (Long) subscriberService.getStats().get("gatewayRejected");
+
+        deliver("facility/" + (machine.getFacilityId() + 1000) + "/telemetry", 1, reading);
+        assertEquals(before, machineStateRepository.findById(machine.getId()).orElseThrow().getWaterLevel());
+        assertEquals(rejectedBefore + 1, subscriberService.getStats().get("gatewayRejected"));
+        // Dropped for good, so acknowledged rather than redelivered
+        verify(client).messageArrivedComplete(1, 1);
+
+        deliver("facility/" + machine.getFacilityId() + "/telemetry", 2, reading);
+        assertEquals(33.0f, machineStateRepository.findById(machine.getId()).orElseThrow().getWaterLevel());
+        verify(client).messageArrivedComplete(2, 1);
+    }
+
+    private void deliver(String topic, int messageId, String payload) throws InterruptedException {
+        MqttMessage message = new MqttMessage(payload.getBytes(StandardCharsets.UTF_8));
+        message.setId(messageId);
+        message.setQos(1);
+        ReflectionTestUtils.invokeMethod(subscriberService, "dispatch", topic, message);
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Integer) subscriberService.getStats().get("inFlight") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
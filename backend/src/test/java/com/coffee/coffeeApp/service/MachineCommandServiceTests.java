@@ -0,0 +1,207 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.coffee.coffeeApp.dto.BrewCommandDto;
+import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
+import com.coffee.coffeeApp.dto.MachineCommandAck;
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+import com.coffee.coffeeApp.repository.UsageHistoryRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// No broker in tests: a mocked async client stands in for the MQTT connection
+@SpringBootTest(properties = "app.commands.timeout-ms=300")
+@ActiveProfiles("test")
+class MachineCommandServiceTests {
+
+    @Autowired
+    private MachineCommandService machineCommandService;
+
+    @Autowired
+    private CoffeeMachineService coffeeMachineService;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Autowired
+    private UsageHistoryRepository usageHistoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void disconnect() {
+        ReflectionTestUtils.setField(machineCommandService, "client", null);
+    }
+
+    private MqttAsyncClient connectedClient() {
+        MqttAsyncClient client = mock(MqttAsyncClient.class);
+        when(client.isConnected()).thenReturn(true);
+        ReflectionTestUtils.setField(machineCommandService, "client", client);
+        return client;
+    }
+
+    @Test
+    void correlatesMqttAcksWithPendingCommands() throws Exception {
+        MqttAsyncClient client = connectedClient();
+        CompletableFuture<MachineCommandAck> ack = machineCommandService.send(7, "BREW", "latte");
+
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(client).publish(eq("coffeemachine/7/cmd"), payload.capture(), eq(1), eq(false), any(),
+                any(IMqttActionListener.class));
+        JsonNode command = objectMapper.readTree(payload.getValue());
+        assertEquals("BREW", command.get("type").asText());
+        assertEquals("LATTE", command.get("brewType").asText());
+        assertTrue(command.get("expiresAt").asLong() > command.get("issuedAt").asLong());
+
+        String commandId = command.get("commandId").asText();
+        // An ack naming another machine does not complete it
+        machineCommandService.handleAck(ackJson(commandId, 8, true));
+        assertFalse(ack.isDone());
+
+        machineCommandService.handleAck(ackJson(commandId, 7, true));
+        MachineCommandAck result = ack.get(1, TimeUnit.SECONDS);
+        assertTrue(result.success());
+        assertEquals("mqtt", result.transport());
+        assertEquals(0, machineCommandService.getStats().get("pending"));
+    }
+
+    @Test
+    void unansweredCommandsTimeOut() throws Exception {
+        connectedClient();
+        long before = (Long) machineCommandService.getStats().get("timeouts");
+        CompletableFuture<MachineCommandAck> ack = machineCommandService.send(7, "STATUS", "off");
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> ack.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof TimeoutException);
+        Map<String, Object> stats = machineCommandService.getStats();
+        assertEquals(before + 1, stats.get("timeouts"));
+        assertEquals(0, stats.get("pending"));
+    }
+
+    @Test
+    void brewStillSucceedsWhenTheMachineIsUnreachable() {
+        assertThrows(IllegalStateException.class, () -> machineCommandService.send(7, "STATUS", "ON"));
+        assertThrows(IllegalArgumentException.class, () -> machineCommandService.send(7, "REBOOT", "now"));
+        assertNull(machineCommandService.dispatch(7, "STATUS", "ON"));
+
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().stream()
+                .filter(CoffeeMachine::isOperational)
+                .findFirst()
+                .orElseThrow();
+        BrewCommandDto brew = new BrewCommandDto();
+        brew.setMachineId(String.valueOf(machine.getId()));
+        brew.setBrewType("ESPRESSO");
+        brew.setUserId("1");
+        CoffeeMachineService.BrewResult result = coffeeMachineService.processBrew(brew);
+        assertTrue(result.isSuccess());
+        assertNull(result.getCommandId());
+    }
+
+    @Test
+    void brewIsSentToTheMachine() throws Exception {
+        MqttAsyncClient client = connectedClient();
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().stream()
+                .filter(CoffeeMachine::isOperational)
+                .findFirst()
+                .orElseThrow();
+        BrewCommandDto brew = new BrewCommandDto();
+        brew.setMachineId(String.valueOf(machine.getId()));
+        brew.setBrewType("AMERICANO");
+        brew.setUserId("1");
+
+        CoffeeMachineService.BrewResult result = coffeeMachineService.processBrew(brew);
+        assertTrue(result.isSuccess());
+        verify(client).publish(eq("coffeemachine/" + machine.getId() + "/cmd"), any(byte[].class), anyInt(),
+                anyBoolean(), any(), any(IMqttActionListener.class));
+        machineCommandService.handleAck(ackJson(result.getCommandId(), machine.getId(), true));
+    }
+
+    @Test
+    void commandedBrewReportedBackIsCountedOnce() throws Exception {
+        connectedClient();
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().stream()
+                .filter(CoffeeMachine::isOperational)
+                .findFirst()
+                .orElseThrow();
+        BrewCommandDto brew = new BrewCommandDto();
+        brew.setMachineId(String.valueOf(machine.getId()));
+        brew.setBrewType("MOCHA");
+        brew.setUserId("1");
+        CoffeeMachineService.BrewResult result = coffeeMachineService.processBrew(brew);
+        long afterBrew = usageHistoryRepository.count();
+
+        // The machine's next reading names the command it brewed for
+        CoffeeMachineDataDto reading = new CoffeeMachineDataDto();
+        reading.setMachineId(machine.getId());
+        reading.setBrewType("MOCHA");
+        reading.setCommandId(result.getCommandId());
+        coffeeMachineService.updateMachineData(reading);
+        assertEquals(afterBrew, usageHistoryRepository.count());
+
+        // A command processBrew did not send (the raw command endpoint) is usage the backend has not seen
+        reading.setCommandId("not-from-processBrew");
+        coffeeMachineService.updateMachineData(reading);
+        assertEquals(afterBrew + 1, usageHistoryRepository.count());
+    }
+
+    private byte[] ackJson(String commandId, int machineId, boolean success) throws Exception {
+        return objectMapper.writeValueAsBytes(Map.of("commandId", commandId, "machineId", machineId,
+                "success", success, "message", "ok"));
+    }
+
+    @Test
+    void brewRolledBackIsNotSent() throws Exception {
+        MqttAsyncClient client = connectedClient();
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().stream()
+                .filter(CoffeeMachine::isOperational)
+                .findFirst()
+                .orElseThrow();
+        BrewCommandDto brew = new BrewCommandDto();
+        brew.setMachineId(String.valueOf(machine.getId()));
+        brew.setBrewType("LATTE");
+        brew.setUserId("1");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertTrue(coffeeMachineService.processBrew(brew).isSuccess());
+            status.setRollbackOnly();
+        });
+        verify(client, never()).publish(any(String.class), any(byte[].class), anyInt(), anyBoolean(), any(),
+                any(IMqttActionListener.class));
+    }
+}
@@ -0,0 +1,81 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
+import com.coffee.coffeeApp.dto.CoffeeMachineRow;
+import com.coffee.coffeeApp.entity.CoffeeMachine;
+import com.coffee.coffeeApp.repository.CoffeeMachineRepository;
+import com.coffee.coffeeApp.repository.UsageHistoryRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MachineDataBatchTests {
+
+    @Autowired
+    private CoffeeMachineService coffeeMachineService;
+
+    @Autowired
+    private CoffeeMachineRepository coffeeMachineRepository;
+
+    @Autowired
+    private UsageHistoryRepository usageHistoryRepository;
+
+    private static CoffeeMachineDataDto reading(int machineId, float water, String brewType) {
+        CoffeeMachineDataDto dto = new CoffeeMachineDataDto();
+        dto.setMachineId(machineId);
+        dto.setStatus("ON");
+        dto.setTemperature(92f);
+        dto.setWaterLevel(water);
+        dto.setMilkLevel(90f);
+        dto.setBeansLevel(90f);
+        dto.setSugarLevel(90f);
+        dto.setBrewType(brewType);
+        return dto;
+    }
+
+    @Test
+    void appliesCatchUpBatchInOrderAndSkipsUnknownMachines() {
+        CoffeeMachine machine = coffeeMachineRepository.findByIsActiveTrue().get(0);
+        coffeeMachineService.updateMachineStatus(String.valueOf(machine.getId()), "ON");
+        long usageBefore = usageHistoryRepository.count();
+        LocalDateTime metadataUpdated = coffeeMachineRepository.findById(machine.getId()).orElseThrow().getLastUpdate();
+
+        List<CoffeeMachineDataDto> batch = new ArrayList<>();
+        batch.add(reading(machine.getId(), 80, "LATTE"));
+        batch.add(reading(Integer.MAX_VALUE, 10, "LATTE"));
+        batch.add(reading(machine.getId(), 77, "None"));
+        batch.add(reading(machine.getId(), 74, "ESPRESSO"));
+
+        assertEquals(3, coffeeMachineService.updateMachineDataBatch(batch));
+        assertEquals(74f, coffeeMachineRepository.findById(machine.getId()).orElseThrow().getWaterLevel());
+        assertEquals(usageBefore + 2, usageHistoryRepository.count());
+
+        // Sparse reading: only water present, the other levels are left alone rather than zeroed
+        CoffeeMachineDataDto sparse = new CoffeeMachineDataDto();
+        sparse.setMachineId(machine.getId());
+        sparse.setWaterLevel(70f);
+        coffeeMachineService.updateMachineData(sparse);
+        CoffeeMachine updated = coffeeMachineRepository.findById(machine.getId()).orElseThrow();
+        assertEquals(70f, updated.getWaterLevel());
+        assertEquals(90f, updated.getMilkLevel());
+        assertEquals(92f, updated.getTemperature());
+
+        // Telemetry only rewrites the machine_state row; the machine row keeps its timestamp
+        assertEquals(metadataUpdated, updated.getLastUpdate());
+        assertTrue(updated.getState().getLastUpdate().isAfter(metadataUpdated));
+        CoffeeMachineRow row = coffeeMachineRepository.findRowsByIdIn(List.of(machine.getId())).get(0);
+        assertEquals(70f, row.waterLevel());
+        assertEquals(updated.getState().getLastUpdate(), row.lastUpdate());
+    }
+}
@@ -0,0 +1,84 @@
+package com.coffee.coffeeApp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.coffee.coffeeApp.dto.CoffeeMachineDataDto;
+
+// Plain unit test: fake clock, 1.0 level epsilon, 2.0 temperature epsilon, 60s max interval
+class TelemetryDeadbandFilterTests {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final TelemetryDeadbandFilter filter = new TelemetryDeadbandFilter(true, 1.0f, 2.0f, 60_000, now::get);
+
+    private static CoffeeMachineDataDto reading(float water, float temperature, String status, String brewType) {
+        CoffeeMachineDataDto dto = new CoffeeMachineDataDto();
+        dto.setMachineId(1);
+        dto.setFacilityId(1);
+        dto.setStatus(status);
+        dto.setTemperature(temperature);
+        dto.setWaterLevel(water);
+        dto.setMilkLevel(80f);
+        dto.setBeansLevel(70f);
+        dto.setSugarLevel(60f);
+        dto.setBrewType(brewType);
+        return dto;
+    }
+
+    @Test
+    void suppressesReadingsInsideTheDeadband() {
+        assertTrue(filter.offer(reading(90, 92, "ON", "None"), false), "first reading is always written");
+
+        now.addAndGet(5_000);
+        assertFalse(filter.offer(reading(90.5f, 93, "ON", "None"), false));
+        now.addAndGet(5_000);
+        assertFalse(filter.offer(reading(89.5f, 91, "ON", null), false));
+
+        // Compared against the last written reading, so slow drift still gets through
+        now.addAndGet(5_000);
+        assertTrue(filter.offer(reading(88.5f, 92, "ON", "None"), false));
+
+        assertEquals(88.5f, filter.getLiveReading(1).waterLevel());
+        assertEquals(2L, filter.getStats().get("suppressed"));
+    }
+
+    @Test
+    void writesOnStatusBrewForceAndMaxInterval() {
+        filter.offer(reading(90, 92, "ON", "None"), false);
+
+        assertTrue(filter.offer(reading(90, 92, "OFF", "None"), false));
+        assertTrue(filter.offer(reading(90, 92, "OFF", "LATTE"), false));
+        assertTrue(filter.offer(reading(90, 92, "OFF", "None"), true));
+        assertFalse(filter.offer(reading(90, 92, "OFF", "None"), false));
+
+        now.addAndGet(60_000);
+        assertTrue(filter.offer(reading(90, 92, "OFF", "None"), false));
+        assertEquals(1L, filter.getStats().get("intervalWrites"));
+
+        // Row changed elsewhere (refill, status): next reading is written regardless
+        filter.invalidate(1);
+        assertTrue(filter.offer(reading(90, 92, "OFF", "None"), false));
+    }
+
+    @Test
+    void sparseReadingsOnlyCompareFieldsTheyCarry() {
+        filter.offer(reading(90, 92, "ON", "None"), false);
+
+        CoffeeMachineDataDto milkOnly = new CoffeeMachineDataDto();
+        milkOnly.setMachineId(1);
+        milkOnly.setMilkLevel(79.5f);
+        assertFalse(filter.offer(milkOnly, false), "absent fields are not read as 0");
+        milkOnly.setMilkLevel(70f);
+        assertTrue(filter.offer(milkOnly, false));
+
+        // Live view merges the partial reading into what it already had
+        assertEquals(90f, filter.getLiveReading(1).waterLevel());
+        assertEquals(70f, filter.getLiveReading(1).milkLevel());
+        assertEquals("ON", filter.getLiveReading(1).status());
+    }
+}
@@ -5,8 +5,11 @@ import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 public class MqttUtils {
     public static MqttConnectOptions getOptions(String username, String password) {
         MqttConnectOptions options = new MqttConnectOptions();
-        options.setUserName(username);
-        options.setPassword(password.toCharArray());
+        // Local test brokers usually run without authentication
+        if (username != null && !username.isEmpty()) {
+            options.setUserName(username);
+            options.setPassword(password.toCharArray());
+        }
         options.setCleanSession(true);
         return options;
     }
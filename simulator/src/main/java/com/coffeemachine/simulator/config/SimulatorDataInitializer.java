@@ -9,7 +9,7 @@ public class SimulatorDataInitializer implements CommandLineRunner {
     @Override
     public void run(String... args) throws Exception {
         System.out.println("🎯 MQTT Coffee Machine Simulator starting up...");
-        System.out.println("📡 Will simulate 3 coffee machines and publish data every 5 seconds");
+        System.out.println("📡 Will simulate the configured coffee machines and publish data every 5 seconds");
         System.out.println("🌐 Data will be sent to backend via MQTT for analytics and storage");
     }
 }
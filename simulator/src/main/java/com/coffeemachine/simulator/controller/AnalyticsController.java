@@ -1,7 +1,11 @@
 package com.coffeemachine.simulator.controller;
 
 import com.coffeemachine.simulator.model.MachineData;
+import com.coffeemachine.simulator.model.MachineDataRollup;
+import com.coffeemachine.simulator.model.TelemetrySeries;
 import com.coffeemachine.simulator.repository.MachineDataRepository;
+import com.coffeemachine.simulator.service.AnalyticsAggregateService;
+import com.coffeemachine.simulator.service.TelemetryTimeSeriesService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -10,7 +14,6 @@ import org.springframework.web.bind.annotation.*;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -20,7 +23,13 @@ public class AnalyticsController {
     @Autowired
     private MachineDataRepository machineDataRepository;
 
-    // Get all machine data
+    @Autowired
+    private AnalyticsAggregateService analyticsAggregateService;
+
+    @Autowired
+    private TelemetryTimeSeriesService telemetryTimeSeriesService;
+
+    // Get all machine data (raw samples are kept for telemetry.raw.retention.minutes; older history via /series)
     @GetMapping("/machines")
     public ResponseEntity<List<MachineData>> getAllMachineData() {
         List<MachineData> data = machineDataRepository.findAll();
@@ -34,7 +43,25 @@ public class AnalyticsController {
         return ResponseEntity.ok(data);
     }
 
-    // Get machine data by date range
+    // Get downsampled level series for one machine (resolution RAW, MINUTE, HOUR or AUTO)
+    @GetMapping("/machines/{machineId}/series")
+    public ResponseEntity<?> getMachineSeries(
+            @PathVariable Integer machineId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "AUTO") String resolution) {
+        try {
+            MachineDataRollup.Resolution requested = "AUTO".equalsIgnoreCase(resolution)
+                    ? null
+                    : MachineDataRollup.Resolution.valueOf(resolution.toUpperCase());
+            TelemetrySeries series = telemetryTimeSeriesService.getSeries(machineId, startDate, endDate, requested);
+            return ResponseEntity.ok(series);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Get machine data by date range (raw samples only, see /machines)
     @GetMapping("/machines/date-range")
     public ResponseEntity<List<MachineData>> getMachineDataByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
@@ -43,73 +70,38 @@ public class AnalyticsController {
         return ResponseEntity.ok(data);
     }
 
-    // Get usage statistics by brew type
+    // Get usage statistics by brew type (optionally for one machine and/or time window)
     @GetMapping("/usage/brew-types")
-    public ResponseEntity<Map<String, Long>> getBrewTypeUsage() {
-        List<MachineData> allData = machineDataRepository.findAll();
-        Map<String, Long> brewTypeCounts = allData.stream()
-                .filter(data -> data.getBrewType() != null && !"None".equals(data.getBrewType()))
-                .collect(Collectors.groupingBy(
-                        MachineData::getBrewType,
-                        Collectors.counting()));
-        return ResponseEntity.ok(brewTypeCounts);
+    public ResponseEntity<Map<String, Long>> getBrewTypeUsage(
+            @RequestParam(required = false) Integer machineId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        return ResponseEntity.ok(analyticsAggregateService.getBrewTypeCounts(machineId, startDate, endDate));
     }
 
-    // Get machine status distribution
+    // Get machine status distribution (optionally for one machine and/or time window)
     @GetMapping("/status/distribution")
-    public ResponseEntity<Map<String, Long>> getStatusDistribution() {
-        List<MachineData> allData = machineDataRepository.findAll();
-        Map<String, Long> statusCounts = allData.stream()
-                .collect(Collectors.groupingBy(
-                        MachineData::getStatus,
-                        Collectors.counting()));
-        return ResponseEntity.ok(statusCounts);
+    public ResponseEntity<Map<String, Long>> getStatusDistribution(
+            @RequestParam(required = false) Integer machineId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        return ResponseEntity.ok(analyticsAggregateService.getStatusCounts(machineId, startDate, endDate));
     }
 
-    // Get average resource levels
+    // Get average resource levels (optionally for one machine and/or time window)
     @GetMapping("/resources/averages")
-    public ResponseEntity<Map<String, Double>> getAverageResourceLevels() {
-        List<MachineData> allData = machineDataRepository.findAll();
-
-        double avgWater = allData.stream()
-                .mapToDouble(data -> data.getWaterLevel() != null ? data.getWaterLevel() : 0.0)
-                .average()
-                .orElse(0.0);
-
-        double avgMilk = allData.stream()
-                .mapToDouble(data -> data.getMilkLevel() != null ? data.getMilkLevel() : 0.0)
-                .average()
-                .orElse(0.0);
-
-        double avgBeans = allData.stream()
-                .mapToDouble(data -> data.getBeansLevel() != null ? data.getBeansLevel() : 0.0)
-                .average()
-                .orElse(0.0);
-
-        double avgSugar = allData.stream()
-                .mapToDouble(data -> data.getSugarLevel() != null ? data.getSugarLevel() : 0.0)
-                .average()
-                .orElse(0.0);
-
-        double avgTemp = allData.stream()
-                .mapToDouble(data -> data.getTemperature() != null ? data.getTemperature() : 0.0)
-                .average()
-                .orElse(0.0);
-
-        Map<String, Double> averages = Map.of(
-                "waterLevel", avgWater,
-                "milkLevel", avgMilk,
-                "beansLevel", avgBeans,
-                "sugarLevel", avgSugar,
-                "temperature", avgTemp);
-
-        return ResponseEntity.ok(averages);
+    public ResponseEntity<Map<String, Double>> getAverageResourceLevels(
+            @RequestParam(required = false) Integer machineId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        return ResponseEntity.ok(analyticsAggregateService.getAverageLevels(machineId, startDate, endDate));
     }
 
     // Get recent activity (last 24 hours)
     @GetMapping("/recent-activity")
     public ResponseEntity<List<MachineData>> getRecentActivity() {
-        LocalDateTime twentyFourHoursAgo = LocalDateTime.now().minusHours(24);
+        LocalDateTime twentyFourHoursAgo = LocalDateTime.now()
+                .minusHours(TelemetryTimeSeriesService.RECENT_ACTIVITY_HOURS);
         List<MachineData> recentData = machineDataRepository
                 .findByTimestampAfterOrderByTimestampDesc(twentyFourHoursAgo);
         return ResponseEntity.ok(recentData);
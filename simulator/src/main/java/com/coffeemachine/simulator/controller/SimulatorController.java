@@ -0,0 +1,36 @@
+package com.coffeemachine.simulator.controller;
+
+import com.coffeemachine.simulator.service.MachineDataBatchWriter;
+import com.coffeemachine.simulator.service.MqttCommandSubscriber;
+import com.coffeemachine.simulator.service.MqttPublisherPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/simulator")
+@CrossOrigin(origins = "*")
+public class SimulatorController {
+
+    @Autowired
+    private MachineDataBatchWriter machineDataBatchWriter;
+
+    @Autowired
+    private MqttPublisherPool mqttPublisherPool;
+
+    @Autowired
+    private MqttCommandSubscriber mqttCommandSubscriber;
+
+    // Get simulator pipeline metrics
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("mqttPublisher", mqttPublisherPool.getMetrics());
+        metrics.put("commands", mqttCommandSubscriber.getMetrics());
+        metrics.put("analyticsWriter", machineDataBatchWriter.getMetrics());
+        return ResponseEntity.ok(metrics);
+    }
+}
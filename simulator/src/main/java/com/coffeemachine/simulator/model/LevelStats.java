@@ -0,0 +1,31 @@
+package com.coffeemachine.simulator.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.Data;
+
+// min/max/avg of a single reading (temperature or a supply level) over a bucket
+@Embeddable
+@Data
+public class LevelStats {
+
+	private Double min;
+
+	private Double max;
+
+	private Double avg;
+
+	public LevelStats() {
+
+	}
+
+	public LevelStats(Double min, Double max, Double avg) {
+		this.min = min;
+		this.max = max;
+		this.avg = avg;
+	}
+
+	// A raw sample is a bucket of one
+	public static LevelStats of(Double value) {
+		return new LevelStats(value, value, value);
+	}
+}
@@ -5,12 +5,16 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "machine_analytics")
+@Table(name = "machine_analytics", indexes = {
+		@Index(name = "idx_analytics_timestamp", columnList = "timestamp"),
+		@Index(name = "idx_analytics_machine_timestamp", columnList = "machine_id, timestamp") })
 @Data
 public class MachineData {
 
+	// Sequence ids (fetched 50 at a time) let Hibernate batch the inserts
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "machine_analytics_seq")
+	@SequenceGenerator(name = "machine_analytics_seq", sequenceName = "machine_analytics_seq", allocationSize = 50)
 	private Integer id;
 
 	@Column(name = "machine_id", nullable = false)
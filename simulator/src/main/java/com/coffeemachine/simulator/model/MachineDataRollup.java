@@ -0,0 +1,108 @@
+package com.coffeemachine.simulator.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// Downsampled MachineData: one row per machine per 1-minute or 1-hour bucket
+@Entity
+@Table(name = "machine_analytics_rollup",
+		uniqueConstraints = @UniqueConstraint(columnNames = { "machine_id", "resolution", "bucket_start" }),
+		indexes = @Index(name = "idx_rollup_resolution_bucket", columnList = "resolution, bucket_start"))
+@Data
+public class MachineDataRollup {
+
+	public enum Resolution {
+		RAW, MINUTE, HOUR
+	}
+
+	// Rollups are written with saveAll once a bucket closes; sequence ids keep those inserts batched
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "machine_rollup_seq")
+	@SequenceGenerator(name = "machine_rollup_seq", sequenceName = "machine_rollup_seq", allocationSize = 50)
+	private Long id;
+
+	@Column(name = "machine_id", nullable = false)
+	private Integer machineId;
+
+	@Column(name = "facility_id", nullable = false)
+	private Integer facilityId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "resolution", nullable = false, length = 10)
+	private Resolution resolution;
+
+	@Column(name = "bucket_start", nullable = false)
+	private LocalDateTime bucketStart;
+
+	@Column(name = "sample_count", nullable = false)
+	private Long sampleCount;
+
+	@Embedded
+	@AttributeOverrides({
+			@AttributeOverride(name = "min", column = @Column(name = "temperature_min")),
+			@AttributeOverride(name = "max", column = @Column(name = "temperature_max")),
+			@AttributeOverride(name = "avg", column = @Column(name = "temperature_avg")) })
+	private LevelStats temperature;
+
+	@Embedded
+	@AttributeOverrides({
+			@AttributeOverride(name = "min", column = @Column(name = "water_level_min")),
+			@AttributeOverride(name = "max", column = @Column(name = "water_level_max")),
+			@AttributeOverride(name = "avg", column = @Column(name = "water_level_avg")) })
+	private LevelStats waterLevel;
+
+	@Embedded
+	@AttributeOverrides({
+			@AttributeOverride(name = "min", column = @Column(name = "milk_level_min")),
+			@AttributeOverride(name = "max", column = @Column(name = "milk_level_max")),
+			@AttributeOverride(name = "avg", column = @Column(name = "milk_level_avg")) })
+	private LevelStats milkLevel;
+
+	@Embedded
+	@AttributeOverrides({
+			@AttributeOverride(name = "min", column = @Column(name = "beans_level_min")),
+			@AttributeOverride(name = "max", column = @Column(name = "beans_level_max")),
+			@AttributeOverride(name = "avg", column = @Column(name = "beans_level_avg")) })
+	private LevelStats beansLevel;
+
+	@Embedded
+	@AttributeOverrides({
+			@AttributeOverride(name = "min", column = @Column(name = "sugar_level_min")),
+			@AttributeOverride(name = "max", column = @Column(name = "sugar_level_max")),
+			@AttributeOverride(name = "avg", column = @Column(name = "sugar_level_avg")) })
+	private LevelStats sugarLevel;
+
+	// Samples per brew type (none and "None" left out) and per status, so the analytics counts survive raw pruning.
+	// Lazy and only read through aggregate queries
+	@ElementCollection
+	@CollectionTable(name = "machine_analytics_rollup_brew", joinColumns = @JoinColumn(name = "rollup_id"))
+	@MapKeyColumn(name = "brew_type")
+	@Column(name = "sample_count", nullable = false)
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	private Map<String, Long> brewTypeCounts = new HashMap<>();
+
+	@ElementCollection
+	@CollectionTable(name = "machine_analytics_rollup_status", joinColumns = @JoinColumn(name = "rollup_id"))
+	@MapKeyColumn(name = "status")
+	@Column(name = "sample_count", nullable = false)
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
+	private Map<String, Long> statusCounts = new HashMap<>();
+
+	public MachineDataRollup() {
+
+	}
+
+	public MachineDataRollup(Integer machineId, Integer facilityId, Resolution resolution, LocalDateTime bucketStart) {
+		this.machineId = machineId;
+		this.facilityId = facilityId;
+		this.resolution = resolution;
+		this.bucketStart = bucketStart;
+	}
+}
@@ -0,0 +1,47 @@
+package com.coffeemachine.simulator.model;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// One point of a level chart, either a raw sample or a rollup bucket
+@Data
+public class TelemetryPoint {
+
+	private LocalDateTime timestamp;
+
+	private Long sampleCount;
+
+	private LevelStats temperature;
+
+	private LevelStats waterLevel;
+
+	private LevelStats milkLevel;
+
+	private LevelStats beansLevel;
+
+	private LevelStats sugarLevel;
+
+	public static TelemetryPoint fromRaw(MachineData data) {
+		TelemetryPoint point = new TelemetryPoint();
+		point.setTimestamp(data.getTimestamp());
+		point.setSampleCount(1L);
+		point.setTemperature(LevelStats.of(data.getTemperature()));
+		point.setWaterLevel(LevelStats.of(data.getWaterLevel()));
+		point.setMilkLevel(LevelStats.of(data.getMilkLevel()));
+		point.setBeansLevel(LevelStats.of(data.getBeansLevel()));
+		point.setSugarLevel(LevelStats.of(data.getSugarLevel()));
+		return point;
+	}
+
+	public static TelemetryPoint fromRollup(MachineDataRollup rollup) {
+		TelemetryPoint point = new TelemetryPoint();
+		point.setTimestamp(rollup.getBucketStart());
+		point.setSampleCount(rollup.getSampleCount());
+		point.setTemperature(rollup.getTemperature());
+		point.setWaterLevel(rollup.getWaterLevel());
+		point.setMilkLevel(rollup.getMilkLevel());
+		point.setBeansLevel(rollup.getBeansLevel());
+		point.setSugarLevel(rollup.getSugarLevel());
+		return point;
+	}
+}
@@ -0,0 +1,29 @@
+package com.coffeemachine.simulator.model;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Range query result; resolution tells the client which tier answered it
+@Data
+public class TelemetrySeries {
+
+	private Integer machineId;
+
+	private MachineDataRollup.Resolution resolution;
+
+	private LocalDateTime startDate;
+
+	private LocalDateTime endDate;
+
+	private List<TelemetryPoint> points;
+
+	public TelemetrySeries(Integer machineId, MachineDataRollup.Resolution resolution, LocalDateTime startDate,
+			LocalDateTime endDate, List<TelemetryPoint> points) {
+		this.machineId = machineId;
+		this.resolution = resolution;
+		this.startDate = startDate;
+		this.endDate = endDate;
+		this.points = points;
+	}
+}
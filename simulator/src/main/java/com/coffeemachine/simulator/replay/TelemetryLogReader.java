@@ -0,0 +1,89 @@
+package com.coffeemachine.simulator.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Sequential reader for logs written by TelemetryLogWriter
+public class TelemetryLogReader implements Closeable {
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer region;
+    private long position;
+
+    public TelemetryLogReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+        if (size < TelemetryLogWriter.HEADER_BYTES) {
+            channel.close();
+            throw new IOException("Not a telemetry log: " + file);
+        }
+        map(0, TelemetryLogWriter.HEADER_BYTES);
+        int magic = region.getInt();
+        int version = region.getInt();
+        if (magic != TelemetryLogWriter.MAGIC || version != TelemetryLogWriter.VERSION) {
+            channel.close();
+            throw new IOException("Not a telemetry log (or unsupported version): " + file);
+        }
+        position = TelemetryLogWriter.HEADER_BYTES;
+    }
+
+    // Next record, or null at the end of the log (including a torn last record)
+    public TelemetryRecord next() throws IOException {
+        if (!ensure(12)) {
+            return null;
+        }
+        int start = region.position();
+        long timestampMillis = region.getLong(start);
+        int topicLength = region.getInt(start + 8);
+        if (topicLength <= 0 || !ensure(12L + topicLength + 4)) {
+            return null;
+        }
+        start = region.position();
+        int payloadLength = region.getInt(start + 12 + topicLength);
+        long total = 16L + topicLength + payloadLength;
+        if (payloadLength < 0 || !ensure(total)) {
+            return null;
+        }
+
+        byte[] topic = new byte[topicLength];
+        byte[] payload = new byte[payloadLength];
+        region.position(region.position() + 12);
+        region.get(topic);
+        region.getInt();
+        region.get(payload);
+        position += total;
+        return new TelemetryRecord(timestampMillis, new String(topic, StandardCharsets.UTF_8), payload);
+    }
+
+    // File offset just past the last record returned
+    public long getPosition() {
+        return position;
+    }
+
+    // Makes sure the next n bytes are mapped, remapping at the current record if needed
+    private boolean ensure(long n) throws IOException {
+        if (region.remaining() >= n) {
+            return true;
+        }
+        if (position + n > size) {
+            return false;
+        }
+        map(position, Math.min(size - position, Math.max(TelemetryLogWriter.REGION_BYTES, n)));
+        return true;
+    }
+
+    private void map(long start, long length) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
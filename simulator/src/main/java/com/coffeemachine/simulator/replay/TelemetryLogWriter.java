@@ -0,0 +1,97 @@
+package com.coffeemachine.simulator.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only, memory-mapped telemetry log.
+ *
+ * Layout: an 8 byte header (magic "CMTL", version) followed by records of
+ * [long timestampMillis][int topicLength][topic UTF-8][int payloadLength][payload].
+ * The file is mapped in 64 MB regions; unwritten space is zero-filled, so a
+ * zero topic length marks the end even if the writer was never closed.
+ */
+public class TelemetryLogWriter implements Closeable {
+
+    static final int MAGIC = 0x434D544C;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final long REGION_BYTES = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer region;
+    private long position;
+    private long records;
+
+    // Appends to an existing log, or creates a new one
+    public TelemetryLogWriter(Path file) throws IOException {
+        boolean existing = Files.exists(file) && Files.size(file) > 0;
+        long end = HEADER_BYTES;
+        if (existing) {
+            try (TelemetryLogReader reader = new TelemetryLogReader(file)) {
+                while (reader.next() != null) {
+                    records++;
+                }
+                end = reader.getPosition();
+            }
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (existing) {
+            position = end;
+            map(position, 0);
+        } else {
+            map(0, 0);
+            region.putInt(MAGIC).putInt(VERSION);
+            position = HEADER_BYTES;
+        }
+    }
+
+    public synchronized void append(long timestampMillis, String topic, byte[] payload) throws IOException {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        if (topicBytes.length == 0) {
+            throw new IllegalArgumentException("Topic must not be empty");
+        }
+        int size = 8 + 4 + topicBytes.length + 4 + payload.length;
+        if (region.remaining() < size) {
+            map(position, size);
+        }
+        region.putLong(timestampMillis)
+                .putInt(topicBytes.length)
+                .put(topicBytes)
+                .putInt(payload.length)
+                .put(payload);
+        position += size;
+        records++;
+    }
+
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    private void map(long start, long minBytes) throws IOException {
+        if (region != null) {
+            region.force();
+        }
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.max(REGION_BYTES, minBytes));
+    }
+
+    // Flushes and trims the zero-filled tail of the last region
+    @Override
+    public synchronized void close() throws IOException {
+        region.force();
+        channel.truncate(position);
+        channel.close();
+    }
+}
@@ -0,0 +1,27 @@
+package com.coffeemachine.simulator.replay;
+
+// One captured MQTT message: when it arrived, where it was published and the raw payload
+public class TelemetryRecord {
+
+    private final long timestampMillis;
+    private final String topic;
+    private final byte[] payload;
+
+    public TelemetryRecord(long timestampMillis, String topic, byte[] payload) {
+        this.timestampMillis = timestampMillis;
+        this.topic = topic;
+        this.payload = payload;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,66 @@
+package com.coffeemachine.simulator.replay;
+
+import com.coffeemachine.simulator.MqttUtils;
+import org.eclipse.paho.client.mqttv3.*;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+// Subscribes to the telemetry topics and appends every message to a TelemetryLogWriter
+public class TelemetryRecorder implements MqttCallback, Closeable {
+
+    private final MqttClient client;
+    private final TelemetryLogWriter log;
+    private final MqttConnectOptions options;
+
+    public TelemetryRecorder(String brokerUrl, String username, String password, Path file)
+            throws IOException, MqttException {
+        this.log = new TelemetryLogWriter(file);
+        this.client = new MqttClient(brokerUrl, "telemetry-recorder-" + UUID.randomUUID(), new MemoryPersistence());
+        this.options = MqttUtils.getOptions(username, password);
+        this.options.setAutomaticReconnect(true);
+    }
+
+    public void start(String topicFilter) throws MqttException {
+        client.setCallback(this);
+        client.connect(options);
+        client.subscribe(topicFilter, 1);
+        System.out.println("🎙️ Recording " + topicFilter + " (" + log.getRecordCount() + " records already in log)");
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) throws Exception {
+        log.append(System.currentTimeMillis(), topic, message.getPayload());
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        System.err.println("⚠️ Recorder lost connection: " + cause.getMessage());
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+        // Recorder never publishes
+    }
+
+    public long getRecordCount() {
+        return log.getRecordCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (client.isConnected()) {
+                client.disconnect();
+            }
+            client.close();
+        } catch (MqttException e) {
+            System.err.println("⚠️ Error closing recorder client: " + e.getMessage());
+        }
+        log.close();
+        System.out.println("💾 Recorded " + log.getRecordCount() + " records");
+    }
+}
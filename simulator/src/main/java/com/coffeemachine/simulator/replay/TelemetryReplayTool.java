@@ -0,0 +1,143 @@
+package com.coffeemachine.simulator.replay;
+
+import com.coffeemachine.simulator.service.MqttPublisherPool;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line entry point for recording and replaying telemetry, outside the
+ * Spring simulator app:
+ *
+ *   record &lt;file&gt; [--broker url] [--username u --password p] [--topic coffeemachine/+/data|facility/+/telemetry] [--seconds n]
+ *   replay &lt;file&gt; [--broker url] [--username u --password p] [--speed n|max] [--qos 0|1]
+ *          [--connections n] [--inflight n] [--restamp]
+ *          [--http http://host:8080/api/ingest --token t [--batch n]]
+ *          [--grpc host:9090 --token t [--plaintext]]
+ *
+ * With --http the capture is posted to the backend's NDJSON ingest endpoint
+ * instead of the broker, and with --grpc it is streamed to the gRPC ingest
+ * service, so all three paths can be timed on the same data.
+ *
+ * Run with: java -cp mqtt-simulator.jar -Dloader.main=com.coffeemachine.simulator.replay.TelemetryReplayTool
+ *           org.springframework.boot.loader.launch.PropertiesLauncher replay capture.log --speed 10
+ */
+public class TelemetryReplayTool {
+
+    private static final String DEFAULT_BROKER = "tcp://localhost:1883";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            usage();
+            return;
+        }
+        Path file = Paths.get(args[1]);
+        Map<String, String> opts = parseOptions(args);
+        String broker = opts.getOrDefault("broker", DEFAULT_BROKER);
+        String username = opts.getOrDefault("username", "");
+        String password = opts.getOrDefault("password", "");
+
+        if ("record".equals(args[0])) {
+            record(file, broker, username, password, opts);
+        } else if ("replay".equals(args[0])) {
+            replay(file, broker, username, password, opts);
+        } else {
+            usage();
+        }
+    }
+
+    private static void record(Path file, String broker, String username, String password, Map<String, String> opts)
+            throws Exception {
+        final CountDownLatch stop = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(stop::countDown));
+
+        try (TelemetryRecorder recorder = new TelemetryRecorder(broker, username, password, file)) {
+            recorder.start(opts.getOrDefault("topic", "coffeemachine/+/data"));
+            long seconds = Long.parseLong(opts.getOrDefault("seconds", "0"));
+            if (seconds > 0) {
+                stop.await(seconds, TimeUnit.SECONDS);
+            } else {
+                stop.await();
+            }
+        }
+    }
+
+    private static void replay(Path file, String broker, String username, String password, Map<String, String> opts)
+            throws Exception {
+        String speedOption = opts.getOrDefault("speed", "1");
+        double speed = "max".equalsIgnoreCase(speedOption) ? 0 : Double.parseDouble(speedOption);
+
+        if (opts.containsKey("http")) {
+            HttpIngestSink sink = new HttpIngestSink(opts.get("http"), opts.getOrDefault("token", ""),
+                    Integer.parseInt(opts.getOrDefault("batch", "500")));
+            System.out.println("▶️ Replaying " + file + " to " + opts.get("http") + " at "
+                    + (speed > 0 ? speed + "x" : "max") + " speed");
+            Map<String, Object> summary = new TelemetryReplayer(sink, speed, opts.containsKey("restamp"))
+                    .replay(file);
+            System.out.println("🏁 Replay finished: " + summary);
+            return;
+        }
+
+        if (opts.containsKey("grpc")) {
+            GrpcIngestSink sink = new GrpcIngestSink(opts.get("grpc"), opts.getOrDefault("token", ""),
+                    opts.containsKey("plaintext"));
+            System.out.println("▶️ Replaying " + file + " to grpc://" + opts.get("grpc") + " at "
+                    + (speed > 0 ? speed + "x" : "max") + " speed");
+            Map<String, Object> summary = new TelemetryReplayer(sink, speed, opts.containsKey("restamp"))
+                    .replay(file);
+            System.out.println("🏁 Replay finished: " + summary);
+            return;
+        }
+
+        // The replay loop has this thread to itself, so a full in-flight window waits instead of dropping
+        MqttPublisherPool publisher = new MqttPublisherPool(broker, username, password, "telemetry-replayer",
+                Integer.parseInt(opts.getOrDefault("qos", "1")),
+                Integer.parseInt(opts.getOrDefault("connections", "2")),
+                Integer.parseInt(opts.getOrDefault("inflight", "100")),
+                30000);
+        publisher.init();
+        try {
+            if (!publisher.awaitConnected(30000)) {
+                System.err.println("❌ Could not connect all publishers to " + broker);
+                return;
+            }
+            System.out.println("▶️ Replaying " + file + " to " + broker + " at "
+                    + (speed > 0 ? speed + "x" : "max") + " speed");
+            Map<String, Object> summary = new TelemetryReplayer(publisher, speed, opts.containsKey("restamp"))
+                    .replay(file);
+            System.out.println("🏁 Replay finished: " + summary);
+        } finally {
+            publisher.shutdown();
+            System.out.println("📈 Publisher: " + publisher.getMetrics());
+        }
+    }
+
+    // --name value pairs; a flag without a value maps to "true"
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            String name = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                opts.put(name, args[++i]);
+            } else {
+                opts.put(name, "true");
+            }
+        }
+        return opts;
+    }
+
+    private static void usage() {
+        System.out.println("Usage:");
+        System.out.println("  record <file> [--broker url] [--username u --password p] [--topic filter] [--seconds n]");
+        System.out.println("  replay <file> [--broker url] [--username u --password p] [--speed n|max] [--qos 0|1]");
+        System.out.println("         [--connections n] [--inflight n] [--restamp]");
+        System.out.println("         [--http url --token t [--batch n]] [--grpc host:port --token t [--plaintext]]");
+    }
+}
@@ -0,0 +1,121 @@
+package com.coffeemachine.simulator.replay;
+
+import com.coffeemachine.simulator.service.MqttPublisherPool;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Republishes a recorded telemetry log, to the MQTT broker or to the
+ * backend's HTTP ingest endpoint. Gaps between messages are kept, divided by
+ * the speed factor; a speed of 0 sends as fast as the sink allows.
+ */
+public class TelemetryReplayer {
+
+    // Where replayed messages go; false from send() counts the message as dropped
+    public interface Sink {
+        boolean send(String topic, byte[] payload) throws IOException;
+
+        // Called once after the last message; extra figures for the summary
+        default Map<String, Object> finish() throws IOException {
+            return Collections.emptyMap();
+        }
+    }
+
+    private final Sink sink;
+    private final double speed;
+    private final boolean restamp;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long epoch = System.currentTimeMillis();
+
+    public TelemetryReplayer(MqttPublisherPool publisher, double speed, boolean restamp) {
+        this(publisher::publish, speed, restamp);
+    }
+
+    public TelemetryReplayer(Sink sink, double speed, boolean restamp) {
+        this.sink = sink;
+        this.speed = speed;
+        this.restamp = restamp;
+    }
+
+    public Map<String, Object> replay(Path file) throws IOException, InterruptedException {
+        long sent = 0;
+        long dropped = 0;
+        long maxLagMillis = 0;
+        long firstRecorded = -1;
+        long startNanos = System.nanoTime();
+
+        try (TelemetryLogReader reader = new TelemetryLogReader(file)) {
+            TelemetryRecord record;
+            while ((record = reader.next()) != null) {
+                if (firstRecorded < 0) {
+                    firstRecorded = record.getTimestampMillis();
+                }
+                if (speed > 0) {
+                    long dueNanos = startNanos + (long) ((record.getTimestampMillis() - firstRecorded) * 1e6 / speed);
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+                    } else {
+                        maxLagMillis = Math.max(maxLagMillis, -waitNanos / 1000000);
+                    }
+                }
+                if (sink.send(record.getTopic(), payload(record))) {
+                    sent++;
+                } else {
+                    dropped++;
+                }
+            }
+        }
+
+        double seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("sent", sent);
+        summary.put("dropped", dropped);
+        summary.put("seconds", seconds);
+        summary.put("messagesPerSecond", sent / seconds);
+        summary.put("maxLagMillis", maxLagMillis);
+        summary.putAll(sink.finish());
+        return summary;
+    }
+
+    // Optionally rewrite the CoffeeMachineDataDto timestamp so the backend sees fresh data
+    private byte[] payload(TelemetryRecord record) {
+        if (!restamp) {
+            return record.getPayload();
+        }
+        try {
+            JsonNode node = objectMapper.readTree(record.getPayload());
+            // Gateway messages (facility/+/telemetry) carry an array of readings
+            boolean restamped = false;
+            for (JsonNode reading : node.isArray() ? node : Collections.singletonList(node)) {
+                restamped |= restamp(reading);
+            }
+            if (restamped) {
+                return objectMapper.writeValueAsBytes(node);
+            }
+        } catch (IOException e) {
+            // Not JSON; replay the bytes untouched
+        }
+        return record.getPayload();
+    }
+
+    private boolean restamp(JsonNode reading) {
+        if (!(reading instanceof ObjectNode) || !reading.has("timestamp")) {
+            return false;
+        }
+        ((ObjectNode) reading).put("timestamp", LocalDateTime.now().toString());
+        // Present as a new publisher run, otherwise the backend drops the old epoch as stale
+        if (reading.has("epoch")) {
+            ((ObjectNode) reading).put("epoch", epoch);
+        }
+        return true;
+    }
+}
@@ -2,9 +2,11 @@ package com.coffeemachine.simulator.repository;
 
 import com.coffeemachine.simulator.model.MachineData;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -17,4 +19,50 @@ public interface MachineDataRepository extends JpaRepository<MachineData, Intege
     List<MachineData> findByTimestampBetweenOrderByTimestampDesc(LocalDateTime startDate, LocalDateTime endDate);
 
     List<MachineData> findByTimestampAfterOrderByTimestampDesc(LocalDateTime timestamp);
-}
\ No newline at end of file
+
+    // Raw samples of one rollup window, [from, to)
+    @Query("select m from MachineData m where m.timestamp >= :from and m.timestamp < :to")
+    List<MachineData> findWindow(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Raw samples of one machine for a chart, [from, to)
+    @Query("select m from MachineData m where m.machineId = :machineId " +
+            "and m.timestamp >= :from and m.timestamp < :to order by m.timestamp asc")
+    List<MachineData> findSeries(@Param("machineId") Integer machineId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query("select min(m.timestamp) from MachineData m")
+    LocalDateTime findEarliestTimestamp();
+
+    // Aggregates below take optional filters; null means "no restriction"
+    @Query("select m.brewType, count(m) from MachineData m " +
+            "where m.brewType is not null and m.brewType <> 'None' " +
+            "and (:machineId is null or m.machineId = :machineId) " +
+            "and (:from is null or m.timestamp >= :from) " +
+            "and (:to is null or m.timestamp <= :to) " +
+            "group by m.brewType")
+    List<Object[]> countByBrewType(@Param("machineId") Integer machineId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query("select m.status, count(m) from MachineData m where 1 = 1 " +
+            "and (:machineId is null or m.machineId = :machineId) " +
+            "and (:from is null or m.timestamp >= :from) " +
+            "and (:to is null or m.timestamp <= :to) " +
+            "group by m.status")
+    List<Object[]> countByStatus(@Param("machineId") Integer machineId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    // Sums of water, milk, beans, sugar, temperature (missing = 0) and the row count, in one pass
+    @Query("select sum(coalesce(m.waterLevel, 0.0)), sum(coalesce(m.milkLevel, 0.0)), " +
+            "sum(coalesce(m.beansLevel, 0.0)), sum(coalesce(m.sugarLevel, 0.0)), " +
+            "sum(coalesce(m.temperature, 0.0)), count(m) from MachineData m where 1 = 1 " +
+            "and (:machineId is null or m.machineId = :machineId) " +
+            "and (:from is null or m.timestamp >= :from) " +
+            "and (:to is null or m.timestamp <= :to)")
+    List<Object[]> sumLevels(@Param("machineId") Integer machineId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Transactional
+    @Query("delete from MachineData m where m.timestamp < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,90 @@
+package com.coffeemachine.simulator.repository;
+
+import com.coffeemachine.simulator.model.MachineDataRollup;
+import com.coffeemachine.simulator.model.MachineDataRollup.Resolution;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MachineDataRollupRepository extends JpaRepository<MachineDataRollup, Long> {
+
+    // Buckets of all machines at one resolution, [from, to)
+    @Query("select r from MachineDataRollup r where r.resolution = :resolution " +
+            "and r.bucketStart >= :from and r.bucketStart < :to")
+    List<MachineDataRollup> findWindow(@Param("resolution") Resolution resolution,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Buckets of one machine for a chart, [from, to)
+    @Query("select r from MachineDataRollup r where r.machineId = :machineId and r.resolution = :resolution " +
+            "and r.bucketStart >= :from and r.bucketStart < :to order by r.bucketStart asc")
+    List<MachineDataRollup> findSeries(@Param("machineId") Integer machineId,
+            @Param("resolution") Resolution resolution,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select max(r.bucketStart) from MachineDataRollup r where r.resolution = :resolution")
+    LocalDateTime findLatestBucketStart(@Param("resolution") Resolution resolution);
+
+    @Query("select min(r.bucketStart) from MachineDataRollup r where r.resolution = :resolution")
+    LocalDateTime findEarliestBucketStart(@Param("resolution") Resolution resolution);
+
+    // Brew type and status counts of each machine's buckets in [from, to), to build the next tier from
+    @Query("select r.machineId, key(c), sum(value(c)) from MachineDataRollup r join r.brewTypeCounts c " +
+            "where r.resolution = :resolution and r.bucketStart >= :from and r.bucketStart < :to " +
+            "group by r.machineId, key(c)")
+    List<Object[]> sumBrewTypeCountsByMachine(@Param("resolution") Resolution resolution,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select r.machineId, key(c), sum(value(c)) from MachineDataRollup r join r.statusCounts c " +
+            "where r.resolution = :resolution and r.bucketStart >= :from and r.bucketStart < :to " +
+            "group by r.machineId, key(c)")
+    List<Object[]> sumStatusCountsByMachine(@Param("resolution") Resolution resolution,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Aggregates below match MachineDataRepository's, row for row: null machineId/from/to mean "no restriction",
+    // from/to apply to the bucket start, and only buckets before the tier's upper edge count
+    @Query("select key(c), sum(value(c)) from MachineDataRollup r join r.brewTypeCounts c " +
+            "where r.resolution = :resolution and r.bucketStart < :before " +
+            "and (:machineId is null or r.machineId = :machineId) " +
+            "and (:from is null or r.bucketStart >= :from) " +
+            "and (:to is null or r.bucketStart <= :to) " +
+            "group by key(c)")
+    List<Object[]> countByBrewType(@Param("resolution") Resolution resolution,
+            @Param("machineId") Integer machineId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to, @Param("before") LocalDateTime before);
+
+    @Query("select key(c), sum(value(c)) from MachineDataRollup r join r.statusCounts c " +
+            "where r.resolution = :resolution and r.bucketStart < :before " +
+            "and (:machineId is null or r.machineId = :machineId) " +
+            "and (:from is null or r.bucketStart >= :from) " +
+            "and (:to is null or r.bucketStart <= :to) " +
+            "group by key(c)")
+    List<Object[]> countByStatus(@Param("resolution") Resolution resolution,
+            @Param("machineId") Integer machineId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to, @Param("before") LocalDateTime before);
+
+    // Analytics rows carry all five readings, so avg * samples is the raw sum
+    @Query("select sum(coalesce(r.waterLevel.avg, 0.0) * r.sampleCount), " +
+            "sum(coalesce(r.milkLevel.avg, 0.0) * r.sampleCount), " +
+            "sum(coalesce(r.beansLevel.avg, 0.0) * r.sampleCount), " +
+            "sum(coalesce(r.sugarLevel.avg, 0.0) * r.sampleCount), " +
+            "sum(coalesce(r.temperature.avg, 0.0) * r.sampleCount), sum(r.sampleCount) " +
+            "from MachineDataRollup r where r.resolution = :resolution and r.bucketStart < :before " +
+            "and (:machineId is null or r.machineId = :machineId) " +
+            "and (:from is null or r.bucketStart >= :from) " +
+            "and (:to is null or r.bucketStart <= :to)")
+    List<Object[]> sumLevels(@Param("resolution") Resolution resolution,
+            @Param("machineId") Integer machineId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to, @Param("before") LocalDateTime before);
+
+    @Modifying
+    @Transactional
+    @Query("delete from MachineDataRollup r where r.resolution = :resolution and r.bucketStart < :cutoff")
+    int deleteOlderThan(@Param("resolution") Resolution resolution, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,172 @@
+package com.coffeemachine.simulator.service;
+
+import com.coffeemachine.simulator.model.MachineData;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates behind the analytics endpoints. Unfiltered requests are answered
+ * from running totals kept as samples are saved; filtered requests (time window
+ * and/or machine) are pushed down to SQL aggregate queries. Both read the
+ * time-series store's tiers (hour and minute rollups, then raw rows), so they
+ * agree however long ago the raw rows were pruned.
+ */
+@Service
+public class AnalyticsAggregateService {
+
+    private static final String[] LEVELS = { "waterLevel", "milkLevel", "beansLevel", "sugarLevel", "temperature" };
+
+    private final TelemetryTimeSeriesService telemetryTimeSeriesService;
+
+    // Running totals over everything stored, seeded from the same tiers the filtered queries read
+    private final Map<String, LongAdder> brewTypeCounts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final DoubleAdder[] levelSums = { new DoubleAdder(), new DoubleAdder(), new DoubleAdder(),
+            new DoubleAdder(), new DoubleAdder() };
+    private final LongAdder sampleCount = new LongAdder();
+
+    public AnalyticsAggregateService(TelemetryTimeSeriesService telemetryTimeSeriesService) {
+        this.telemetryTimeSeriesService = telemetryTimeSeriesService;
+    }
+
+    // Runs before the simulator's scheduled saves start, so seeding cannot double count. Hour buckets pruned
+    // after that are taken off again, so the totals keep matching a query over everything stored
+    @PostConstruct
+    public void seed() {
+        try {
+            telemetryTimeSeriesService.addPruneListener((brewTypes, statuses, levels) -> apply(brewTypes, statuses,
+                    levels, -1));
+            apply(telemetryTimeSeriesService.countByBrewType(null, null, null),
+                    telemetryTimeSeriesService.countByStatus(null, null, null),
+                    telemetryTimeSeriesService.sumLevels(null, null, null), 1);
+            System.out.println("📊 Analytics aggregates seeded from " + sampleCount.sum() + " stored samples");
+        } catch (Exception e) {
+            System.err.println("❌ Failed to seed analytics aggregates: " + e.getMessage());
+        }
+    }
+
+    // Adds (sign 1) or removes (sign -1) aggregate rows in the shapes TelemetryTimeSeriesService returns
+    private void apply(List<Object[]> brewTypes, List<Object[]> statuses, List<Object[]> levels, int sign) {
+        for (Object[] row : brewTypes) {
+            add(brewTypeCounts, (String) row[0], sign * ((Number) row[1]).longValue());
+        }
+        for (Object[] row : statuses) {
+            add(statusCounts, (String) row[0], sign * ((Number) row[1]).longValue());
+        }
+        Object[] sums = sumRows(levels);
+        for (int i = 0; i < levelSums.length; i++) {
+            levelSums[i].add(sign * number(sums, i));
+        }
+        sampleCount.add(sign * (long) number(sums, levelSums.length));
+    }
+
+    // Called for every sample saved to machine_analytics
+    public void record(MachineData data) {
+        if (data.getBrewType() != null && !"None".equals(data.getBrewType())) {
+            add(brewTypeCounts, data.getBrewType(), 1);
+        }
+        add(statusCounts, data.getStatus(), 1);
+        levelSums[0].add(orZero(data.getWaterLevel()));
+        levelSums[1].add(orZero(data.getMilkLevel()));
+        levelSums[2].add(orZero(data.getBeansLevel()));
+        levelSums[3].add(orZero(data.getSugarLevel()));
+        levelSums[4].add(orZero(data.getTemperature()));
+        sampleCount.increment();
+    }
+
+    public Map<String, Long> getBrewTypeCounts(Integer machineId, LocalDateTime from, LocalDateTime to) {
+        if (isUnfiltered(machineId, from, to)) {
+            return snapshot(brewTypeCounts);
+        }
+        return toCounts(telemetryTimeSeriesService.countByBrewType(machineId, from, to));
+    }
+
+    public Map<String, Long> getStatusCounts(Integer machineId, LocalDateTime from, LocalDateTime to) {
+        if (isUnfiltered(machineId, from, to)) {
+            return snapshot(statusCounts);
+        }
+        return toCounts(telemetryTimeSeriesService.countByStatus(machineId, from, to));
+    }
+
+    // Missing readings count as 0.0, as the endpoint always did
+    public Map<String, Double> getAverageLevels(Integer machineId, LocalDateTime from, LocalDateTime to) {
+        double[] sums = new double[LEVELS.length];
+        long count;
+        if (isUnfiltered(machineId, from, to)) {
+            count = sampleCount.sum();
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] = levelSums[i].sum();
+            }
+        } else {
+            Object[] row = sumRows(telemetryTimeSeriesService.sumLevels(machineId, from, to));
+            count = (long) number(row, LEVELS.length);
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] = number(row, i);
+            }
+        }
+
+        Map<String, Double> averages = new LinkedHashMap<>();
+        for (int i = 0; i < LEVELS.length; i++) {
+            averages.put(LEVELS[i], count == 0 ? 0.0 : sums[i] / count);
+        }
+        return averages;
+    }
+
+    private static boolean isUnfiltered(Integer machineId, LocalDateTime from, LocalDateTime to) {
+        return machineId == null && from == null && to == null;
+    }
+
+    private static void add(Map<String, LongAdder> counts, String key, long delta) {
+        if (key != null) {
+            counts.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+    }
+
+    // Keys whose samples were all pruned are left out, as the grouped queries leave them out
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counts) {
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count != 0) {
+                result.put(entry.getKey(), count);
+            }
+        }
+        return result;
+    }
+
+    // One row per key and tier, so keys repeat
+    private static Map<String, Long> toCounts(List<Object[]> rows) {
+        Map<String, Long> result = new HashMap<>();
+        for (Object[] row : rows) {
+            result.merge((String) row[0], ((Number) row[1]).longValue(), Long::sum);
+        }
+        return result;
+    }
+
+    // One sums row per tier; a tier without samples has nulls
+    private static Object[] sumRows(List<Object[]> rows) {
+        Object[] total = new Object[LEVELS.length + 1];
+        for (int i = 0; i < total.length; i++) {
+            double sum = 0.0;
+            for (Object[] row : rows) {
+                sum += number(row, i);
+            }
+            total[i] = sum;
+        }
+        return total;
+    }
+
+    private static double number(Object[] row, int index) {
+        return index < row.length && row[index] != null ? ((Number) row[index]).doubleValue() : 0.0;
+    }
+
+    private static double orZero(Double value) {
+        return value != null ? value : 0.0;
+    }
+}
@@ -0,0 +1,236 @@
+package com.coffeemachine.simulator.service;
+
+import com.coffee.grpc.telemetry.CommandAck;
+import com.coffee.grpc.telemetry.CommandChannelMessage;
+import com.coffee.grpc.telemetry.Hello;
+import com.coffee.grpc.telemetry.IngestSummary;
+import com.coffee.grpc.telemetry.MachineCommand;
+import com.coffee.grpc.telemetry.MachineReading;
+import com.coffee.grpc.telemetry.TelemetryIngestGrpc;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Client for the backend's TelemetryIngest gRPC service: one long-lived
+ * client stream for telemetry (reopened if it fails) and one command channel
+ * whose commands are handed to a callback and acked with its result. send()
+ * waits while the stream is not ready, so a fast producer is held back by the
+ * backend instead of buffering without limit. Used by the simulator in
+ * simulator.transport=grpc mode and by the replay tool's --grpc option.
+ */
+public class GrpcTelemetryClient implements AutoCloseable {
+
+    private static final Metadata.Key<String> DEVICE_TOKEN =
+            Metadata.Key.of("x-device-token", Metadata.ASCII_STRING_MARSHALLER);
+
+    private final ManagedChannel channel;
+    private final TelemetryIngestGrpc.TelemetryIngestStub stub;
+
+    private ClientCallStreamObserver<MachineReading> telemetry;
+    private CompletableFuture<IngestSummary> summary;
+    private StreamObserver<CommandChannelMessage> commands;
+    private volatile boolean commandsOpen;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong streams = new AtomicLong();
+    private final AtomicLong commandsReceived = new AtomicLong();
+
+    // TLS unless plaintext is asked for (a backend started with app.grpc.plaintext=true)
+    public GrpcTelemetryClient(String target, String token, boolean plaintext) {
+        ManagedChannelBuilder<?> builder = ManagedChannelBuilder.forTarget(target);
+        this.channel = (plaintext ? builder.usePlaintext() : builder.useTransportSecurity()).build();
+        Metadata headers = new Metadata();
+        headers.put(DEVICE_TOKEN, token);
+        this.stub = TelemetryIngestGrpc.newStub(channel)
+                .withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers));
+    }
+
+    public synchronized void send(MachineReading reading) throws InterruptedException {
+        if (telemetry == null || summary.isDone()) {
+            openTelemetry();
+        }
+        while (!telemetry.isReady() && !summary.isDone()) {
+            wait(100);
+        }
+        telemetry.onNext(reading);
+        sent.incrementAndGet();
+    }
+
+    private void openTelemetry() {
+        CompletableFuture<IngestSummary> result = new CompletableFuture<>();
+        summary = result;
+        streams.incrementAndGet();
+        stub.streamTelemetry(new ClientResponseObserver<MachineReading, IngestSummary>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<MachineReading> requestStream) {
+                telemetry = requestStream;
+                requestStream.setOnReadyHandler(() -> {
+                    synchronized (GrpcTelemetryClient.this) {
+                        GrpcTelemetryClient.this.notifyAll();
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(IngestSummary value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                System.err.println("❌ gRPC telemetry stream failed: " + t.getMessage());
+                result.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+    }
+
+    // Ends the telemetry stream and waits for the backend's counts
+    public IngestSummary finish(long timeoutMs) throws Exception {
+        CompletableFuture<IngestSummary> result;
+        synchronized (this) {
+            if (telemetry == null) {
+                return IngestSummary.getDefaultInstance();
+            }
+            telemetry.onCompleted();
+            telemetry = null;
+            result = summary;
+        }
+        return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the command channel for these machines unless it is already open.
+     * Each command is passed to the handler on a gRPC thread and its result is
+     * sent back as the ack.
+     */
+    public synchronized void openCommandChannel(Collection<Integer> machineIds,
+            Function<MachineCommand, CommandAck> handler) {
+        if (commandsOpen) {
+            return;
+        }
+        commandsOpen = true;
+        commands = stub.commandChannel(new StreamObserver<MachineCommand>() {
+            @Override
+            public void onNext(MachineCommand command) {
+                commandsReceived.incrementAndGet();
+                CommandAck ack = handler.apply(command);
+                sendUp(CommandChannelMessage.newBuilder().setAck(ack.toBuilder()
+                        .setCommandId(command.getCommandId())
+                        .setMachineId(command.getMachineId()))
+                        .build());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                System.err.println("❌ gRPC command channel closed: " + t.getMessage());
+                commandsOpen = false;
+            }
+
+            @Override
+            public void onCompleted() {
+                commandsOpen = false;
+            }
+        });
+        sendUp(CommandChannelMessage.newBuilder().setHello(Hello.newBuilder().addAllMachineIds(machineIds)).build());
+    }
+
+    private synchronized void sendUp(CommandChannelMessage message) {
+        if (commandsOpen) {
+            commands.onNext(message);
+        }
+    }
+
+    // A simulator/MQTT JSON reading as protobuf; fields missing from the JSON stay unset
+    public static MachineReading toReading(JsonNode node) {
+        MachineReading.Builder reading = MachineReading.newBuilder().setMachineId(node.path("machineId").asInt());
+        if (node.hasNonNull("facilityId")) {
+            reading.setFacilityId(node.get("facilityId").asInt());
+        }
+        if (node.hasNonNull("status")) {
+            reading.setStatus(node.get("status").asText());
+        }
+        if (node.hasNonNull("temperature")) {
+            reading.setTemperature((float) node.get("temperature").asDouble());
+        }
+        if (node.hasNonNull("waterLevel")) {
+            reading.setWaterLevel((float) node.get("waterLevel").asDouble());
+        }
+        if (node.hasNonNull("milkLevel")) {
+            reading.setMilkLevel((float) node.get("milkLevel").asDouble());
+        }
+        if (node.hasNonNull("beansLevel")) {
+            reading.setBeansLevel((float) node.get("beansLevel").asDouble());
+        }
+        if (node.hasNonNull("sugarLevel")) {
+            reading.setSugarLevel((float) node.get("sugarLevel").asDouble());
+        }
+        if (node.hasNonNull("brewType")) {
+            reading.setBrewType(node.get("brewType").asText());
+        }
+        if (node.hasNonNull("commandId")) {
+            reading.setCommandId(node.get("commandId").asText());
+        }
+        if (node.hasNonNull("timestamp")) {
+            try {
+                reading.setTimestampMs(LocalDateTime.parse(node.get("timestamp").asText())
+                        .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            } catch (DateTimeParseException e) {
+                // Leave it unset; the backend stamps the reading on arrival
+            }
+        }
+        if (node.hasNonNull("epoch")) {
+            reading.setEpoch(node.get("epoch").asLong());
+        }
+        if (node.hasNonNull("seq")) {
+            reading.setSeq(node.get("seq").asLong());
+        }
+        return reading.build();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("sent", sent.get());
+        metrics.put("telemetryStreams", streams.get());
+        metrics.put("commandChannelOpen", commandsOpen);
+        metrics.put("commandsReceived", commandsReceived.get());
+        return metrics;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        synchronized (this) {
+            if (telemetry != null) {
+                telemetry.onCompleted();
+            }
+            if (commandsOpen) {
+                commandsOpen = false;
+                commands.onCompleted();
+            }
+        }
+        channel.shutdown();
+        if (!channel.awaitTermination(5, TimeUnit.SECONDS)) {
+            channel.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.coffeemachine.simulator.service;
+
+import com.coffeemachine.simulator.model.MachineData;
+import com.coffeemachine.simulator.repository.MachineDataRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background writer for simulator analytics rows. The simulation loop only
+ * enqueues; a scheduled flush drains the bounded queue and persists it with
+ * saveAll so Hibernate can send JDBC batches. When the queue is full new rows
+ * are dropped and counted rather than slowing down publishing.
+ */
+@Service
+public class MachineDataBatchWriter {
+
+    private final MachineDataRepository machineDataRepository;
+    private final AnalyticsAggregateService analyticsAggregateService;
+    private final BlockingQueue<MachineData> queue;
+    private final int batchSize;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushMillisTotal = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile int lastFlushRows;
+
+    public MachineDataBatchWriter(MachineDataRepository machineDataRepository,
+            AnalyticsAggregateService analyticsAggregateService,
+            @Value("${analytics.writer.queue.capacity:20000}") int queueCapacity,
+            @Value("${analytics.writer.batch.size:500}") int batchSize) {
+        this.machineDataRepository = machineDataRepository;
+        this.analyticsAggregateService = analyticsAggregateService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+    }
+
+    // Never blocks the caller; returns false if the row was dropped
+    public boolean enqueue(MachineData data) {
+        if (queue.offer(data)) {
+            enqueued.incrementAndGet();
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.writer.flush.interval.ms:1000}")
+    public void flush() {
+        List<MachineData> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<MachineData> batch) {
+        long start = System.currentTimeMillis();
+        try {
+            machineDataRepository.saveAll(batch);
+            for (MachineData data : batch) {
+                analyticsAggregateService.record(data);
+            }
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            System.err.println("❌ Failed to write " + batch.size() + " analytics rows: " + e.getMessage());
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        flushes.incrementAndGet();
+        flushMillisTotal.addAndGet(elapsed);
+        lastFlushMillis = elapsed;
+        lastFlushRows = batch.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public Map<String, Object> getMetrics() {
+        long flushCount = flushes.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", queue.size());
+        metrics.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        metrics.put("enqueued", enqueued.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("written", written.get());
+        metrics.put("failed", failed.get());
+        metrics.put("flushes", flushCount);
+        metrics.put("avgFlushMillis", flushCount == 0 ? 0.0 : (double) flushMillisTotal.get() / flushCount);
+        metrics.put("lastFlushMillis", lastFlushMillis);
+        metrics.put("lastFlushRows", lastFlushRows);
+        return metrics;
+    }
+}
@@ -1,66 +1,65 @@
 package com.coffeemachine.simulator.service;
 
+import com.coffee.grpc.telemetry.CommandAck;
+import com.coffee.grpc.telemetry.MachineCommand;
 import com.coffeemachine.simulator.model.MachineData;
-import com.coffeemachine.simulator.repository.MachineDataRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.eclipse.paho.client.mqttv3.MqttClient;
-import org.eclipse.paho.client.mqttv3.MqttException;
-import org.eclipse.paho.client.mqttv3.MqttMessage;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-import jakarta.annotation.PostConstruct;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class MachineSimulatorService {
 
     private final ObjectMapper objectMapper;
-    private final MachineDataRepository machineDataRepository;
-    private MqttClient mqttClient;
+    private final MachineDataBatchWriter machineDataBatchWriter;
+    private final MqttPublisherPool mqttPublisherPool;
 
-    // MQTT Config from application.properties
-    @Value("${mqtt.broker.url}")
-    private String brokerUrl;
+    // Three machines per facility, as in the original Pune/Mumbai layout
+    @Value("${simulator.machine.count:6}")
+    private int machineCount;
 
-    private String clientId = "mqtt-simulator-client" + UUID.randomUUID();
+    // Gateway mode: one facility/{id}/telemetry message carrying every machine's reading per cycle
+    @Value("${simulator.gateway.enabled:false}")
+    private boolean gatewayMode;
 
-    @Value("${mqtt.username}")
-    private String username = "your-hivemq-username";
+    // Sparse mode: send only fields that changed since the last message, plus a full snapshot every N messages
+    @Value("${simulator.sparse.enabled:false}")
+    private boolean sparseMode;
 
-    @Value("${mqtt.password}")
-    private String password = "your-hivemq-password";
+    @Value("${simulator.sparse.full-every:12}")
+    private int sparseFullEvery;
 
-    public MachineSimulatorService(ObjectMapper objectMapper, MachineDataRepository machineDataRepository) {
-        this.objectMapper = objectMapper;
-        this.machineDataRepository = machineDataRepository;
-    }
+    // mqtt (default) or grpc: stream readings to the backend's gRPC ingest and take commands on its command channel
+    @Value("${simulator.transport:mqtt}")
+    private String transport;
 
-    @PostConstruct
-    public void init() {
-        // Initialize MQTT client after properties are injected
-        initializeMqttClient();
-    }
+    @Value("${simulator.grpc.target:localhost:9090}")
+    private String grpcTarget;
 
-    private void initializeMqttClient() {
-        try {
-            mqttClient = new MqttClient(brokerUrl, clientId);
-
-            // Set up connection options with authentication
-            MqttConnectOptions options = new MqttConnectOptions();
-            options.setUserName(username);
-            options.setPassword(password.toCharArray());
-            options.setCleanSession(true);
-
-            mqttClient.connect(options);
-            System.out.println("✅ MQTT Client connected to: " + brokerUrl);
-        } catch (MqttException e) {
-            System.err.println("❌ Failed to connect MQTT client: " + e.getMessage());
-            e.printStackTrace();
-        }
+    // A device token from the backend's app.ingest.device-tokens
+    @Value("${simulator.grpc.token:}")
+    private String grpcToken;
+
+    @Value("${simulator.grpc.plaintext:false}")
+    private boolean grpcPlaintext;
+
+    private GrpcTelemetryClient grpcClient;
+
+    // Always sent, even in sparse mode
+    private static final Set<String> KEY_FIELDS = new HashSet<>(
+            Arrays.asList("machineId", "facilityId", "timestamp", "epoch", "seq"));
+
+    public MachineSimulatorService(ObjectMapper objectMapper, MachineDataBatchWriter machineDataBatchWriter,
+            MqttPublisherPool mqttPublisherPool) {
+        this.objectMapper = objectMapper;
+        this.machineDataBatchWriter = machineDataBatchWriter;
+        this.mqttPublisherPool = mqttPublisherPool;
     }
 
     // In-memory machine state for deterministic, gradual changes
@@ -72,16 +71,27 @@ public class MachineSimulatorService {
         int milk;
         int beans;
         int sugar;
+        long seq;
+        // Brew commanded over the command channel and its command id, reported with the next reading
+        String pendingBrew;
+        String pendingBrewCommand;
+        // Last values published, for sparse mode
+        final Map<String, Object> lastSent = new HashMap<>();
     }
 
-    private final Map<Integer, MachineState> idToState = new HashMap<>();
+    // Sent with every message so the backend can tell QoS 1 redeliveries from new readings;
+    // a restart starts a new epoch and the per-machine seq counts up from 1 again
+    private final long epoch = System.currentTimeMillis();
+
+    // Read by command callbacks on MQTT/gRPC threads
+    private final Map<Integer, MachineState> idToState = new ConcurrentHashMap<>();
 
     private void ensureStatesInitialized() {
         if (!idToState.isEmpty()) return;
-        // Machines 1-3: Pune (facility 1), 4-6: Mumbai (facility 2)
-        for (int id = 1; id <= 6; id++) {
+        // Machines 1-3: Pune (facility 1), 4-6: Mumbai (facility 2), and so on
+        for (int id = 1; id <= machineCount; id++) {
             MachineState s = new MachineState();
-            s.facilityId = (id <= 3) ? 1 : 2;
+            s.facilityId = facilityFor(id);
             s.status = "ON";
             s.temperature = 92; // starting temp
             s.water = 100;
@@ -96,20 +106,26 @@ public class MachineSimulatorService {
     @Scheduled(fixedRate = 5000)
     public void simulateMachines() {
         try {
-            if (mqttClient == null || !mqttClient.isConnected()) {
-                System.out.println("⚠️ MQTT client not connected, attempting to reconnect...");
-                initializeMqttClient();
+            boolean grpc = "grpc".equalsIgnoreCase(transport);
+            if (!grpc && !mqttPublisherPool.isConnected()) {
+                System.out.println("⚠️ MQTT publishers not connected, attempting to reconnect...");
+                mqttPublisherPool.connect();
                 return;
             }
 
             ensureStatesInitialized();
-            System.out.println("🔄 Starting simulation cycle for 6 machines...");
+            if (grpc) {
+                // No-op while the channel is open; reopens it after the backend went away
+                grpcClient().openCommandChannel(new ArrayList<>(idToState.keySet()), this::applyCommand);
+            }
+            System.out.println("🔄 Starting simulation cycle for " + machineCount + " machines...");
 
-            for (int machineId = 1; machineId <= 6; machineId++) {
+            Map<Integer, List<Map<String, Object>>> byFacility = new LinkedHashMap<>();
+            for (int machineId = 1; machineId <= machineCount; machineId++) {
                 Map<String, Object> messageMap = generateMachineData(machineId);
 
                 try {
-                    // Save analytics data to local database
+                    // Queue analytics data for the background batch writer
                     MachineData machineData = new MachineData(
                             machineId,
                             (Integer) messageMap.get("facilityId"),
@@ -121,44 +137,183 @@ public class MachineSimulatorService {
                             ((Number) messageMap.get("sugarLevel")).doubleValue(),
                             (String) messageMap.get("brewType"));
 
-                    machineDataRepository.save(machineData);
-                    System.out.println("💾 Saved analytics data for machine " + machineId);
+                    if (!machineDataBatchWriter.enqueue(machineData)) {
+                        System.err.println("⚠️ Analytics queue full, dropped data for machine " + machineId);
+                    }
 
-                    // Convert to JSON for MQTT
-                    String jsonMessage = objectMapper.writeValueAsString(messageMap);
+                    if (sparseMode) {
+                        messageMap = sparsify(idToState.get(machineId), messageMap);
+                    }
 
-                    // Publish to HiveMQ - let the backend handle real-time updates
-                    String topic = "coffeemachine/" + machineId + "/data";
-                    MqttMessage mqttMessage = new MqttMessage(jsonMessage.getBytes());
-                    mqttMessage.setQos(1);
-                    mqttClient.publish(topic, mqttMessage);
+                    if (grpc) {
+                        grpcClient().send(GrpcTelemetryClient.toReading(objectMapper.valueToTree(messageMap)));
+                        markSent(messageMap);
+                        continue;
+                    }
 
-                    System.out.println("✅ Published to topic: " + topic + " → " + jsonMessage);
+                    if (gatewayMode) {
+                        byFacility.computeIfAbsent((Integer) messageMap.get("facilityId"), id -> new ArrayList<>())
+                                .add(messageMap);
+                        continue;
+                    }
+
+                    // Publish to HiveMQ - let the backend handle real-time updates
+                    if (publish("coffeemachine/" + machineId + "/data", messageMap)) {
+                        markSent(messageMap);
+                    }
 
                 } catch (Exception e) {
                     System.err.println("❌ Error processing machine " + machineId + ": " + e.getMessage());
                     e.printStackTrace();
                 }
             }
+
+            for (Map.Entry<Integer, List<Map<String, Object>>> facility : byFacility.entrySet()) {
+                try {
+                    if (publish("facility/" + facility.getKey() + "/telemetry", facility.getValue())) {
+                        for (Map<String, Object> message : facility.getValue()) {
+                            markSent(message);
+                        }
+                    }
+                } catch (Exception e) {
+                    System.err.println("❌ Error publishing facility " + facility.getKey() + ": " + e.getMessage());
+                }
+            }
         } catch (Exception e) {
             System.err.println("❌ Error in simulation cycle: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    private synchronized GrpcTelemetryClient grpcClient() {
+        if (grpcClient == null) {
+            grpcClient = new GrpcTelemetryClient(grpcTarget, grpcToken, grpcPlaintext);
+            System.out.println("🔌 Streaming telemetry over gRPC to " + grpcTarget);
+        }
+        return grpcClient;
+    }
+
+    public boolean hasMachine(int machineId) {
+        return idToState.containsKey(machineId);
+    }
+
+    // Applies a command from the backend (gRPC channel or MQTT cmd topic) to the simulated machine; the result becomes the ack
+    public CommandAck applyCommand(MachineCommand command) {
+        MachineState s = idToState.get(command.getMachineId());
+        CommandAck.Builder ack = CommandAck.newBuilder();
+        if (s == null) {
+            return ack.setSuccess(false).setMessage("Unknown machine").build();
+        }
+        synchronized (s) {
+            if (command.hasStatus()) {
+                s.status = command.getStatus().getStatus();
+                System.out.println("📥 Machine " + command.getMachineId() + " set " + s.status);
+                return ack.setSuccess(true).setMessage("Status " + s.status).build();
+            }
+            if (command.hasBrew()) {
+                String brewType = command.getBrew().getBrewType();
+                if (!"ON".equals(s.status)) {
+                    return ack.setSuccess(false).setMessage("Machine is " + s.status).build();
+                }
+                if (s.water < 5 || s.beans < 3) {
+                    return ack.setSuccess(false).setMessage("Insufficient supplies").build();
+                }
+                s.water -= 5;
+                s.beans -= 3;
+                if (brewType.contains("LATTE") || brewType.contains("CAPPUCCINO") || brewType.contains("MOCHA")) {
+                    s.milk = Math.max(0, s.milk - 4);
+                }
+                s.pendingBrew = brewType;
+                s.pendingBrewCommand = command.getCommandId();
+                System.out.println("📥 Machine " + command.getMachineId() + " brewed " + brewType);
+                return ack.setSuccess(true).setMessage("Brewed " + brewType).build();
+            }
+        }
+        return ack.setSuccess(false).setMessage("Unsupported command").build();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        GrpcTelemetryClient client;
+        synchronized (this) {
+            client = grpcClient;
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    // Drops fields that have not changed since the last message that went out; brewType and commandId only when
+    // something was brewed. lastSent is left alone here, the message may still be dropped
+    private Map<String, Object> sparsify(MachineState state, Map<String, Object> full) {
+        boolean snapshot = sparseFullEvery <= 1 || state.seq % sparseFullEvery == 1;
+        Map<String, Object> sparse = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : full.entrySet()) {
+            String name = field.getKey();
+            Object value = field.getValue();
+            if (KEY_FIELDS.contains(name)) {
+                sparse.put(name, value);
+            } else if ("brewType".equals(name) || "commandId".equals(name)) {
+                if (!"None".equals(value)) {
+                    sparse.put(name, value);
+                }
+            } else if (snapshot || !Objects.equals(state.lastSent.get(name), value)) {
+                sparse.put(name, value);
+            }
+        }
+        return sparse;
+    }
+
+    // Called once a message is handed to the transport; its fields are what the backend now holds
+    private void markSent(Map<String, Object> message) {
+        if (!sparseMode) {
+            return;
+        }
+        MachineState state = idToState.get((Integer) message.get("machineId"));
+        for (Map.Entry<String, Object> field : message.entrySet()) {
+            String name = field.getKey();
+            if (!KEY_FIELDS.contains(name) && !"brewType".equals(name) && !"commandId".equals(name)) {
+                state.lastSent.put(name, field.getValue());
+            }
+        }
+    }
+
+    // Returns false if the pool dropped the message
+    private boolean publish(String topic, Object message) throws Exception {
+        // Convert to JSON for MQTT
+        String jsonMessage = objectMapper.writeValueAsString(message);
+        if (mqttPublisherPool.publish(topic, jsonMessage.getBytes())) {
+            System.out.println("✅ Published to topic: " + topic + " → " + jsonMessage);
+            return true;
+        }
+        System.err.println("⚠️ MQTT publish window full or disconnected, dropped message for " + topic);
+        return false;
+    }
+
+    private static int facilityFor(int machineId) {
+        return (machineId - 1) / 3 + 1;
+    }
+
     private Map<String, Object> generateMachineData(int machineId) {
-        Map<String, Object> messageMap = new LinkedHashMap<>();
         ensureStatesInitialized();
         MachineState s = idToState.get(machineId);
         if (s == null) {
             s = new MachineState();
-            s.facilityId = (machineId <= 3) ? 1 : 2;
+            s.facilityId = facilityFor(machineId);
             s.status = "ON";
             s.temperature = 92;
             s.water = s.milk = s.beans = s.sugar = 100;
             idToState.put(machineId, s);
         }
 
+        // Commands from the gRPC channel change the same state concurrently
+        synchronized (s) {
+            return advance(machineId, s);
+        }
+    }
+
+    private Map<String, Object> advance(int machineId, MachineState s) {
+        Map<String, Object> messageMap = new LinkedHashMap<>();
         // Simple logic: if ON, gradually decrease supplies; temp fluctuates a bit
         if ("ON".equals(s.status)) {
             s.temperature = Math.max(85, Math.min(110, s.temperature + (new Random().nextBoolean() ? 1 : -1)));
@@ -177,7 +332,13 @@ public class MachineSimulatorService {
         messageMap.put("beansLevel", s.beans);
         messageMap.put("sugarLevel", s.sugar);
 
-        if ("ON".equals(s.status)) {
+        if (s.pendingBrew != null) {
+            messageMap.put("brewType", s.pendingBrew);
+            // The backend recorded usage for its own BREW command and must not count it again
+            messageMap.put("commandId", s.pendingBrewCommand);
+            s.pendingBrew = null;
+            s.pendingBrewCommand = null;
+        } else if ("ON".equals(s.status)) {
             String[] brewTypes = { "AMERICANO", "LATTE", "BLACK_COFFEE", "CAPPUCCINO", "ESPRESSO" };
             String brewType = brewTypes[Math.abs(Objects.hash(machineId, System.currentTimeMillis())) % brewTypes.length];
             messageMap.put("brewType", brewType);
@@ -186,6 +347,8 @@ public class MachineSimulatorService {
         }
 
         messageMap.put("timestamp", LocalDateTime.now().toString());
+        messageMap.put("epoch", epoch);
+        messageMap.put("seq", ++s.seq);
         return messageMap;
     }
 }
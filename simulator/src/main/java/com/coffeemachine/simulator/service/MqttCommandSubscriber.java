@@ -0,0 +1,177 @@
+package com.coffeemachine.simulator.service;
+
+import com.coffee.grpc.telemetry.BrewAction;
+import com.coffee.grpc.telemetry.CommandAck;
+import com.coffee.grpc.telemetry.MachineCommand;
+import com.coffee.grpc.telemetry.StatusAction;
+import com.coffeemachine.simulator.MqttUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.paho.client.mqttv3.*;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Takes backend commands from coffeemachine/+/cmd, applies them to the
+ * simulated machines and answers on coffeemachine/{id}/ack with the same
+ * commandId. Commands for machines this simulator does not run are ignored,
+ * and commands past their expiresAt are dropped without an ack (the backend
+ * has already given up on them).
+ */
+@Service
+public class MqttCommandSubscriber {
+
+    private static final String COMMAND_TOPIC = "coffeemachine/+/cmd";
+
+    @Value("${mqtt.broker.url}")
+    private String brokerUrl;
+
+    @Value("${mqtt.username}")
+    private String username;
+
+    @Value("${mqtt.password}")
+    private String password;
+
+    @Value("${mqtt.clientId:mqtt-simulator-client}")
+    private String clientIdPrefix;
+
+    @Value("${simulator.commands.enabled:true}")
+    private boolean enabled;
+
+    private final MachineSimulatorService simulatorService;
+    private final ObjectMapper objectMapper;
+    private MqttAsyncClient client;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong acked = new AtomicLong();
+
+    public MqttCommandSubscriber(MachineSimulatorService simulatorService, ObjectMapper objectMapper) {
+        this.simulatorService = simulatorService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            client = new MqttAsyncClient(brokerUrl, clientIdPrefix + "-commands-" + UUID.randomUUID().toString().substring(0, 8),
+                    new MemoryPersistence());
+        } catch (MqttException e) {
+            System.err.println("❌ Failed to create MQTT command client: " + e.getMessage());
+            return;
+        }
+        MqttConnectOptions options = MqttUtils.getOptions(username, password);
+        options.setAutomaticReconnect(true);
+
+        client.setCallback(new MqttCallbackExtended() {
+            // Clean session: subscribe again after every (re)connect
+            @Override
+            public void connectComplete(boolean reconnect, String serverURI) {
+                try {
+                    client.subscribe(COMMAND_TOPIC, 1);
+                    System.out.println("✅ Listening for commands on " + COMMAND_TOPIC);
+                } catch (MqttException e) {
+                    System.err.println("❌ Command subscribe failed: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void connectionLost(Throwable cause) {
+                System.err.println("⚠️ MQTT command connection lost: " + cause.getMessage());
+            }
+
+            @Override
+            public void messageArrived(String topic, MqttMessage message) {
+                handle(message.getPayload());
+            }
+
+            @Override
+            public void deliveryComplete(IMqttDeliveryToken token) {
+            }
+        });
+        try {
+            client.connect(options);
+        } catch (MqttException e) {
+            System.err.println("❌ MQTT command client failed to connect: " + e.getMessage());
+        }
+    }
+
+    // {"commandId", "machineId", "type": "BREW"|"STATUS", "brewType"|"status", "issuedAt", "expiresAt"}
+    private void handle(byte[] payload) {
+        JsonNode json;
+        try {
+            json = objectMapper.readTree(payload);
+        } catch (Exception e) {
+            System.err.println("⚠️ Unreadable command: " + e.getMessage());
+            return;
+        }
+        int machineId = json.path("machineId").asInt();
+        if (!simulatorService.hasMachine(machineId)) {
+            return;
+        }
+        received.incrementAndGet();
+        if (json.has("expiresAt") && json.get("expiresAt").asLong() < System.currentTimeMillis()) {
+            expired.incrementAndGet();
+            return;
+        }
+
+        MachineCommand.Builder command = MachineCommand.newBuilder()
+                .setCommandId(json.path("commandId").asText())
+                .setMachineId(machineId);
+        String type = json.path("type").asText();
+        if ("BREW".equals(type)) {
+            command.setBrew(BrewAction.newBuilder().setBrewType(json.path("brewType").asText()));
+        } else if ("STATUS".equals(type)) {
+            command.setStatus(StatusAction.newBuilder().setStatus(json.path("status").asText()));
+        }
+        CommandAck ack = simulatorService.applyCommand(command.build());
+
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("commandId", command.getCommandId());
+        reply.put("machineId", machineId);
+        reply.put("success", ack.getSuccess());
+        reply.put("message", ack.getMessage());
+        try {
+            // Async publish: never wait inside the Paho callback
+            client.publish("coffeemachine/" + machineId + "/ack", objectMapper.writeValueAsBytes(reply), 1, false);
+            acked.incrementAndGet();
+        } catch (Exception e) {
+            System.err.println("⚠️ Ack for command " + command.getCommandId() + " not sent: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("connected", client != null && client.isConnected());
+        metrics.put("received", received.get());
+        metrics.put("expired", expired.get());
+        metrics.put("acked", acked.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (client == null) {
+            return;
+        }
+        try {
+            if (client.isConnected()) {
+                client.disconnect().waitForCompletion(5000);
+            }
+            client.close();
+        } catch (MqttException e) {
+            System.err.println("⚠️ Error closing MQTT command client: " + e.getMessage());
+        }
+    }
+}
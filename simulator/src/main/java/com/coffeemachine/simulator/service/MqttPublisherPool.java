@@ -0,0 +1,283 @@
+package com.coffeemachine.simulator.service;
+
+import com.coffeemachine.simulator.MqttUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.paho.client.mqttv3.*;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking MQTT publishing spread over several MqttAsyncClient connections.
+ * Each connection has its own in-flight window; a topic always goes through the
+ * same connection so per-machine ordering is kept. Ack latency and throughput
+ * are tracked and logged periodically.
+ */
+@Service
+public class MqttPublisherPool {
+
+    @Value("${mqtt.broker.url}")
+    private String brokerUrl;
+
+    @Value("${mqtt.username}")
+    private String username;
+
+    @Value("${mqtt.password}")
+    private String password;
+
+    @Value("${mqtt.clientId:mqtt-simulator-client}")
+    private String clientIdPrefix;
+
+    // 1 = wait for PUBACK, 0 = fire and forget for load tests
+    @Value("${mqtt.qos:1}")
+    private int qos;
+
+    @Value("${mqtt.publisher.connections:2}")
+    private int connections;
+
+    @Value("${mqtt.publisher.max.inflight:100}")
+    private int maxInflight;
+
+    // How long publish may wait for a free in-flight slot. 0 for the Spring bean: its caller is the simulation
+    // loop, which must never stall on a slow broker, so a full window drops the message at once. Only a caller on
+    // its own thread (the replay tool) opts into waiting as back-pressure
+    private long windowTimeoutMs;
+
+    private final List<MqttAsyncClient> clients = new ArrayList<>();
+    private final List<Semaphore> windows = new ArrayList<>();
+    private MqttConnectOptions options;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // Ack latency of the current reporting interval
+    private final LongAdder intervalAcks = new LongAdder();
+    private final LongAdder intervalLatencyNanos = new LongAdder();
+    private final AtomicLong intervalMaxLatencyNanos = new AtomicLong();
+    private volatile long intervalStartNanos = System.nanoTime();
+    private volatile Map<String, Object> lastInterval = new LinkedHashMap<>();
+
+    public MqttPublisherPool() {
+
+    }
+
+    // For use outside Spring, e.g. the telemetry replay tool
+    public MqttPublisherPool(String brokerUrl, String username, String password, String clientIdPrefix, int qos,
+            int connections, int maxInflight, long windowTimeoutMs) {
+        this.brokerUrl = brokerUrl;
+        this.username = username;
+        this.password = password;
+        this.clientIdPrefix = clientIdPrefix;
+        this.qos = qos;
+        this.connections = connections;
+        this.maxInflight = maxInflight;
+        this.windowTimeoutMs = windowTimeoutMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        options = MqttUtils.getOptions(username, password);
+        options.setMaxInflight(maxInflight);
+        options.setAutomaticReconnect(true);
+
+        String runId = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < connections; i++) {
+            try {
+                clients.add(new MqttAsyncClient(brokerUrl, clientIdPrefix + "-" + runId + "-" + i,
+                        new MemoryPersistence()));
+                windows.add(new Semaphore(maxInflight));
+            } catch (MqttException e) {
+                System.err.println("❌ Failed to create MQTT client " + i + ": " + e.getMessage());
+            }
+        }
+        connect();
+    }
+
+    // Starts a connect on every client that is down; does not wait for it
+    public void connect() {
+        for (final MqttAsyncClient client : clients) {
+            if (client.isConnected()) {
+                continue;
+            }
+            try {
+                client.connect(options, null, new IMqttActionListener() {
+                    @Override
+                    public void onSuccess(IMqttToken token) {
+                        System.out.println("✅ MQTT publisher " + client.getClientId() + " connected to: " + brokerUrl);
+                    }
+
+                    @Override
+                    public void onFailure(IMqttToken token, Throwable e) {
+                        System.err.println("❌ MQTT publisher " + client.getClientId() + " failed to connect: "
+                                + e.getMessage());
+                    }
+                });
+            } catch (MqttException e) {
+                // Connect already in progress or client closing; the next tick retries
+            }
+        }
+    }
+
+    public boolean isConnected() {
+        for (MqttAsyncClient client : clients) {
+            if (client.isConnected()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Waits until every connection is up, or the timeout passes
+    public boolean awaitConnected(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (System.currentTimeMillis() < deadline) {
+            boolean all = !clients.isEmpty();
+            for (MqttAsyncClient client : clients) {
+                all &= client.isConnected();
+            }
+            if (all) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    // Returns false if the message was dropped (connection down or window full)
+    public boolean publish(String topic, byte[] payload) {
+        if (clients.isEmpty()) {
+            dropped.increment();
+            return false;
+        }
+        int index = Math.floorMod(topic.hashCode(), clients.size());
+        MqttAsyncClient client = clients.get(index);
+        final Semaphore window = windows.get(index);
+        if (!client.isConnected()) {
+            dropped.increment();
+            return false;
+        }
+        try {
+            boolean slot = windowTimeoutMs > 0
+                    ? window.tryAcquire(windowTimeoutMs, TimeUnit.MILLISECONDS)
+                    : window.tryAcquire();
+            if (!slot) {
+                dropped.increment();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+            return false;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            client.publish(topic, payload, qos, false, null, new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken token) {
+                    window.release();
+                    recordAck(System.nanoTime() - start);
+                }
+
+                @Override
+                public void onFailure(IMqttToken token, Throwable e) {
+                    window.release();
+                    failed.increment();
+                }
+            });
+            published.increment();
+            return true;
+        } catch (MqttException e) {
+            window.release();
+            failed.increment();
+            return false;
+        }
+    }
+
+    private void recordAck(long latencyNanos) {
+        acked.increment();
+        intervalAcks.increment();
+        intervalLatencyNanos.add(latencyNanos);
+        long max;
+        do {
+            max = intervalMaxLatencyNanos.get();
+        } while (latencyNanos > max && !intervalMaxLatencyNanos.compareAndSet(max, latencyNanos));
+    }
+
+    @Scheduled(fixedRateString = "${mqtt.publisher.report.interval.ms:30000}",
+            initialDelayString = "${mqtt.publisher.report.interval.ms:30000}")
+    public void report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - intervalStartNanos) / 1e9);
+        intervalStartNanos = now;
+        long acks = intervalAcks.sumThenReset();
+        long latencyNanos = intervalLatencyNanos.sumThenReset();
+        long maxNanos = intervalMaxLatencyNanos.getAndSet(0);
+
+        Map<String, Object> interval = new LinkedHashMap<>();
+        interval.put("ackedPerSecond", acks / seconds);
+        interval.put("avgAckMillis", acks == 0 ? 0.0 : latencyNanos / 1e6 / acks);
+        interval.put("maxAckMillis", maxNanos / 1e6);
+        interval.put("inFlight", inFlight());
+        lastInterval = interval;
+
+        if (acks > 0) {
+            System.out.println(String.format("📈 MQTT publish: %.1f msg/s, avg ack %.1f ms, max ack %.1f ms, %d in flight",
+                    acks / seconds, latencyNanos / 1e6 / acks, maxNanos / 1e6, inFlight()));
+        }
+    }
+
+    private int inFlight() {
+        int total = 0;
+        for (Semaphore window : windows) {
+            total += maxInflight - window.availablePermits();
+        }
+        return total;
+    }
+
+    public Map<String, Object> getMetrics() {
+        int connected = 0;
+        for (MqttAsyncClient client : clients) {
+            if (client.isConnected()) {
+                connected++;
+            }
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("qos", qos);
+        metrics.put("connections", clients.size());
+        metrics.put("connected", connected);
+        metrics.put("maxInflightPerConnection", maxInflight);
+        metrics.put("inFlight", inFlight());
+        metrics.put("published", published.sum());
+        metrics.put("acked", acked.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("dropped", dropped.sum());
+        metrics.put("lastInterval", lastInterval);
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (MqttAsyncClient client : clients) {
+            try {
+                if (client.isConnected()) {
+                    // Give in-flight messages a moment to be acknowledged
+                    client.disconnect(5000).waitForCompletion(6000);
+                }
+                client.close();
+            } catch (MqttException e) {
+                System.err.println("⚠️ Error closing MQTT publisher " + client.getClientId() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package com.coffeemachine.simulator.service;
+
+import com.coffeemachine.simulator.model.LevelStats;
+import com.coffeemachine.simulator.model.MachineData;
+import com.coffeemachine.simulator.model.MachineDataRollup;
+import com.coffeemachine.simulator.model.MachineDataRollup.Resolution;
+import com.coffeemachine.simulator.model.TelemetryPoint;
+import com.coffeemachine.simulator.model.TelemetrySeries;
+import com.coffeemachine.simulator.repository.MachineDataRepository;
+import com.coffeemachine.simulator.repository.MachineDataRollupRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Tiered storage for machine telemetry. Raw MachineData rows are kept for a
+ * short window and rolled up into 1-minute and 1-hour min/max/avg buckets,
+ * each tier with its own retention, so storage and chart cost stay bounded.
+ * The analytics aggregates are answered across the same tiers: hour buckets,
+ * then minute buckets, then the raw rows still kept.
+ */
+@Service
+public class TelemetryTimeSeriesService {
+
+    // Longest fixed window an endpoint serves from raw rows (/api/analytics/recent-activity)
+    public static final long RECENT_ACTIVITY_HOURS = 24;
+
+    private final MachineDataRepository machineDataRepository;
+    private final MachineDataRollupRepository rollupRepository;
+
+    @Value("${telemetry.raw.retention.minutes:1440}")
+    private long rawRetentionMinutes;
+
+    @Value("${telemetry.minute.retention.days:7}")
+    private long minuteRetentionDays;
+
+    @Value("${telemetry.hour.retention.days:365}")
+    private long hourRetentionDays;
+
+    // Samples of a closed minute may still be on their way to the DB
+    @Value("${telemetry.rollup.grace.seconds:30}")
+    private long graceSeconds;
+
+    // Most points per machine an AUTO range query may return
+    @Value("${telemetry.query.max.points:720}")
+    private long maxPoints;
+
+    @Value("${mqtt.publish.interval.seconds:5}")
+    private long sampleIntervalSeconds;
+
+    private final List<PruneListener> pruneListeners = new CopyOnWriteArrayList<>();
+
+    // Everything before a watermark has been rolled up into that tier
+    private volatile LocalDateTime minuteWatermark;
+    private volatile LocalDateTime hourWatermark;
+
+    public TelemetryTimeSeriesService(MachineDataRepository machineDataRepository,
+            MachineDataRollupRepository rollupRepository) {
+        this.machineDataRepository = machineDataRepository;
+        this.rollupRepository = rollupRepository;
+    }
+
+    // Raw rows are what the list endpoints return, so they are never pruned inside the recent-activity window
+    @PostConstruct
+    public void checkRetention() {
+        long floor = RECENT_ACTIVITY_HOURS * 60;
+        if (rawRetentionMinutes < floor) {
+            System.out.println("⚠️ telemetry.raw.retention.minutes=" + rawRetentionMinutes + " is below the "
+                    + RECENT_ACTIVITY_HOURS + "h recent-activity window, keeping raw rows for " + floor + " minutes");
+            rawRetentionMinutes = floor;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${telemetry.rollup.interval.ms:60000}",
+            initialDelayString = "${telemetry.rollup.interval.ms:60000}")
+    public void rollup() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            initWatermarks(now);
+
+            int minuteBuckets = rollupMinutes(now.minusSeconds(graceSeconds).truncatedTo(ChronoUnit.MINUTES));
+            int hourBuckets = rollupHours(minuteWatermark.truncatedTo(ChronoUnit.HOURS));
+            prune(now);
+
+            if (minuteBuckets > 0 || hourBuckets > 0) {
+                System.out.println("📉 Rolled up " + minuteBuckets + " minute and " + hourBuckets
+                        + " hour buckets (minute watermark " + minuteWatermark + ")");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error rolling up telemetry: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Range query for one machine; a null resolution picks the finest tier that covers the range
+    public TelemetrySeries getSeries(Integer machineId, LocalDateTime from, LocalDateTime to, Resolution resolution) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("startDate must be before endDate");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        initWatermarks(now);
+        Resolution chosen = resolution != null ? resolution : chooseResolution(from, to, now);
+
+        List<TelemetryPoint> points = new ArrayList<>();
+        LocalDateTime minuteEdge = minuteWatermark;
+        LocalDateTime hourEdge = hourWatermark;
+
+        if (chosen == Resolution.RAW) {
+            for (MachineData data : machineDataRepository.findSeries(machineId, from, to)) {
+                points.add(TelemetryPoint.fromRaw(data));
+            }
+        } else if (chosen == Resolution.MINUTE) {
+            // Stored minute buckets, then the not yet rolled up tail bucketed on the fly
+            points.addAll(storedPoints(machineId, Resolution.MINUTE, from, earliest(to, minuteEdge)));
+            TreeMap<LocalDateTime, RollupAccumulator> tail = new TreeMap<>();
+            addRawTail(tail, machineId, latest(from, minuteEdge), to, ChronoUnit.MINUTES);
+            points.addAll(toPoints(tail));
+        } else {
+            points.addAll(storedPoints(machineId, Resolution.HOUR, from, earliest(to, hourEdge)));
+            TreeMap<LocalDateTime, RollupAccumulator> tail = new TreeMap<>();
+            LocalDateTime tailStart = latest(from, hourEdge);
+            LocalDateTime tailEnd = earliest(to, minuteEdge);
+            if (tailStart.isBefore(tailEnd)) {
+                for (MachineDataRollup rollup : rollupRepository.findSeries(machineId, Resolution.MINUTE, tailStart,
+                        tailEnd)) {
+                    accumulator(tail, rollup.getBucketStart().truncatedTo(ChronoUnit.HOURS), rollup.getFacilityId())
+                            .addRollup(rollup);
+                }
+            }
+            addRawTail(tail, machineId, latest(tailStart, minuteEdge), to, ChronoUnit.HOURS);
+            points.addAll(toPoints(tail));
+        }
+        return new TelemetrySeries(machineId, chosen, from, to, points);
+    }
+
+    // Aggregates over [from, to] (null = open) with MachineDataRepository's row shapes, one result per tier;
+    // windows reaching into rolled-up time resolve to whole minutes there
+    public List<Object[]> countByBrewType(Integer machineId, LocalDateTime from, LocalDateTime to) {
+        return acrossTiers(from, to,
+                (resolution, tierFrom, tierTo, before) -> rollupRepository.countByBrewType(resolution, machineId,
+                        tierFrom, tierTo, before),
+                rawFrom -> machineDataRepository.countByBrewType(machineId, rawFrom, to));
+    }
+
+    public List<Object[]> countByStatus(Integer machineId, LocalDateTime from, LocalDateTime to) {
+        return acrossTiers(from, to,
+                (resolution, tierFrom, tierTo, before) -> rollupRepository.countByStatus(resolution, machineId,
+                        tierFrom, tierTo, before),
+                rawFrom -> machineDataRepository.countByStatus(machineId, rawFrom, to));
+    }
+
+    public List<Object[]> sumLevels(Integer machineId, LocalDateTime from, LocalDateTime to) {
+        return acrossTiers(from, to,
+                (resolution, tierFrom, tierTo, before) -> rollupRepository.sumLevels(resolution, machineId,
+                        tierFrom, tierTo, before),
+                rawFrom -> machineDataRepository.sumLevels(machineId, rawFrom, to));
+    }
+
+    public void addPruneListener(PruneListener listener) {
+        pruneListeners.add(listener);
+    }
+
+    // Hours before minuteStart, minutes up to rawStart, raw rows from there; the edges never overlap.
+    // A window edge inside an hour-tier hour is answered from that hour's minute buckets while they are kept;
+    // past telemetry.minute.retention.days a partial first hour is left out and a partial last hour counted whole
+    private List<Object[]> acrossTiers(LocalDateTime from, LocalDateTime to, RollupQuery rollups,
+            Function<LocalDateTime, List<Object[]>> raw) {
+        LocalDateTime now = LocalDateTime.now();
+        initWatermarks(now);
+        LocalDateTime rawStart = rawStart(now);
+        LocalDateTime minuteStart = earliest(hourWatermark, rawStart.truncatedTo(ChronoUnit.HOURS));
+
+        List<Object[]> rows = new ArrayList<>();
+        if (from == null || from.isBefore(minuteStart)) {
+            LocalDateTime minutesKept = rollupRepository.findEarliestBucketStart(Resolution.MINUTE);
+            LocalDateTime hoursFrom = from;
+            LocalDateTime hoursBefore = minuteStart;
+            if (from != null && !from.equals(from.truncatedTo(ChronoUnit.HOURS))) {
+                hoursFrom = from.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                if (covers(minutesKept, from)) {
+                    rows.addAll(rollups.query(Resolution.MINUTE, from, to, earliest(hoursFrom, minuteStart)));
+                }
+            }
+            if (to != null && to.isBefore(minuteStart)) {
+                LocalDateTime lastHour = to.truncatedTo(ChronoUnit.HOURS);
+                if (covers(minutesKept, lastHour)) {
+                    hoursBefore = lastHour;
+                    rows.addAll(rollups.query(Resolution.MINUTE, hoursFrom == null ? lastHour
+                            : latest(lastHour, hoursFrom), to, minuteStart));
+                } else {
+                    hoursBefore = lastHour.plusHours(1);
+                }
+            }
+            if (hoursFrom == null || hoursFrom.isBefore(hoursBefore)) {
+                rows.addAll(rollups.query(Resolution.HOUR, hoursFrom, null, hoursBefore));
+            }
+        }
+        if ((from == null || from.isBefore(rawStart)) && (to == null || !to.isBefore(minuteStart))) {
+            rows.addAll(rollups.query(Resolution.MINUTE, from == null ? minuteStart : latest(from, minuteStart), to,
+                    rawStart));
+        }
+        if (to == null || !to.isBefore(rawStart)) {
+            rows.addAll(raw.apply(from == null ? rawStart : latest(from, rawStart)));
+        }
+        return rows;
+    }
+
+    private static boolean covers(LocalDateTime minutesKept, LocalDateTime time) {
+        return minutesKept != null && !time.isBefore(minutesKept);
+    }
+
+    // Bucket starts in [from, to] (nulls open) and before the tier's upper edge
+    private interface RollupQuery {
+        List<Object[]> query(Resolution resolution, LocalDateTime from, LocalDateTime to, LocalDateTime before);
+    }
+
+    // Told what each prune of the hour tier deletes, as the aggregate rows above; nothing older is stored
+    public interface PruneListener {
+        void hoursPruned(List<Object[]> brewTypes, List<Object[]> statuses, List<Object[]> levels);
+    }
+
+    // Raw rows are kept from here on; everything before it is in the minute tier. Minute-aligned, so
+    // rawStart splits the data exactly
+    private LocalDateTime rawStart(LocalDateTime now) {
+        return earliest(now.minusMinutes(rawRetentionMinutes).truncatedTo(ChronoUnit.MINUTES), minuteWatermark);
+    }
+
+    private Resolution chooseResolution(LocalDateTime from, LocalDateTime to, LocalDateTime now) {
+        long spanSeconds = Duration.between(from, to).getSeconds();
+        if (!from.isBefore(now.minusMinutes(rawRetentionMinutes))
+                && spanSeconds / Math.max(1, sampleIntervalSeconds) <= maxPoints) {
+            return Resolution.RAW;
+        }
+        if (!from.isBefore(now.minusDays(minuteRetentionDays)) && spanSeconds / 60 <= maxPoints) {
+            return Resolution.MINUTE;
+        }
+        return Resolution.HOUR;
+    }
+
+    private synchronized void initWatermarks(LocalDateTime now) {
+        if (minuteWatermark == null) {
+            minuteWatermark = startOf(rollupRepository.findLatestBucketStart(Resolution.MINUTE),
+                    machineDataRepository.findEarliestTimestamp(), ChronoUnit.MINUTES, now);
+        }
+        if (hourWatermark == null) {
+            // No minute buckets yet: hours start where the minutes will
+            LocalDateTime earliestMinute = rollupRepository.findEarliestBucketStart(Resolution.MINUTE);
+            hourWatermark = startOf(rollupRepository.findLatestBucketStart(Resolution.HOUR),
+                    earliestMinute != null ? earliestMinute : minuteWatermark, ChronoUnit.HOURS, now);
+        }
+    }
+
+    // Resume after the newest stored bucket, else from the oldest source row, else from now
+    private LocalDateTime startOf(LocalDateTime latestBucket, LocalDateTime earliestSource, ChronoUnit unit,
+            LocalDateTime now) {
+        if (latestBucket != null) {
+            return latestBucket.plus(1, unit);
+        }
+        if (earliestSource != null) {
+            return earliestSource.truncatedTo(unit);
+        }
+        return now.truncatedTo(unit);
+    }
+
+    // One closed minute per pass keeps memory at one minute of raw samples
+    private int rollupMinutes(LocalDateTime until) {
+        int written = 0;
+        while (minuteWatermark.isBefore(until)) {
+            LocalDateTime bucket = minuteWatermark;
+            LocalDateTime next = bucket.plusMinutes(1);
+            Map<Integer, RollupAccumulator> byMachine = new HashMap<>();
+            for (MachineData data : machineDataRepository.findWindow(bucket, next)) {
+                RollupAccumulator acc = byMachine.get(data.getMachineId());
+                if (acc == null) {
+                    acc = new RollupAccumulator(data.getFacilityId());
+                    byMachine.put(data.getMachineId(), acc);
+                }
+                acc.addRaw(data);
+            }
+            written += save(byMachine, Resolution.MINUTE, bucket);
+            minuteWatermark = next;
+        }
+        return written;
+    }
+
+    // Hours are built from minute buckets, only once all their minutes are rolled up
+    private int rollupHours(LocalDateTime until) {
+        int written = 0;
+        while (hourWatermark.isBefore(until)) {
+            LocalDateTime bucket = hourWatermark;
+            LocalDateTime next = bucket.plusHours(1);
+            Map<Integer, RollupAccumulator> byMachine = new HashMap<>();
+            for (MachineDataRollup rollup : rollupRepository.findWindow(Resolution.MINUTE, bucket, next)) {
+                RollupAccumulator acc = byMachine.get(rollup.getMachineId());
+                if (acc == null) {
+                    acc = new RollupAccumulator(rollup.getFacilityId());
+                    byMachine.put(rollup.getMachineId(), acc);
+                }
+                acc.addRollup(rollup);
+            }
+            for (Object[] row : rollupRepository.sumBrewTypeCountsByMachine(Resolution.MINUTE, bucket, next)) {
+                addCount(byMachine, row, true);
+            }
+            for (Object[] row : rollupRepository.sumStatusCountsByMachine(Resolution.MINUTE, bucket, next)) {
+                addCount(byMachine, row, false);
+            }
+            written += save(byMachine, Resolution.HOUR, bucket);
+            hourWatermark = next;
+        }
+        return written;
+    }
+
+    // row: machine id, brew type or status, samples
+    private static void addCount(Map<Integer, RollupAccumulator> byMachine, Object[] row, boolean brewType) {
+        RollupAccumulator acc = byMachine.get((Integer) row[0]);
+        if (acc != null) {
+            RollupAccumulator.add(brewType ? acc.brewTypes : acc.statuses, (String) row[1],
+                    ((Number) row[2]).longValue());
+        }
+    }
+
+    private int save(Map<Integer, RollupAccumulator> byMachine, Resolution resolution, LocalDateTime bucket) {
+        if (byMachine.isEmpty()) {
+            return 0;
+        }
+        List<MachineDataRollup> rollups = new ArrayList<>(byMachine.size());
+        for (Map.Entry<Integer, RollupAccumulator> entry : byMachine.entrySet()) {
+            rollups.add(entry.getValue().toRollup(entry.getKey(), resolution, bucket));
+        }
+        rollupRepository.saveAll(rollups);
+        return rollups.size();
+    }
+
+    // Never drop rows that have not been rolled up into the next tier yet
+    private void prune(LocalDateTime now) {
+        machineDataRepository.deleteOlderThan(rawStart(now));
+        rollupRepository.deleteOlderThan(Resolution.MINUTE,
+                earliest(now.minusDays(minuteRetentionDays), hourWatermark));
+        pruneHours(now.minusDays(hourRetentionDays));
+    }
+
+    // The hour tier is the last copy of its data, so listeners hear what leaves it
+    private void pruneHours(LocalDateTime cutoff) {
+        LocalDateTime oldest = rollupRepository.findEarliestBucketStart(Resolution.HOUR);
+        if (oldest == null || !oldest.isBefore(cutoff)) {
+            return;
+        }
+        List<Object[]> brewTypes = rollupRepository.countByBrewType(Resolution.HOUR, null, null, null, cutoff);
+        List<Object[]> statuses = rollupRepository.countByStatus(Resolution.HOUR, null, null, null, cutoff);
+        List<Object[]> levels = rollupRepository.sumLevels(Resolution.HOUR, null, null, null, cutoff);
+        rollupRepository.deleteOlderThan(Resolution.HOUR, cutoff);
+        for (PruneListener listener : pruneListeners) {
+            listener.hoursPruned(brewTypes, statuses, levels);
+        }
+    }
+
+    private List<TelemetryPoint> storedPoints(Integer machineId, Resolution resolution, LocalDateTime from,
+            LocalDateTime to) {
+        List<TelemetryPoint> points = new ArrayList<>();
+        if (from.isBefore(to)) {
+            for (MachineDataRollup rollup : rollupRepository.findSeries(machineId, resolution, from, to)) {
+                points.add(TelemetryPoint.fromRollup(rollup));
+            }
+        }
+        return points;
+    }
+
+    private void addRawTail(TreeMap<LocalDateTime, RollupAccumulator> buckets, Integer machineId,
+            LocalDateTime from, LocalDateTime to, ChronoUnit unit) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (MachineData data : machineDataRepository.findSeries(machineId, from, to)) {
+            accumulator(buckets, data.getTimestamp().truncatedTo(unit), data.getFacilityId()).addRaw(data);
+        }
+    }
+
+    private RollupAccumulator accumulator(TreeMap<LocalDateTime, RollupAccumulator> buckets, LocalDateTime bucket,
+            Integer facilityId) {
+        RollupAccumulator acc = buckets.get(bucket);
+        if (acc == null) {
+            acc = new RollupAccumulator(facilityId);
+            buckets.put(bucket, acc);
+        }
+        return acc;
+    }
+
+    private List<TelemetryPoint> toPoints(TreeMap<LocalDateTime, RollupAccumulator> buckets) {
+        List<TelemetryPoint> points = new ArrayList<>(buckets.size());
+        for (Map.Entry<LocalDateTime, RollupAccumulator> entry : buckets.entrySet()) {
+            points.add(TelemetryPoint.fromRollup(entry.getValue().toRollup(null, null, entry.getKey())));
+        }
+        return points;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    // Running min/max/weighted sum for the five readings of one bucket
+    private static class RollupAccumulator {
+        final Integer facilityId;
+        long samples;
+        final Stat temperature = new Stat();
+        final Stat water = new Stat();
+        final Stat milk = new Stat();
+        final Stat beans = new Stat();
+        final Stat sugar = new Stat();
+        final Map<String, Long> brewTypes = new HashMap<>();
+        final Map<String, Long> statuses = new HashMap<>();
+
+        RollupAccumulator(Integer facilityId) {
+            this.facilityId = facilityId;
+        }
+
+        void addRaw(MachineData data) {
+            samples++;
+            temperature.add(data.getTemperature());
+            water.add(data.getWaterLevel());
+            milk.add(data.getMilkLevel());
+            beans.add(data.getBeansLevel());
+            sugar.add(data.getSugarLevel());
+            // Same rows the raw countByBrewType/countByStatus count
+            if (data.getBrewType() != null && !"None".equals(data.getBrewType())) {
+                add(brewTypes, data.getBrewType(), 1);
+            }
+            add(statuses, data.getStatus(), 1);
+        }
+
+        // Rollup counts are lazy, so hour buckets get theirs from sumBrewTypeCountsByMachine/sumStatusCountsByMachine
+        static void add(Map<String, Long> counts, String key, long samples) {
+            if (key != null) {
+                counts.merge(key, samples, Long::sum);
+            }
+        }
+
+        void addRollup(MachineDataRollup rollup) {
+            long count = rollup.getSampleCount();
+            samples += count;
+            temperature.add(rollup.getTemperature(), count);
+            water.add(rollup.getWaterLevel(), count);
+            milk.add(rollup.getMilkLevel(), count);
+            beans.add(rollup.getBeansLevel(), count);
+            sugar.add(rollup.getSugarLevel(), count);
+        }
+
+        MachineDataRollup toRollup(Integer machineId, Resolution resolution, LocalDateTime bucket) {
+            MachineDataRollup rollup = new MachineDataRollup(machineId, facilityId, resolution, bucket);
+            rollup.setSampleCount(samples);
+            rollup.setTemperature(temperature.toLevelStats());
+            rollup.setWaterLevel(water.toLevelStats());
+            rollup.setMilkLevel(milk.toLevelStats());
+            rollup.setBeansLevel(beans.toLevelStats());
+            rollup.setSugarLevel(sugar.toLevelStats());
+            rollup.setBrewTypeCounts(new HashMap<>(brewTypes));
+            rollup.setStatusCounts(new HashMap<>(statuses));
+            return rollup;
+        }
+    }
+
+    private static class Stat {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double weightedSum;
+        long weight;
+
+        void add(Double value) {
+            if (value != null) {
+                add(value, value, value, 1);
+            }
+        }
+
+        void add(LevelStats stats, long count) {
+            if (stats != null && stats.getAvg() != null) {
+                add(stats.getMin(), stats.getMax(), stats.getAvg(), count);
+            }
+        }
+
+        void add(double lo, double hi, double avg, long count) {
+            min = Math.min(min, lo);
+            max = Math.max(max, hi);
+            weightedSum += avg * count;
+            weight += count;
+        }
+
+        LevelStats toLevelStats() {
+            return weight == 0 ? null : new LevelStats(min, max, weightedSum / weight);
+        }
+    }
+}
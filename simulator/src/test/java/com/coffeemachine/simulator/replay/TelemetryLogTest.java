@@ -0,0 +1,53 @@
+package com.coffeemachine.simulator.replay;
+
+import junit.framework.TestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Round trip of the memory-mapped telemetry log.
+ */
+public class TelemetryLogTest extends TestCase
+{
+    public void testAppendReadAndReopen() throws Exception
+    {
+        Path file = Files.createTempFile( "telemetry", ".log" );
+        Files.delete( file );
+        try
+        {
+            try ( TelemetryLogWriter writer = new TelemetryLogWriter( file ) )
+            {
+                writer.append( 1000L, "coffeemachine/1/data", "{\"machineId\":1}".getBytes( StandardCharsets.UTF_8 ) );
+                writer.append( 1005L, "coffeemachine/2/data", new byte[0] );
+            }
+            try ( TelemetryLogWriter writer = new TelemetryLogWriter( file ) )
+            {
+                assertEquals( 2, writer.getRecordCount() );
+                writer.append( 1010L, "coffeemachine/3/data", "{}".getBytes( StandardCharsets.UTF_8 ) );
+            }
+
+            try ( TelemetryLogReader reader = new TelemetryLogReader( file ) )
+            {
+                TelemetryRecord first = reader.next();
+                assertEquals( 1000L, first.getTimestampMillis() );
+                assertEquals( "coffeemachine/1/data", first.getTopic() );
+                assertEquals( "{\"machineId\":1}", new String( first.getPayload(), StandardCharsets.UTF_8 ) );
+
+                TelemetryRecord second = reader.next();
+                assertEquals( "coffeemachine/2/data", second.getTopic() );
+                assertEquals( 0, second.getPayload().length );
+
+                TelemetryRecord third = reader.next();
+                assertEquals( 1010L, third.getTimestampMillis() );
+                assertNull( reader.next() );
+                assertEquals( Files.size( file ), reader.getPosition() );
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists( file );
+        }
+    }
+}